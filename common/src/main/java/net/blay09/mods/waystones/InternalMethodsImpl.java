@@ -41,9 +41,9 @@ public class InternalMethodsImpl implements InternalMethods {
         return WaystonesAPI.createCustomTeleportContext(entity, waystone).ifLeft(context -> {
             final var shouldTransportPets = WaystonesConfig.getActive().teleports.transportPets;
             if (shouldTransportPets == WaystonesConfigData.TransportMobs.ENABLED || (shouldTransportPets == WaystonesConfigData.TransportMobs.SAME_DIMENSION && !context.isDimensionalTeleport())) {
-                context.getAdditionalEntities().addAll(WaystoneTeleportManager.findPets(entity));
+                context.getAdditionalEntities().addAll(WaystoneTeleportManager.findPets(context));
             }
-            context.getLeashedEntities().addAll(WaystoneTeleportManager.findLeashedAnimals(entity));
+            context.getLeashedEntities().addAll(WaystoneTeleportManager.findLeashedAnimals(context));
             init.accept(context);
             context.setRequirements(resolveRequirements(context));
         });
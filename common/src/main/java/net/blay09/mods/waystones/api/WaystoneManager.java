@@ -1,12 +1,15 @@
 package net.blay09.mods.waystones.api;
 
 import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.Level;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 public interface WaystoneManager {
@@ -22,4 +25,14 @@ public interface WaystoneManager {
     Stream<Waystone> getWaystonesByType(ResourceLocation type);
 
     List<Waystone> getGlobalWaystones();
+
+    /**
+     * Returns the waystones matching the filter within {@code distance} blocks of {@code pos} in the given dimension, ordered by distance.
+     */
+    List<Waystone> getWaystonesWithinDistance(ResourceKey<Level> dimension, BlockPos pos, double distance, Predicate<Waystone> filter);
+
+    /**
+     * Returns up to {@code count} waystones matching the filter in the given dimension, ordered by distance to {@code pos}.
+     */
+    List<Waystone> getNearestWaystones(ResourceKey<Level> dimension, BlockPos pos, int count, Predicate<Waystone> filter);
 }
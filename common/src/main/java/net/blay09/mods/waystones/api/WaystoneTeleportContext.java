@@ -10,6 +10,8 @@ import org.jetbrains.annotations.Nullable;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public interface WaystoneTeleportContext {
     Entity getEntity();
@@ -50,6 +52,28 @@ public interface WaystoneTeleportContext {
 
     WaystoneTeleportContext removeFlag(ResourceLocation flag);
 
+    List<Consumer<List<Entity>>> getTeleportedListeners();
+
+    /**
+     * Registers a listener that is called with the teleported entities once the teleport has actually been carried out, which may be on a later
+     * tick if the teleport had to be queued.
+     */
+    WaystoneTeleportContext addTeleportedListener(Consumer<List<Entity>> listener);
+
+    List<Runnable> getDroppedListeners();
+
+    /**
+     * Registers a listener that is called if a queued teleport is dropped instead of carried out, after its requirements have been refunded.
+     */
+    WaystoneTeleportContext addDroppedListener(Runnable listener);
+
+    /**
+     * Whether the teleport was accepted but queued for a later tick. In that case tryTeleport succeeds without any teleported entities yet.
+     */
+    boolean isQueued();
+
+    WaystoneTeleportContext setQueued(boolean queued);
+
     default WaystoneTeleportContext addFlags(Set<ResourceLocation> flags) {
         for (ResourceLocation flag : flags) {
             addFlag(flag);
@@ -60,4 +84,12 @@ public interface WaystoneTeleportContext {
     default boolean hasFlag(ResourceLocation flag) {
         return getFlags().contains(flag);
     }
+
+    /**
+     * Returns the value stored under the given key, computing it on first access. Values are shared by everything that inspects this context,
+     * so expensive lookups such as entity scans only run once per teleport.
+     */
+    default <T> T getOrComputeValue(ResourceLocation key, Function<WaystoneTeleportContext, T> computer) {
+        return computer.apply(this);
+    }
 }
@@ -65,6 +65,15 @@ public class WaystoneTeleportError {
     public static class CancelledByEvent extends WaystoneTeleportError {
     }
 
+    /**
+     * The entity already has a teleport queued, so another one cannot be started until that one has happened.
+     */
+    public static class TeleportPending extends WaystoneTeleportError {
+        public TeleportPending() {
+            super(Component.translatable("chat.waystones.teleport_pending"));
+        }
+    }
+
     public static class DimensionalWarpDenied extends WaystoneTeleportError {
         public DimensionalWarpDenied() {
             super(Component.translatable("chat.waystones.cannot_dimension_warp"));
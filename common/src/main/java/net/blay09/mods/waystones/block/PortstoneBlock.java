@@ -11,6 +11,7 @@ import net.blay09.mods.waystones.core.PlayerWaystoneManager;
 import net.blay09.mods.waystones.menu.ModMenus;
 import net.blay09.mods.waystones.menu.WaystoneSelectionMenu;
 import net.blay09.mods.waystones.core.WaystoneImpl;
+import net.blay09.mods.waystones.core.WaystoneListStreamer;
 import net.minecraft.ChatFormatting;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
@@ -159,7 +160,7 @@ public class PortstoneBlock extends WaystoneBlockBase {
 
                 @Override
                 public Collection<Waystone> getScreenOpeningData(ServerPlayer serverPlayer) {
-                    return waystones;
+                    return WaystoneListStreamer.beginMenuStream(serverPlayer, waystones);
                 }
 
                 @Override
@@ -15,6 +15,7 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.core.registries.Registries;
 import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.util.RandomSource;
 import net.minecraft.world.InteractionHand;
@@ -59,6 +60,10 @@ public abstract class WaystoneBlockBase extends BaseEntityBlock implements Simpl
             scheduledTickAccess.scheduleTick(pos, Fluids.WATER, Fluids.WATER.getTickDelay(level));
         }
 
+        if (level instanceof ServerLevel serverLevel && direction.getAxis() != Direction.Axis.Y) {
+            WaystoneDestinationCache.invalidate(serverLevel, pos);
+        }
+
         if (isDoubleBlock(state)) {
             DoubleBlockHalf half = state.getValue(HALF);
             if ((direction.getAxis() != Direction.Axis.Y) || ((half == DoubleBlockHalf.LOWER) != (direction == Direction.UP)) || ((directionState.getBlock() == this) && (directionState.getValue(
@@ -214,6 +219,9 @@ public abstract class WaystoneBlockBase extends BaseEntityBlock implements Simpl
     @Override
     public void onRemove(BlockState state, Level world, BlockPos pos, BlockState newState, boolean isMoving) {
         if (!state.is(newState.getBlock())) {
+            if (world instanceof ServerLevel serverLevel) {
+                WaystoneDestinationCache.invalidate(serverLevel, pos);
+            }
             final var blockEntity = world.getBlockEntity(pos);
             if (blockEntity instanceof WaystoneBlockEntityBase waystoneBlockEntity) {
                 final var waystone = waystoneBlockEntity.getWaystone();
@@ -238,7 +246,7 @@ public abstract class WaystoneBlockBase extends BaseEntityBlock implements Simpl
 
         final var waystoneUid = stack.get(ModComponents.waystone.get());
         if (waystoneUid != null) {
-            WaystoneProxy waystone = new WaystoneProxy(null, waystoneUid);
+            WaystoneProxy waystone = WaystoneProxyRegistry.get(null, waystoneUid);
             if (waystone.isValid()) {
                 addWaystoneNameToTooltip(list, waystone);
             }
@@ -297,7 +305,7 @@ public abstract class WaystoneBlockBase extends BaseEntityBlock implements Simpl
                 final var waystoneUid = stack.get(ModComponents.waystone.get());
                 WaystoneProxy existingWaystone = null;
                 if (waystoneUid != null) {
-                    existingWaystone = new WaystoneProxy(world.getServer(), waystoneUid);
+                    existingWaystone = WaystoneProxyRegistry.get(world.getServer(), waystoneUid);
                 }
 
                 if (existingWaystone != null && existingWaystone.isValid() && existingWaystone.getBackingWaystone() instanceof WaystoneImpl backingWaystone) {
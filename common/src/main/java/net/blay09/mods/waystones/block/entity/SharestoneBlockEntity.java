@@ -7,6 +7,7 @@ import net.blay09.mods.waystones.core.*;
 import net.blay09.mods.waystones.api.WaystoneTypes;
 import net.blay09.mods.waystones.menu.ModMenus;
 import net.blay09.mods.waystones.menu.WaystoneSelectionMenu;
+import net.blay09.mods.waystones.menu.WaystoneSelectionQuery;
 import net.blay09.mods.waystones.menu.WaystoneEditMenu;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.RegistryFriendlyByteBuf;
@@ -24,6 +25,7 @@ import net.minecraft.world.level.block.state.BlockState;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 public class SharestoneBlockEntity extends WaystoneBlockEntityBase {
@@ -63,12 +65,22 @@ public class SharestoneBlockEntity extends WaystoneBlockEntityBase {
                 final var fromWaystone = getWaystone();
                 final var waystones = PlayerWaystoneManager.getTargetsForWaystone(player, fromWaystone);
                 PlayerWaystoneManager.ensureSortingIndex(player, waystones);
+                if (WaystoneSelectionMenu.shouldUseQueryMode(waystones) && player instanceof ServerPlayer serverPlayer) {
+                    final var targetSource = PlayerWaystoneManager.getTargetSourceForWaystone(player, fromWaystone);
+                    return new WaystoneSelectionMenu(ModMenus.sharestoneSelection.get(), fromWaystone, windowId, serverPlayer, targetSource, WaystoneSelectionQuery.SortKey.SORTING_INDEX, Collections.emptySet());
+                }
+
                 return new WaystoneSelectionMenu(ModMenus.sharestoneSelection.get(), fromWaystone, windowId, waystones, Collections.emptySet());
             }
 
             @Override
             public WaystoneSelectionMenu.Data getScreenOpeningData(ServerPlayer serverPlayer) {
-                return new WaystoneSelectionMenu.Data(worldPosition, PlayerWaystoneManager.getTargetsForWaystone(serverPlayer, getWaystone()));
+                final var waystones = PlayerWaystoneManager.getTargetsForWaystone(serverPlayer, getWaystone());
+                if (WaystoneSelectionMenu.shouldUseQueryMode(waystones)) {
+                    return new WaystoneSelectionMenu.Data(worldPosition, List.of());
+                }
+
+                return new WaystoneSelectionMenu.Data(worldPosition, WaystoneListStreamer.beginMenuStream(serverPlayer, waystones));
             }
 
             @Override
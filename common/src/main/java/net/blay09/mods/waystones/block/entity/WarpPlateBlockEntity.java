@@ -30,6 +30,7 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.Items;
 import net.minecraft.world.level.ServerLevelAccessor;
+import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.AABB;
 import org.jetbrains.annotations.Nullable;
@@ -40,6 +41,8 @@ import java.util.function.Consumer;
 
 public class WarpPlateBlockEntity extends WaystoneBlockEntityBase {
 
+    private static final int MAX_PREWARM_WAIT_TICKS = 20;
+
     private final WeakHashMap<Entity, Integer> ticksPassedPerEntity = new WeakHashMap<>();
 
     private final Random random = new Random();
@@ -109,7 +112,7 @@ public class WarpPlateBlockEntity extends WaystoneBlockEntityBase {
     }
 
     public void onEntityCollision(Entity entity) {
-        if (WaystonePermissionManager.isEntityDeniedTeleports(entity)) {
+        if (WaystonePermissionManager.isEntityDeniedTeleports(entity) || WaystoneTeleportQueue.isQueued(entity)) {
             return;
         }
 
@@ -174,6 +177,13 @@ public class WarpPlateBlockEntity extends WaystoneBlockEntityBase {
                 } else if (ticksPassed > useTime) {
                     ItemStack targetAttunementStack = getTargetAttunementStack();
                     Waystone targetWaystone = WaystonesAPI.getBoundWaystone(null, targetAttunementStack).orElse(null);
+                    if (targetWaystone != null && targetWaystone.isValid() && ticksPassed <= useTime + MAX_PREWARM_WAIT_TICKS
+                            && !DestinationPrewarmer.isReady(level.getServer(), targetWaystone)) {
+                        // The destination is still loading in the background, so give it a little longer before loading it on the spot
+                        entry.setValue(ticksPassed + 1);
+                        continue;
+                    }
+
                     if (targetWaystone != null && targetWaystone.isValid()) {
                         teleportToTarget(entity, targetWaystone, targetAttunementStack);
                     }
@@ -192,6 +202,9 @@ public class WarpPlateBlockEntity extends WaystoneBlockEntityBase {
 
                     iterator.remove();
                 } else if (ticksPassed != -1) {
+                    if (ticksPassed % DestinationPrewarmer.REFRESH_INTERVAL == 0) {
+                        getTargetWaystone().filter(Waystone::isValid).ifPresent(it -> DestinationPrewarmer.prewarm(level.getServer(), it));
+                    }
                     entry.setValue(ticksPassed + 1);
                 }
             }
@@ -214,26 +227,50 @@ public class WarpPlateBlockEntity extends WaystoneBlockEntityBase {
     }
 
     private void teleportToTarget(Entity entity, Waystone targetWaystone, ItemStack targetAttunementStack) {
+        final var consumesShard = targetAttunementStack.is(ModItemTags.SINGLE_USE_WARP_SHARDS)
+                && (!(entity instanceof Player player) || !player.getAbilities().instabuild);
+        final var reservedShard = targetAttunementStack.copyWithCount(1);
         WaystonesAPI.createDefaultTeleportContext(entity, targetWaystone, it -> {
                     it.setFromWaystone(getWaystone());
                     it.setWarpItem(targetAttunementStack);
-                })
-                .flatMap(WaystonesAPI::tryTeleport)
-                .ifRight(informRejectedTeleport(entity))
-                .ifLeft(entities -> {
-                    if (targetAttunementStack.is(ModItemTags.SINGLE_USE_WARP_SHARDS)) {
-                        if (!(entity instanceof Player player) || !player.getAbilities().instabuild) {
-                            targetAttunementStack.shrink(1);
-                        }
+                    if (consumesShard) {
+                        it.addDroppedListener(() -> refundShard(targetAttunementStack, reservedShard));
                     }
                 })
-                .left();
+                .flatMap(context -> WaystonesAPI.tryTeleport(context).ifLeft(entities -> {
+                    // The shard is used up as soon as the teleport is accepted, so that entities queued behind this one cannot use it again
+                    if (consumesShard) {
+                        targetAttunementStack.shrink(1);
+                    }
+                    if (context.isQueued() && entity instanceof Player player) {
+                        player.displayClientMessage(Component.translatable("chat.waystones.teleport_pending"), true);
+                    }
+                }))
+                .ifRight(informRejectedTeleport(entity));
+    }
+
+    private void refundShard(ItemStack attunementStack, ItemStack reservedShard) {
+        for (int i = 0; i < container.getContainerSize(); i++) {
+            if (container.getItem(i) == attunementStack) {
+                attunementStack.grow(1);
+                container.setChanged();
+                return;
+            }
+        }
+
+        // The stack was taken out or replaced in the meantime, so drop the shard on the plate instead
+        if (level != null) {
+            Block.popResource(level, worldPosition, reservedShard);
+        }
     }
 
     private Consumer<WaystoneTeleportError> informRejectedTeleport(final Entity entityToInform) {
         return error -> {
             if (error.getComponent() != null && entityToInform instanceof Player player) {
-                var chatComponent = error.getComponent().copy().withStyle(ChatFormatting.DARK_RED);
+                var chatComponent = error.getComponent().copy();
+                if (!(error instanceof WaystoneTeleportError.TeleportPending)) {
+                    chatComponent.withStyle(ChatFormatting.DARK_RED);
+                }
                 player.displayClientMessage(chatComponent, true);
             }
         };
@@ -113,7 +113,7 @@ public abstract class WaystoneBlockEntityBase extends BalmBlockEntity implements
         if (compound.contains("Waystone", Tag.TAG_COMPOUND)) {
             var syncedWaystone = WaystoneImpl.read(compound.getCompound("Waystone"), provider);
             WaystoneManagerImpl.get(null).updateWaystone(syncedWaystone);
-            waystone = new WaystoneProxy(null, syncedWaystone.getWaystoneUid());
+            waystone = WaystoneProxyRegistry.get(null, syncedWaystone.getWaystoneUid());
         }
     }
 
@@ -161,7 +161,7 @@ public abstract class WaystoneBlockEntityBase extends BalmBlockEntity implements
     public Waystone getWaystone() {
         if (!waystone.isValid() && level != null && !level.isClientSide && !shouldNotInitialize) {
             if (waystoneUid != null) {
-                waystone = new WaystoneProxy(level.getServer(), waystoneUid);
+                waystone = WaystoneProxyRegistry.get(level.getServer(), waystoneUid);
             }
 
             if (!waystone.isValid()) {
@@ -1,11 +1,20 @@
 package net.blay09.mods.waystones.client;
 
 import net.blay09.mods.balm.api.Balm;
+import net.blay09.mods.balm.api.event.TickPhase;
+import net.blay09.mods.balm.api.event.TickType;
 import net.blay09.mods.balm.api.event.client.FovUpdateEvent;
+import net.blay09.mods.waystones.core.WaystoneProxyRegistry;
 import net.blay09.mods.waystones.handler.WarpStoneFOVHandler;
 
 public class ModClientEventHandlers {
     public static void initialize() {
         Balm.getEvents().onEvent(FovUpdateEvent.class, WarpStoneFOVHandler::onFOV);
+        Balm.getEvents().onTickEvent(TickType.Client, TickPhase.End, WaystoneCatalogueCache::onClientTick);
+        Balm.getEvents().onTickEvent(TickType.Client, TickPhase.End, minecraft -> {
+            if (minecraft.level == null) {
+                WaystoneProxyRegistry.clearClientProxies();
+            }
+        });
     }
 }
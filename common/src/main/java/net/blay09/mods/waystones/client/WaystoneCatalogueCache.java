@@ -0,0 +1,268 @@
+package net.blay09.mods.waystones.client;
+
+import net.blay09.mods.balm.api.BalmEnvironment;
+import net.blay09.mods.waystones.Waystones;
+import net.blay09.mods.waystones.api.Waystone;
+import net.blay09.mods.waystones.api.WaystoneTypes;
+import net.blay09.mods.waystones.core.PlayerWaystoneManager;
+import net.blay09.mods.waystones.core.WaystoneCatalogueHash;
+import net.blay09.mods.waystones.core.WaystoneImpl;
+import net.minecraft.client.Minecraft;
+import net.minecraft.core.RegistryAccess;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceLocation;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the last waystone lists received from a server on disk, so that on the next login the server only has to send the lists that changed.
+ * Caches are kept per server address, world and player. Files are written on a background thread and old ones are pruned.
+ */
+public class WaystoneCatalogueCache {
+
+    private static final String TAG_LISTS = "Lists";
+    private static final String TAG_TYPE = "Type";
+    private static final String TAG_HASH = "Hash";
+    private static final String TAG_WAYSTONES = "Waystones";
+    private static final int SAVE_INTERVAL_TICKS = 200;
+    private static final int MAX_CACHE_FILES = 32;
+    private static final long MAX_CACHE_FILE_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    private static final Map<ResourceLocation, List<Waystone>> cachedLists = new HashMap<>();
+    private static final Map<ResourceLocation, Map<UUID, Waystone>> receivedLists = new LinkedHashMap<>();
+    private static Path cacheFile;
+    private static RegistryAccess registryAccess;
+    private static ExecutorService executor;
+    private static boolean dirty;
+    private static int ticksSinceSave;
+
+    /**
+     * Loads the cache for the current connection and returns the types whose cached list matches the hash the server offered.
+     */
+    public static Set<ResourceLocation> loadMatching(UUID catalogueId, Map<ResourceLocation, Long> offeredHashes) {
+        cachedLists.clear();
+        receivedLists.clear();
+        dirty = false;
+        final var minecraft = Minecraft.getInstance();
+        final var connection = minecraft.getConnection();
+        if (connection == null || minecraft.player == null) {
+            cacheFile = null;
+            return Set.of();
+        }
+
+        cacheFile = getCacheFile(minecraft, catalogueId);
+        registryAccess = connection.registryAccess();
+        final var currentFile = cacheFile;
+        getExecutor().execute(() -> pruneCacheFiles(currentFile));
+        if (!Files.exists(cacheFile)) {
+            return Set.of();
+        }
+
+        final var matchingTypes = new HashSet<ResourceLocation>();
+        try {
+            final var registryAccess = connection.registryAccess();
+            final var tagCompound = NbtIo.readCompressed(cacheFile, NbtAccounter.unlimitedHeap());
+            for (Tag tag : tagCompound.getList(TAG_LISTS, Tag.TAG_COMPOUND)) {
+                final var listTag = (CompoundTag) tag;
+                final var type = ResourceLocation.tryParse(listTag.getString(TAG_TYPE));
+                final var offeredHash = type != null ? offeredHashes.get(type) : null;
+                if (offeredHash == null || offeredHash != listTag.getLong(TAG_HASH)) {
+                    continue;
+                }
+
+                final var waystones = new ArrayList<Waystone>();
+                for (Tag waystoneTag : listTag.getList(TAG_WAYSTONES, Tag.TAG_COMPOUND)) {
+                    waystones.add(WaystoneImpl.read((CompoundTag) waystoneTag, registryAccess));
+                }
+                // Guard against a cache written by an older format that happens to carry a matching hash
+                if (WaystoneCatalogueHash.hash(waystones, registryAccess) == offeredHash) {
+                    cachedLists.put(type, waystones);
+                    matchingTypes.add(type);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Waystones.logger.warn("Failed to read waystone catalogue cache {}", cacheFile, e);
+            cachedLists.clear();
+            return Set.of();
+        }
+        return matchingTypes;
+    }
+
+    @Nullable
+    public static List<Waystone> getCachedList(ResourceLocation type) {
+        return cachedLists.get(type);
+    }
+
+    public static void onListReceived(ResourceLocation type, Collection<Waystone> waystones) {
+        if (!type.equals(WaystoneTypes.WAYSTONE)) {
+            final var list = new LinkedHashMap<UUID, Waystone>();
+            for (Waystone waystone : waystones) {
+                list.put(waystone.getWaystoneUid(), waystone);
+            }
+            receivedLists.put(type, list);
+        }
+        markDirty();
+    }
+
+    public static void onWaystoneUpdated(Waystone waystone) {
+        final var list = receivedLists.get(waystone.getWaystoneType());
+        if (list != null) {
+            list.put(waystone.getWaystoneUid(), waystone);
+            markDirty();
+        }
+    }
+
+    public static void onWaystoneRemoved(ResourceLocation type, UUID waystoneUid) {
+        final var list = receivedLists.get(type);
+        if (list != null && list.remove(waystoneUid) != null) {
+            markDirty();
+        }
+    }
+
+    public static void markDirty() {
+        if (cacheFile != null) {
+            dirty = true;
+        }
+    }
+
+    public static void onClientTick(Minecraft minecraft) {
+        if (cacheFile == null) {
+            return;
+        }
+
+        if (minecraft.getConnection() == null) {
+            // The lists received so far are still around, so write them out once before letting go of them
+            if (dirty) {
+                save(registryAccess);
+            }
+            cacheFile = null;
+            registryAccess = null;
+            cachedLists.clear();
+            receivedLists.clear();
+            dirty = false;
+            return;
+        }
+
+        ticksSinceSave++;
+        if (dirty && ticksSinceSave >= SAVE_INTERVAL_TICKS) {
+            save(minecraft.getConnection().registryAccess());
+        }
+    }
+
+    private static void save(RegistryAccess registryAccess) {
+        ticksSinceSave = 0;
+        dirty = false;
+        cachedLists.clear();
+
+        final var lists = new LinkedHashMap<ResourceLocation, Collection<Waystone>>();
+        lists.put(WaystoneTypes.WAYSTONE, PlayerWaystoneManager.getPlayerWaystoneData(BalmEnvironment.CLIENT).getWaystones(Minecraft.getInstance().player));
+        for (final var entry : receivedLists.entrySet()) {
+            lists.put(entry.getKey(), entry.getValue().values());
+        }
+
+        final var listsTag = new ListTag();
+        for (final var entry : lists.entrySet()) {
+            final var listTag = new CompoundTag();
+            listTag.putString(TAG_TYPE, entry.getKey().toString());
+            listTag.putLong(TAG_HASH, WaystoneCatalogueHash.hash(entry.getValue(), registryAccess));
+            final var waystonesTag = new ListTag();
+            for (Waystone waystone : entry.getValue()) {
+                waystonesTag.add(WaystoneImpl.write(waystone, new CompoundTag(), registryAccess));
+            }
+            listTag.put(TAG_WAYSTONES, waystonesTag);
+            listsTag.add(listTag);
+        }
+
+        final var tagCompound = new CompoundTag();
+        tagCompound.put(TAG_LISTS, listsTag);
+        final var targetFile = cacheFile;
+        getExecutor().execute(() -> write(tagCompound, targetFile));
+    }
+
+    private static void write(CompoundTag tagCompound, Path targetFile) {
+        // Written next to the target and moved over it, so that a crash mid-write never leaves a truncated cache behind
+        final var tempFile = targetFile.resolveSibling(targetFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(targetFile.getParent());
+            NbtIo.writeCompressed(tagCompound, tempFile);
+            try {
+                Files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Waystones.logger.warn("Failed to write waystone catalogue cache {}", targetFile, e);
+        }
+    }
+
+    /**
+     * Deletes cache files that were not written for a while, then the oldest ones beyond the limit. The cache of the current connection is kept.
+     */
+    private static void pruneCacheFiles(Path currentFile) {
+        final var cacheDirectory = currentFile.getParent();
+        if (!Files.isDirectory(cacheDirectory)) {
+            return;
+        }
+
+        final var files = new ArrayList<Path>();
+        final var lastModified = new HashMap<Path, FileTime>();
+        try (final var stream = Files.list(cacheDirectory)) {
+            for (final var file : (Iterable<Path>) stream::iterator) {
+                if (Files.isRegularFile(file) && !file.equals(currentFile)) {
+                    files.add(file);
+                    lastModified.put(file, Files.getLastModifiedTime(file));
+                }
+            }
+        } catch (IOException e) {
+            Waystones.logger.warn("Failed to list waystone catalogue caches in {}", cacheDirectory, e);
+            return;
+        }
+
+        files.sort(Comparator.comparing(lastModified::get, Comparator.reverseOrder()));
+        final var expiredBefore = System.currentTimeMillis() - MAX_CACHE_FILE_AGE_MILLIS;
+        for (int i = 0; i < files.size(); i++) {
+            final var file = files.get(i);
+            if (i >= MAX_CACHE_FILES - 1 || lastModified.get(file).toMillis() < expiredBefore) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    Waystones.logger.warn("Failed to delete waystone catalogue cache {}", file, e);
+                }
+            }
+        }
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                final var thread = new Thread(runnable, "Waystones Catalogue Cache");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    private static Path getCacheFile(Minecraft minecraft, UUID catalogueId) {
+        final var serverData = minecraft.getCurrentServer();
+        final var serverIdentity = serverData != null ? serverData.ip : "singleplayer";
+        final var key = serverIdentity + "/" + catalogueId + "/" + minecraft.player.getUUID();
+        final var fileName = UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)) + ".dat";
+        return minecraft.gameDirectory.toPath().resolve(Waystones.MOD_ID).resolve("catalogue_cache").resolve(fileName);
+    }
+}
@@ -11,7 +11,10 @@ import net.blay09.mods.waystones.client.gui.widget.WaystoneButton;
 import net.blay09.mods.waystones.comparator.UserSortingComparator;
 import net.blay09.mods.waystones.requirement.NoRequirement;
 import net.blay09.mods.waystones.menu.WaystoneSelectionMenu;
+import net.blay09.mods.waystones.menu.WaystoneSelectionQuery;
 import net.blay09.mods.waystones.core.PlayerWaystoneManager;
+import net.blay09.mods.waystones.core.WaystoneImpl;
+import net.blay09.mods.waystones.network.message.QueryWaystonesMessage;
 import net.blay09.mods.waystones.network.message.RemoveWaystoneMessage;
 import net.blay09.mods.waystones.network.message.RequestEditWaystoneMessage;
 import net.blay09.mods.waystones.network.message.SelectWaystoneMessage;
@@ -53,6 +56,8 @@ public abstract class WaystoneSelectionScreenBase extends AbstractContainerScree
     private int headerY;
     private boolean isLocationHeaderHovered;
     private int buttonsPerPage;
+    private WaystoneSelectionQuery pendingQuery;
+    private boolean queryStale;
 
     private static final int headerHeight = 64;
     private static final int footerHeight = 25;
@@ -67,15 +72,71 @@ public abstract class WaystoneSelectionScreenBase extends AbstractContainerScree
         if (sorting != null) {
             filteredWaystones.sort(getSorting());
         }
+        container.setStreamedWaystonesListener(this::onStreamedWaystones);
+        container.setQueryResultListener(this::onQueryResult);
         imageWidth = 270;
         imageHeight = 200;
     }
 
-    @Override
-    public void init() {
+    private int calculateButtonsPerPage() {
         final int maxContentHeight = (int) (height * 0.6f);
         final int maxButtonsPerPage = (maxContentHeight - headerHeight - footerHeight) / entryHeight;
-        buttonsPerPage = Math.max(4, Math.min(maxButtonsPerPage, waystones.size()));
+        return Math.max(4, Math.min(maxButtonsPerPage, getTargetCount()));
+    }
+
+    private int getTargetCount() {
+        final var queryResult = menu.getQueryResult();
+        return queryResult != null ? queryResult.totalCount() : waystones.size();
+    }
+
+    private void onQueryResult(WaystoneSelectionQuery.Result queryResult) {
+        final var answered = queryResult.query();
+        if (pendingQuery != null && answered.pageSize() == pendingQuery.pageSize() && answered.sortKey() == pendingQuery.sortKey()
+                && answered.searchText().equals(pendingQuery.searchText())) {
+            // The server clamps the page to what exists, so follow it rather than asking again
+            pageOffset = answered.page();
+            pendingQuery = null;
+        }
+
+        if (btnPrevPage == null) {
+            return;
+        }
+
+        if (calculateButtonsPerPage() != buttonsPerPage) {
+            rebuildWidgets();
+        } else {
+            updateList();
+        }
+    }
+
+    private void requestQueryPage() {
+        final var sortKey = getSorting() != null ? WaystoneSelectionQuery.SortKey.SORTING_INDEX : WaystoneSelectionQuery.SortKey.SOURCE;
+        final var query = new WaystoneSelectionQuery(pageOffset, buttonsPerPage, searchText, sortKey);
+        final var queryResult = menu.getQueryResult();
+        final var isAnswered = queryResult != null && queryResult.query().equals(query);
+        if (queryStale || (!isAnswered && !query.equals(pendingQuery))) {
+            Balm.getNetworking().sendToServer(new QueryWaystonesMessage(query));
+            pendingQuery = query;
+            queryStale = false;
+        }
+    }
+
+    private void onStreamedWaystones(Collection<Waystone> streamedWaystones) {
+        PlayerWaystoneManager.ensureSortingIndex(Minecraft.getInstance().player, streamedWaystones);
+        if (btnPrevPage == null) {
+            return;
+        }
+
+        if (calculateButtonsPerPage() != buttonsPerPage) {
+            rebuildWidgets();
+        } else {
+            updateList();
+        }
+    }
+
+    @Override
+    public void init() {
+        buttonsPerPage = calculateButtonsPerPage();
         final int contentHeight = headerHeight + buttonsPerPage * entryHeight + footerHeight;
 
         // Leave no space for JEI!
@@ -92,7 +153,7 @@ public abstract class WaystoneSelectionScreenBase extends AbstractContainerScree
         addRenderableWidget(btnPrevPage);
 
         btnNextPage = Button.builder(Component.translatable("gui.waystones.waystone_selection.next_page"), button -> {
-            pageOffset = Screen.hasShiftDown() ? (waystones.size() - 1) / buttonsPerPage : pageOffset + 1;
+            pageOffset = Screen.hasShiftDown() ? (getTargetCount() - 1) / buttonsPerPage : pageOffset + 1;
             updateList();
         }).pos(width / 2 + 5, height / 2 + 40).size(95, 20).build();
         addRenderableWidget(btnNextPage);
@@ -100,6 +161,7 @@ public abstract class WaystoneSelectionScreenBase extends AbstractContainerScree
         updateList();
 
         searchBox = new EditBox(font, width / 2 - 99, topPos + headerHeight - 24, 198, 20, Component.empty());
+        searchBox.setValue(searchText);
         searchBox.setResponder(text -> {
             pageOffset = 0;
             searchText = text;
@@ -118,22 +180,34 @@ public abstract class WaystoneSelectionScreenBase extends AbstractContainerScree
     }
 
     private void updateList() {
-        List<Waystone> list = new ArrayList<>();
-        for (Waystone waystone : waystones) {
-            if (waystone.getName().getString().toLowerCase().contains(searchText.toLowerCase())) {
-                list.add(waystone);
+        final int matchCount;
+        final int listOffset;
+        if (menu.isQueryMode()) {
+            requestQueryPage();
+            final var queryResult = menu.getQueryResult();
+            filteredWaystones = queryResult != null ? queryResult.waystones() : List.of();
+            matchCount = queryResult != null ? queryResult.totalCount() : 0;
+            listOffset = queryResult != null ? queryResult.query().page() * queryResult.query().pageSize() : 0;
+        } else {
+            List<Waystone> list = new ArrayList<>();
+            for (Waystone waystone : waystones) {
+                if (waystone.getName().getString().toLowerCase().contains(searchText.toLowerCase())) {
+                    list.add(waystone);
+                }
             }
+            final var sorting = getSorting();
+            if (sorting != null) {
+                list.sort(sorting);
+            }
+            filteredWaystones = list;
+            matchCount = list.size();
+            listOffset = 0;
         }
-        final var sorting = getSorting();
-        if (sorting != null) {
-            list.sort(sorting);
-        }
-        filteredWaystones = list;
 
         headerY = 0;
 
         btnPrevPage.active = pageOffset > 0;
-        btnNextPage.active = pageOffset < (filteredWaystones.size() - 1) / buttonsPerPage;
+        btnNextPage.active = pageOffset < (matchCount - 1) / buttonsPerPage;
 
         tooltipProviders.clear();
 
@@ -145,8 +219,9 @@ public abstract class WaystoneSelectionScreenBase extends AbstractContainerScree
         int y = topPos + headerHeight + headerY;
         for (int i = 0; i < buttonsPerPage; i++) {
             int entryIndex = pageOffset * buttonsPerPage + i;
-            if (entryIndex >= 0 && entryIndex < filteredWaystones.size()) {
-                Waystone waystone = filteredWaystones.get(entryIndex);
+            int listIndex = entryIndex - listOffset;
+            if (listIndex >= 0 && listIndex < filteredWaystones.size()) {
+                Waystone waystone = filteredWaystones.get(listIndex);
 
                 addRenderableWidget(createWaystoneButton(y, waystone));
 
@@ -158,7 +233,7 @@ public abstract class WaystoneSelectionScreenBase extends AbstractContainerScree
                     addRenderableWidget(sortUpButton);
 
                     SortWaystoneButton sortDownButton = new SortWaystoneButton(width / 2 + 108, y + 13, 1, y, 20, it -> sortWaystone(waystone, 1));
-                    if (entryIndex == filteredWaystones.size() - 1) {
+                    if (entryIndex == matchCount - 1) {
                         sortDownButton.active = false;
                     }
                     addRenderableWidget(sortDownButton);
@@ -169,7 +244,8 @@ public abstract class WaystoneSelectionScreenBase extends AbstractContainerScree
                         Player player = Minecraft.getInstance().player;
                         PlayerWaystoneManager.deactivateWaystone(Objects.requireNonNull(player), waystone);
                         waystones.remove(waystone);
-                        Balm.getNetworking().sendToServer(new RemoveWaystoneMessage(waystone.getWaystoneUid()));
+                        Balm.getNetworking().sendToServer(new RemoveWaystoneMessage(WaystoneImpl.handleOf(waystone)));
+                        queryStale = true;
                         updateList();
                     });
                     addRenderableWidget(removeButton);
@@ -213,7 +289,7 @@ public abstract class WaystoneSelectionScreenBase extends AbstractContainerScree
     }
 
     protected void onWaystoneSelected(Waystone waystone) {
-        Balm.getNetworking().sendToServer(new SelectWaystoneMessage(waystone.getWaystoneUid()));
+        Balm.getNetworking().sendToServer(new SelectWaystoneMessage(WaystoneImpl.handleOf(waystone)));
     }
 
     private void sortWaystone(Waystone waystone, int sortDir) {
@@ -221,24 +297,25 @@ public abstract class WaystoneSelectionScreenBase extends AbstractContainerScree
         if (Screen.hasShiftDown()) {
             if (sortDir == -1) {
                 PlayerWaystoneManager.sortWaystoneAsFirst(Minecraft.getInstance().player, waystoneUid);
-                Balm.getNetworking().sendToServer(new SortWaystoneMessage(waystoneUid, SortWaystoneMessage.SORT_FIRST));
+                Balm.getNetworking().sendToServer(new SortWaystoneMessage(WaystoneImpl.handleOf(waystone), SortWaystoneMessage.SORT_FIRST));
             } else if (sortDir == 1) {
                 PlayerWaystoneManager.sortWaystoneAsLast(Minecraft.getInstance().player, waystoneUid);
-                Balm.getNetworking().sendToServer(new SortWaystoneMessage(waystoneUid, SortWaystoneMessage.SORT_LAST));
+                Balm.getNetworking().sendToServer(new SortWaystoneMessage(WaystoneImpl.handleOf(waystone), SortWaystoneMessage.SORT_LAST));
             }
         } else {
             final var index = filteredWaystones.indexOf(waystone);
             final var otherIndex = index + sortDir;
-            if (index == -1 || otherIndex < 0 || otherIndex >= waystones.size()) {
+            if (index == -1 || otherIndex < 0 || otherIndex >= filteredWaystones.size()) {
                 return;
             }
             final var otherWaystone = filteredWaystones.get(otherIndex);
             final var otherWaystoneUid = otherWaystone.getWaystoneUid();
 
             PlayerWaystoneManager.sortWaystoneSwap(Minecraft.getInstance().player, waystoneUid, otherWaystoneUid);
-            Balm.getNetworking().sendToServer(new SortWaystoneMessage(waystoneUid, otherWaystoneUid));
+            Balm.getNetworking().sendToServer(new SortWaystoneMessage(WaystoneImpl.handleOf(waystone), WaystoneImpl.handleOf(otherWaystone)));
         }
 
+        queryStale = true;
         updateList();
     }
 
@@ -278,7 +355,7 @@ public abstract class WaystoneSelectionScreenBase extends AbstractContainerScree
             drawLocationHeader(guiGraphics, fromWaystone, mouseX, mouseY, imageWidth / 2, headerY);
         }
 
-        if (waystones.size() == 0) {
+        if (getTargetCount() == 0 && (!menu.isQueryMode() || searchText.isEmpty())) {
             guiGraphics.drawCenteredString(font,
                     ChatFormatting.RED + I18n.get("gui.waystones.waystone_selection.no_waystones_activated"),
                     imageWidth / 2,
@@ -347,7 +424,7 @@ public abstract class WaystoneSelectionScreenBase extends AbstractContainerScree
 
     public Comparator<Waystone> getSorting() {
         final var player = Minecraft.getInstance().player;
-        final var sortingIndex = PlayerWaystoneManager.getSortingIndex(player);
+        final var sortingIndex = PlayerWaystoneManager.getWaystoneSortingIndex(player);
         return new UserSortingComparator(sortingIndex);
     }
 }
@@ -1,5 +1,6 @@
 package net.blay09.mods.waystones.command;
 
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.exceptions.SimpleCommandExceptionType;
 import net.blay09.mods.balm.api.command.BalmCommands;
 import net.blay09.mods.waystones.api.Waystone;
@@ -7,6 +8,8 @@ import net.blay09.mods.waystones.api.WaystoneStyle;
 import net.blay09.mods.waystones.api.WaystonesAPI;
 import net.blay09.mods.waystones.comparator.WaystoneComparators;
 import net.blay09.mods.waystones.core.PlayerWaystoneManager;
+import net.blay09.mods.waystones.core.WaystoneManagerImpl;
+import net.blay09.mods.waystones.core.WaystoneTeleportQueue;
 import net.minecraft.ChatFormatting;
 import net.minecraft.commands.Commands;
 import net.minecraft.commands.arguments.EntityArgument;
@@ -134,9 +137,31 @@ public class ModCommands {
                                     final var result = Component.translatable("commands.waystones.list.all.footer", waystones.size(), ownedCount);
                                     ctx.getSource().sendSuccess(() -> result, false);
                                     return waystones.size();
-                                }))))
+                                }))
+                                .then(Commands.literal("near")
+                                        .then(argument("radius", IntegerArgumentType.integer(1)).executes(ctx -> {
+                                            final var caller = ctx.getSource().getPlayerOrException();
+                                            final var target = ctx.getArgument("player", EntitySelector.class).findSinglePlayer(ctx.getSource());
+                                            final var radius = IntegerArgumentType.getInteger(ctx, "radius");
+                                            final var waystones = WaystoneManagerImpl.get(caller.getServer())
+                                                    .getWaystonesWithinDistance(caller.level().dimension(), caller.blockPosition(), radius,
+                                                            it -> PlayerWaystoneManager.isWaystoneActivated(target, it));
+                                            ctx.getSource().sendSystemMessage(Component.translatable("commands.waystones.list.near.header", target.getScoreboardName(), radius));
+                                            for (var waystone : waystones) {
+                                                ctx.getSource().sendSystemMessage(componentForWaystoneList(caller, target, waystone));
+                                            }
+                                            final var result = Component.translatable("commands.waystones.list.near.footer", waystones.size());
+                                            ctx.getSource().sendSuccess(() -> result, false);
+                                            return waystones.size();
+                                        })))))
                 .then(Commands.literal("gui")
                         .then(argument("player", EntityArgument.player()).executes(new OpenPlayerWaystonesGuiCommand())))
+                .then(Commands.literal("queue").executes(context -> {
+                    final var queuedPlayers = WaystoneTeleportQueue.getQueuedPlayerTeleports();
+                    final var queuedEntities = WaystoneTeleportQueue.getQueuedEntityTeleports();
+                    context.getSource().sendSuccess(() -> Component.translatable("commands.waystones.queue", queuedPlayers, queuedEntities), false);
+                    return queuedPlayers + queuedEntities;
+                }))
         ));
     }
 
@@ -10,8 +10,11 @@ import net.blay09.mods.waystones.api.Waystone;
 import net.blay09.mods.waystones.comparator.WaystoneComparators;
 import net.blay09.mods.waystones.core.PlayerWaystoneManager;
 import net.blay09.mods.waystones.core.WaystoneImpl;
+import net.blay09.mods.waystones.core.WaystoneListStreamer;
+import net.blay09.mods.waystones.core.WaystoneTargetSource;
 import net.blay09.mods.waystones.menu.ModMenus;
 import net.blay09.mods.waystones.menu.WaystoneSelectionMenu;
+import net.blay09.mods.waystones.menu.WaystoneSelectionQuery;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.arguments.selector.EntitySelector;
 import net.minecraft.network.FriendlyByteBuf;
@@ -32,7 +35,10 @@ public class OpenPlayerWaystonesGuiCommand implements Command<CommandSourceStack
     public int run(CommandContext<CommandSourceStack> ctx) throws CommandSyntaxException {
         ServerPlayer target = ctx.getArgument("player", EntitySelector.class).findSinglePlayer(ctx.getSource());
         ServerPlayer op = ctx.getSource().getPlayerOrException();
-        final var waystones = PlayerWaystoneManager.getActivatedWaystones(target).stream().sorted(WaystoneComparators.forAdminInspection(op, target)).toList();
+        final var activatedWaystones = PlayerWaystoneManager.getActivatedWaystones(target);
+        final var queryMode = WaystoneSelectionMenu.shouldUseQueryMode(activatedWaystones);
+        // In query mode the target source sorts on demand, so only the eagerly sent list needs sorting here
+        final var waystones = queryMode ? List.<Waystone>of() : activatedWaystones.stream().sorted(WaystoneComparators.forAdminInspection(op, target)).toList();
         final var menuProvider = new BalmMenuProvider<Collection<Waystone>>() {
             @Override
             public Component getDisplayName() {
@@ -41,12 +47,20 @@ public class OpenPlayerWaystonesGuiCommand implements Command<CommandSourceStack
 
             @Override
             public AbstractContainerMenu createMenu(int windowId, Inventory playerInventory, Player playerEntity) {
+                if (queryMode) {
+                    final var targetSource = WaystoneTargetSource.of(
+                            () -> PlayerWaystoneManager.getActivatedWaystones(target).stream().sorted(WaystoneComparators.forAdminInspection(op, target)).toList(),
+                            () -> PlayerWaystoneManager.getTargetsRevision(target),
+                            waystone -> PlayerWaystoneManager.isWaystoneActivated(target, waystone));
+                    return new WaystoneSelectionMenu(ModMenus.adminSelection.get(), null, windowId, op, targetSource, WaystoneSelectionQuery.SortKey.SOURCE, Set.of(TeleportFlags.ADMIN));
+                }
+
                 return new WaystoneSelectionMenu(ModMenus.adminSelection.get(), null, windowId, waystones, Set.of(TeleportFlags.ADMIN));
             }
 
             @Override
             public Collection<Waystone> getScreenOpeningData(ServerPlayer serverPlayer) {
-                return waystones;
+                return queryMode ? List.of() : WaystoneListStreamer.beginMenuStream(serverPlayer, waystones);
             }
 
             @Override
@@ -1,6 +1,7 @@
 package net.blay09.mods.waystones.comparator;
 
 import net.blay09.mods.waystones.api.Waystone;
+import net.blay09.mods.waystones.core.WaystoneSortingIndex;
 
 import java.util.Comparator;
 import java.util.List;
@@ -8,16 +9,20 @@ import java.util.UUID;
 
 public class UserSortingComparator implements Comparator<Waystone> {
 
-    private final List<UUID> sortingIndex;
+    private final WaystoneSortingIndex sortingIndex;
 
-    public UserSortingComparator(List<UUID> sortingIndex) {
+    public UserSortingComparator(WaystoneSortingIndex sortingIndex) {
         this.sortingIndex = sortingIndex;
     }
 
+    public UserSortingComparator(List<UUID> sortingIndex) {
+        this(WaystoneSortingIndex.of(sortingIndex));
+    }
+
     @Override
     public int compare(Waystone o1, Waystone o2) {
-        final var index1 = sortingIndex.indexOf(o1.getWaystoneUid());
-        final var index2 = sortingIndex.indexOf(o2.getWaystoneUid());
+        final var index1 = sortingIndex.getRank(o1.getWaystoneUid());
+        final var index2 = sortingIndex.getRank(o2.getWaystoneUid());
         if (index1 == -1 && index2 == -1) {
             return 0;
         } else if (index1 == -1) {
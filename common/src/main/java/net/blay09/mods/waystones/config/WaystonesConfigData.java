@@ -25,6 +25,11 @@ public class WaystonesConfigData implements BalmConfigData {
         FREQUENT
     }
 
+    public enum ActivationStorage {
+        PLAYER_DATA,
+        SHARED_BITMAP
+    }
+
     public General general = new General();
     public Teleports teleports = new Teleports();
     public InventoryButton inventoryButton = new InventoryButton();
@@ -59,6 +64,12 @@ public class WaystonesConfigData implements BalmConfigData {
         @Synced
         @Comment("The time in ticks it takes to use a scroll. This is the charge-up time when holding right-click.")
         public int scrollUseTime = 32;
+
+        @Comment("Where activated waystones are stored. PLAYER_DATA keeps them in each player's data, SHARED_BITMAP keeps them for all players in a single compact world file. Existing data is migrated on login when switching. Takes effect on the next server start.")
+        public ActivationStorage activationStorage = ActivationStorage.PLAYER_DATA;
+
+        @Comment("Admin and sharestone selection menus with more targets than this are searched and paged on the server instead of sending every target to the client. Set to 0 to always send the full list.")
+        public int selectionQueryThreshold = 1000;
     }
 
     public static class Teleports {
@@ -93,6 +104,12 @@ public class WaystonesConfigData implements BalmConfigData {
         @Comment("List of entities that cannot be teleported, either as pet, leashed, or on warp plates.")
         @ExpectedType(ResourceLocation.class)
         public Set<ResourceLocation> entityDenyList = Set.of(ResourceLocation.withDefaultNamespace("wither"));
+
+        @Comment("Maximum number of teleports carried out per server tick. Further teleports are queued for the following ticks, players before other entities. Set to 0 for no limit.")
+        public int maxTeleportsPerTick = 20;
+
+        @Comment("Maximum time in milliseconds spent on teleports per server tick before further teleports are queued for the following ticks. Set to 0 for no limit.")
+        public int teleportTimeBudgetMillis = 10;
     }
 
     public static class InventoryButton {
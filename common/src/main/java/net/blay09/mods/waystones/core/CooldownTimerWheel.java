@@ -0,0 +1,115 @@
+package net.blay09.mods.waystones.core;
+
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timer wheel for cooldown expiry. Scheduling and advancing are constant time per entry; entries far in the future sit in a coarse
+ * level and are moved into finer levels as their time approaches, so the server never has to scan every player's cooldowns.
+ */
+public class CooldownTimerWheel {
+
+    public record Entry(UUID playerUid, ResourceLocation key, long expiresAt) {
+    }
+
+    private static final long TICK_MILLIS = 50;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final List<List<Entry>> slots = new ArrayList<>(LEVELS * SLOTS);
+    private long currentTick = -1;
+    private int size;
+
+    public CooldownTimerWheel() {
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    public void schedule(Entry entry) {
+        if (currentTick < 0) {
+            currentTick = System.currentTimeMillis() / TICK_MILLIS;
+        }
+        place(entry, currentTick + 1);
+        size++;
+    }
+
+    /**
+     * Fires every entry whose expiry lies at or before the given time, in no particular order.
+     */
+    public void advance(long now, Consumer<Entry> expired) {
+        if (size == 0) {
+            currentTick = now / TICK_MILLIS;
+            return;
+        }
+
+        final var targetTick = now / TICK_MILLIS;
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level);
+                }
+            }
+
+            final var slot = slots.get(slotIndex(0, currentTick));
+            if (!slot.isEmpty()) {
+                final var entries = List.copyOf(slot);
+                slot.clear();
+                for (final var entry : entries) {
+                    if (tickOf(entry) <= currentTick) {
+                        size--;
+                        expired.accept(entry);
+                    } else {
+                        place(entry, currentTick + 1);
+                    }
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        slots.forEach(List::clear);
+        size = 0;
+    }
+
+    private void cascade(int level) {
+        final var slot = slots.get(slotIndex(level, currentTick));
+        if (!slot.isEmpty()) {
+            final var entries = List.copyOf(slot);
+            slot.clear();
+            // The finest slot for the current tick is fired right after cascading, so entries may still land in it
+            for (final var entry : entries) {
+                place(entry, currentTick);
+            }
+        }
+    }
+
+    private void place(Entry entry, long earliestTick) {
+        // Already due entries go into the next slot to be fired
+        final var tick = Math.max(tickOf(entry), earliestTick);
+        final var delta = tick - currentTick;
+        for (int level = 0; level < LEVELS - 1; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                slots.get(slotIndex(level, tick)).add(entry);
+                return;
+            }
+        }
+        // Anything beyond the top level's range is simply revisited each time its slot comes around
+        slots.get(slotIndex(LEVELS - 1, tick)).add(entry);
+    }
+
+    private static long tickOf(Entry entry) {
+        return (entry.expiresAt() + TICK_MILLIS - 1) / TICK_MILLIS;
+    }
+
+    private static int slotIndex(int level, long tick) {
+        return level * SLOTS + (int) ((tick >> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+}
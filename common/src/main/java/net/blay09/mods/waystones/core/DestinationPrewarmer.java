@@ -0,0 +1,47 @@
+package net.blay09.mods.waystones.core;
+
+import net.blay09.mods.waystones.api.Waystone;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.TicketType;
+import net.minecraft.world.level.ChunkPos;
+
+import java.util.Comparator;
+
+/**
+ * Requests the chunks around a teleport destination while a warp is still charging up, so that they are loaded by the time the teleport happens
+ * instead of being loaded synchronously on that tick.
+ */
+public class DestinationPrewarmer {
+
+    // Charge-ups longer than this keep the ticket alive by refreshing it every REFRESH_INTERVAL ticks
+    private static final int TICKET_LIFESPAN = 100;
+    public static final int REFRESH_INTERVAL = 40;
+
+    private static final TicketType<ChunkPos> PREWARM = TicketType.create("waystones_prewarm", Comparator.comparingLong(ChunkPos::toLong), TICKET_LIFESPAN);
+
+    /**
+     * Adds a short-lived ticket for the destination chunk. The chunk is then loaded by the chunk system in the background; calling this again
+     * before the ticket runs out keeps it alive.
+     */
+    public static void prewarm(MinecraftServer server, Waystone waystone) {
+        final var level = server.getLevel(waystone.getDimension());
+        if (level != null) {
+            final var chunkPos = new ChunkPos(waystone.getPos());
+            level.getChunkSource().addRegionTicket(PREWARM, chunkPos, 1, chunkPos);
+        }
+    }
+
+    /**
+     * Whether the destination chunk is already loaded. If not, teleporting anyway still works but loads it synchronously.
+     */
+    public static boolean isReady(MinecraftServer server, Waystone waystone) {
+        final var level = server.getLevel(waystone.getDimension());
+        return level == null || isLoaded(level, waystone.getPos());
+    }
+
+    private static boolean isLoaded(ServerLevel level, BlockPos pos) {
+        return level.getChunkSource().hasChunk(pos.getX() >> 4, pos.getZ() >> 4);
+    }
+}
@@ -15,14 +15,28 @@ public interface IPlayerWaystoneData {
     void deactivateWaystone(Player player, Waystone waystone);
     long getCooldownUntil(Player player, ResourceLocation key);
     void setCooldownUntil(Player player, ResourceLocation key, long timeStamp);
+
+    default boolean isOnCooldown(Player player, ResourceLocation key) {
+        return getCooldownUntil(player, key) > System.currentTimeMillis();
+    }
+
     List<UUID> getSortingIndex(Player player);
-    List<UUID> ensureSortingIndex(Player player, Collection<Waystone> waystones);
+    WaystoneSortingIndex getWaystoneSortingIndex(Player player);
+    void ensureSortingIndex(Player player, Collection<Waystone> waystones);
     void setSortingIndex(Player player, List<UUID> sortingIndex);
     Collection<Waystone> getWaystones(Player player);
     void sortWaystoneAsFirst(Player player, UUID waystoneUid);
     void sortWaystoneAsLast(Player player, UUID waystoneUid);
     void sortWaystoneSwap(Player player, UUID waystoneUid, UUID otherWaystoneUid);
 
+    default int getActivatedCount(Player player) {
+        return getWaystones(player).size();
+    }
+
+    default long getTargetsRevision(Player player) {
+        return 0;
+    }
+
     Map<ResourceLocation, Long> getCooldowns(Player player);
 
     void resetCooldowns(Player player);
@@ -7,9 +7,11 @@ import net.minecraft.world.entity.player.Player;
 import java.util.*;
 
 public class InMemoryPlayerWaystoneData implements IPlayerWaystoneData {
-    private final List<UUID> sortingIndex = new ArrayList<>();
+    private final WaystoneSortingIndex sortingIndex = new WaystoneSortingIndex();
     private final Map<UUID, Waystone> waystones = new HashMap<>();
     private final Map<ResourceLocation, Long> cooldowns = new HashMap<>();
+    private int knownWaystonesVersion;
+    private boolean resyncRequested;
 
     @Override
     public void activateWaystone(Player player, Waystone waystone) {
@@ -45,7 +47,17 @@ public class InMemoryPlayerWaystoneData implements IPlayerWaystoneData {
 
     @Override
     public void setCooldownUntil(Player player, ResourceLocation key, long timeStamp) {
-        cooldowns.put(key, timeStamp);
+        if (timeStamp > 0) {
+            cooldowns.put(key, timeStamp);
+        } else {
+            cooldowns.remove(key);
+        }
+    }
+
+    @Override
+    public boolean isOnCooldown(Player player, ResourceLocation key) {
+        // The server tells us when a cooldown expires, so there is no need to compare against the clock
+        return cooldowns.containsKey(key);
     }
 
     @Override
@@ -55,48 +67,39 @@ public class InMemoryPlayerWaystoneData implements IPlayerWaystoneData {
 
     @Override
     public void sortWaystoneAsFirst(Player player, UUID waystoneUid) {
-        sortingIndex.remove(waystoneUid);
-        sortingIndex.add(0, waystoneUid);
+        sortingIndex.moveToFirst(waystoneUid);
     }
 
     @Override
     public void sortWaystoneAsLast(Player player, UUID waystoneUid) {
-        sortingIndex.remove(waystoneUid);
-        sortingIndex.add(waystoneUid);
+        sortingIndex.moveToLast(waystoneUid);
     }
 
     @Override
     public void sortWaystoneSwap(Player player, UUID waystoneUid, UUID otherWaystoneUid) {
-        final var waystoneIndex = sortingIndex.indexOf(waystoneUid);
-        final var otherWaystoneIndex = sortingIndex.indexOf(otherWaystoneUid);
-        if (waystoneIndex != -1 && otherWaystoneIndex != -1) {
-            Collections.swap(sortingIndex, waystoneIndex, otherWaystoneIndex);
-        }
+        sortingIndex.swap(waystoneUid, otherWaystoneUid);
     }
 
     @Override
     public List<UUID> getSortingIndex(Player player) {
-        return sortingIndex;
+        return sortingIndex.toList();
     }
 
     @Override
-    public List<UUID> ensureSortingIndex(Player player, Collection<Waystone> waystones) {
-        final var existing = new HashSet<>(sortingIndex);
+    public WaystoneSortingIndex getWaystoneSortingIndex(Player player) {
+        return sortingIndex;
+    }
 
+    @Override
+    public void ensureSortingIndex(Player player, Collection<Waystone> waystones) {
         for (final var waystone : waystones) {
-            final var waystoneUid = waystone.getWaystoneUid();
-            if (!existing.contains(waystoneUid)) {
-                sortingIndex.add(waystoneUid);
-            }
+            sortingIndex.add(waystone.getWaystoneUid());
         }
-
-        return sortingIndex;
     }
 
     @Override
     public void setSortingIndex(Player player, List<UUID> sortingIndex) {
-        this.sortingIndex.clear();
-        this.sortingIndex.addAll(sortingIndex);
+        this.sortingIndex.setAll(sortingIndex);
     }
 
     public void setWaystones(Collection<Waystone> waystones) {
@@ -105,4 +108,34 @@ public class InMemoryPlayerWaystoneData implements IPlayerWaystoneData {
             this.waystones.put(waystone.getWaystoneUid(), waystone);
         }
     }
+
+    public void applyWaystonesDelta(Collection<Waystone> changed, Collection<UUID> removed) {
+        for (final var waystone : changed) {
+            waystones.put(waystone.getWaystoneUid(), waystone);
+        }
+        for (final var waystoneUid : removed) {
+            waystones.remove(waystoneUid);
+        }
+    }
+
+    public int getKnownWaystonesVersion() {
+        return knownWaystonesVersion;
+    }
+
+    public void setKnownWaystonesVersion(int knownWaystonesVersion) {
+        this.knownWaystonesVersion = knownWaystonesVersion;
+        resyncRequested = false;
+    }
+
+    /**
+     * @return true if no resync is pending yet, i.e. one should be requested now
+     */
+    public boolean requestResync() {
+        if (resyncRequested) {
+            return false;
+        }
+
+        resyncRequested = true;
+        return true;
+    }
 }
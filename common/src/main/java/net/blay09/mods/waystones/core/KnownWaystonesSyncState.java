@@ -0,0 +1,94 @@
+package net.blay09.mods.waystones.core;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.blay09.mods.waystones.api.Waystone;
+
+import java.util.*;
+
+/**
+ * Server-side record of which revision of each known waystone a player's client was last sent, so that later syncs only need to carry the
+ * difference.
+ */
+public class KnownWaystonesSyncState {
+
+    public record Delta(int baseVersion, int version, List<Waystone> changed, List<UUID> removed) {
+        public boolean isEmpty() {
+            return changed.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    private final Object2IntMap<UUID> sentRevisions = new Object2IntOpenHashMap<>();
+    private int version;
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int reset(Collection<Waystone> waystones) {
+        sentRevisions.clear();
+        for (final var waystone : waystones) {
+            sentRevisions.put(waystone.getWaystoneUid(), WaystoneImpl.revisionOf(waystone));
+        }
+        return ++version;
+    }
+
+    /**
+     * Like {@link #diff(Collection)}, but only looks at the given entries instead of the player's whole list.
+     */
+    public Delta diffEntries(Collection<Waystone> updated, Collection<UUID> removed) {
+        final var changed = new ArrayList<Waystone>();
+        for (final var waystone : updated) {
+            final var waystoneUid = waystone.getWaystoneUid();
+            final var revision = WaystoneImpl.revisionOf(waystone);
+            if (!sentRevisions.containsKey(waystoneUid) || sentRevisions.getInt(waystoneUid) != revision) {
+                sentRevisions.put(waystoneUid, revision);
+                changed.add(waystone);
+            }
+        }
+
+        final var actuallyRemoved = new ArrayList<UUID>();
+        for (final var waystoneUid : removed) {
+            if (sentRevisions.containsKey(waystoneUid)) {
+                sentRevisions.removeInt(waystoneUid);
+                actuallyRemoved.add(waystoneUid);
+            }
+        }
+
+        return nextDelta(changed, actuallyRemoved);
+    }
+
+    public Delta diff(Collection<Waystone> waystones) {
+        final var changed = new ArrayList<Waystone>();
+        final var current = new HashSet<UUID>(waystones.size());
+        for (final var waystone : waystones) {
+            final var waystoneUid = waystone.getWaystoneUid();
+            current.add(waystoneUid);
+            final var revision = WaystoneImpl.revisionOf(waystone);
+            if (!sentRevisions.containsKey(waystoneUid) || sentRevisions.getInt(waystoneUid) != revision) {
+                sentRevisions.put(waystoneUid, revision);
+                changed.add(waystone);
+            }
+        }
+
+        final var removed = new ArrayList<UUID>();
+        for (final var iterator = sentRevisions.keySet().iterator(); iterator.hasNext(); ) {
+            final var waystoneUid = iterator.next();
+            if (!current.contains(waystoneUid)) {
+                iterator.remove();
+                removed.add(waystoneUid);
+            }
+        }
+
+        return nextDelta(changed, removed);
+    }
+
+    private Delta nextDelta(List<Waystone> changed, List<UUID> removed) {
+        if (changed.isEmpty() && removed.isEmpty()) {
+            return new Delta(version, version, changed, removed);
+        }
+
+        final var baseVersion = version;
+        return new Delta(baseVersion, ++version, changed, removed);
+    }
+}
@@ -0,0 +1,35 @@
+package net.blay09.mods.waystones.core;
+
+import net.blay09.mods.waystones.api.Waystone;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Payloads for the player hosting an integrated server travel over an in-memory connection that passes them along as objects, so the waystones in
+ * them reach the client thread as they are. This swaps the server's live instances for immutable snapshots in that case, which the client can
+ * then store directly. Payloads for remote players are left alone since they are encoded anyway.
+ */
+public class LocalWaystoneChannel {
+
+    public static boolean isLocal(ServerPlayer player) {
+        return player.server.isSingleplayerOwner(player.getGameProfile());
+    }
+
+    public static Waystone prepare(ServerPlayer player, Waystone waystone) {
+        return isLocal(player) ? WaystoneImpl.snapshotOf(waystone) : waystone;
+    }
+
+    public static Collection<Waystone> prepare(ServerPlayer player, Collection<Waystone> waystones) {
+        if (!isLocal(player)) {
+            return waystones;
+        }
+
+        final var snapshots = new ArrayList<Waystone>(waystones.size());
+        for (final var waystone : waystones) {
+            snapshots.add(WaystoneImpl.snapshotOf(waystone));
+        }
+        return snapshots;
+    }
+}
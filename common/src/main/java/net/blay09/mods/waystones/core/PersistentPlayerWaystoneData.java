@@ -1,185 +1,372 @@
 
 package net.blay09.mods.waystones.core;
 
+import it.unimi.dsi.fastutil.objects.Object2LongMaps;
 import net.blay09.mods.balm.api.Balm;
+import net.blay09.mods.waystones.Waystones;
 import net.blay09.mods.waystones.api.Waystone;
+import net.blay09.mods.waystones.api.WaystoneTypes;
+import net.blay09.mods.waystones.api.WaystoneVisibility;
+import net.blay09.mods.waystones.config.WaystonesConfig;
+import net.blay09.mods.waystones.config.WaystonesConfigData;
 import net.minecraft.nbt.*;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.world.entity.player.Player;
 
+import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class PersistentPlayerWaystoneData implements IPlayerWaystoneData {
     private static final String TAG_NAME = "WaystonesData";
     private static final String ACTIVATED_WAYSTONES = "Waystones";
     private static final String SORTING_INDEX = "SortingIndex";
     private static final String COOLDOWNS = "Cooldowns";
+    private static final String HIDDEN_WAYSTONES = "HiddenWaystones";
+
+    private final Map<UUID, PlayerWaystoneState> playerStates = new HashMap<>();
+    private final Map<UUID, WeakReference<Player>> stateOwners = new HashMap<>();
+    private final Map<UUID, Set<UUID>> playersByWaystone = new HashMap<>();
+    private final CooldownTimerWheel cooldownExpiries = new CooldownTimerWheel();
+    private final Set<UUID> pendingLegacyRemovals = new HashSet<>();
+    private WaystonesConfigData.ActivationStorage activationStorage;
 
     @Override
     public void activateWaystone(Player player, Waystone waystone) {
-        ListTag activatedWaystonesData = getActivatedWaystonesData(getWaystonesData(player));
-        activatedWaystonesData.add(StringTag.valueOf(waystone.getWaystoneUid().toString()));
+        final var handle = WaystoneManagerImpl.get(player.getServer()).getHandle(waystone);
+        final var playerState = getPlayerState(player);
+        playerState.unhide(waystone.getWaystoneUid());
+        playerState.activate(handle);
+        if (handle != WaystoneHandleTable.NO_HANDLE) {
+            playersByWaystone.computeIfAbsent(waystone.getWaystoneUid(), it -> new HashSet<>()).add(player.getUUID());
+        }
+        if (isSharedBitmapStorage()) {
+            SharedWaystoneActivations.get(player.getServer()).activate(player.getUUID(), handle);
+        }
     }
 
     @Override
     public boolean isWaystoneActivated(Player player, Waystone waystone) {
-        ListTag activatedWaystones = getActivatedWaystonesData(getWaystonesData(player));
-        String waystoneUid = waystone.getWaystoneUid().toString();
-        for (Tag activatedWaystone : activatedWaystones) {
-            if (waystoneUid.equals(activatedWaystone.getAsString())) {
-                return true;
-            }
-        }
-
-        return false;
+        final var playerState = getPlayerState(player);
+        return (isImplicitlyKnown(waystone) && !playerState.isHidden(waystone.getWaystoneUid()))
+                || playerState.isActivated(WaystoneManagerImpl.get(player.getServer()).getHandle(waystone));
     }
 
     @Override
     public Collection<Waystone> getWaystones(Player player) {
-        final var activatedWaystonesTag = getActivatedWaystonesData(getWaystonesData(player));
-        final var waystones = new ArrayList<Waystone>();
-        for (final var iterator = activatedWaystonesTag.iterator(); iterator.hasNext(); ) {
-            final var activatedWaystoneTag = iterator.next();
-            final var proxy = new WaystoneProxy(player.getServer(), UUID.fromString(activatedWaystoneTag.getAsString()));
-            if (proxy.isValid()) {
-                waystones.add(proxy);
-            } else {
-                iterator.remove();
+        final var playerState = getPlayerState(player);
+        final var result = playerState.getValidWaystones();
+        for (final var waystone : WaystoneManagerImpl.get(player.getServer()).getGlobalWaystones()) {
+            if (isImplicitlyKnown(waystone) && !playerState.isHidden(waystone.getWaystoneUid()) && !playerState.isActivated(WaystoneImpl.handleOf(waystone))) {
+                result.add(waystone);
             }
         }
+        return result;
+    }
+
+    @Override
+    public int getActivatedCount(Player player) {
+        // Implicitly known global waystones are not counted, which is close enough for deciding how to search through them
+        return getPlayerState(player).getActivatedHandles().size();
+    }
 
-        return waystones;
+    /**
+     * Global waystones are known to every player without being stored in each player's activations, unless the player removed them from their list.
+     */
+    public static boolean isImplicitlyKnown(Waystone waystone) {
+        return waystone.getVisibility() == WaystoneVisibility.GLOBAL && waystone.getWaystoneType().equals(WaystoneTypes.WAYSTONE);
     }
 
     @Override
     public List<UUID> getSortingIndex(Player player) {
-        final var sortingIndex = getSortingIndexData(getWaystonesData(player));
-        return sortingIndex.stream().map(entry -> UUID.fromString(entry.getAsString())).toList();
+        return getPlayerState(player).getSortingIndex().toList();
     }
 
     @Override
-    public void setSortingIndex(Player player, List<UUID> sortingIndex) {
-        final var sortingIndexData = getSortingIndexData(getWaystonesData(player));
-        sortingIndexData.clear();
-        for (final var waystoneUid : sortingIndex) {
-            sortingIndexData.add(StringTag.valueOf(waystoneUid.toString()));
-        }
+    public WaystoneSortingIndex getWaystoneSortingIndex(Player player) {
+        return getPlayerState(player).getSortingIndex();
     }
 
     @Override
-    public List<UUID> ensureSortingIndex(Player player, Collection<Waystone> waystones) {
-        final var sortingIndexData = getSortingIndexData(getWaystonesData(player));
-        final var sortingIndex = new ArrayList<UUID>();
-        final var existing = new HashSet<UUID>();
-        for (final var sortingIndexEntry : sortingIndexData) {
-            final var waystoneUid = UUID.fromString(sortingIndexEntry.getAsString());
-            if (existing.add(waystoneUid)) {
-                sortingIndex.add(waystoneUid);
-            }
-        }
+    public void setSortingIndex(Player player, List<UUID> sortingIndex) {
+        final var playerState = getPlayerState(player);
+        playerState.getSortingIndex().setAll(sortingIndex);
+        playerState.markDirty();
+    }
 
+    @Override
+    public void ensureSortingIndex(Player player, Collection<Waystone> waystones) {
+        final var playerState = getPlayerState(player);
         for (final var waystone : waystones) {
-            final var waystoneUid = waystone.getWaystoneUid();
-            if (!existing.contains(waystoneUid)) {
-                sortingIndex.add(waystoneUid);
-                sortingIndexData.add(StringTag.valueOf(waystoneUid.toString()));
+            if (playerState.getSortingIndex().add(waystone.getWaystoneUid())) {
+                playerState.markDirty();
             }
         }
-
-        return sortingIndex;
     }
 
     @Override
     public void sortWaystoneAsFirst(Player player, UUID waystoneUid) {
-        final var sortingIndex = getSortingIndexData(getWaystonesData(player));
-        for (int i = 0; i < sortingIndex.size(); i++) {
-            final var sortingIndexEntry = sortingIndex.get(i);
-            if (waystoneUid.toString().equals(sortingIndexEntry.getAsString())) {
-                sortingIndex.remove(i);
-                sortingIndex.add(0, sortingIndexEntry);
-                break;
-            }
+        final var playerState = getPlayerState(player);
+        if (playerState.getSortingIndex().moveToFirst(waystoneUid)) {
+            playerState.markDirty();
         }
     }
 
     @Override
     public void sortWaystoneAsLast(Player player, UUID waystoneUid) {
-        final var sortingIndex = getSortingIndexData(getWaystonesData(player));
-        for (int i = 0; i < sortingIndex.size(); i++) {
-            final var sortingIndexEntry = sortingIndex.get(i);
-            if (waystoneUid.toString().equals(sortingIndexEntry.getAsString())) {
-                sortingIndex.remove(i);
-                sortingIndex.add(sortingIndexEntry);
-                break;
-            }
+        final var playerState = getPlayerState(player);
+        if (playerState.getSortingIndex().moveToLast(waystoneUid)) {
+            playerState.markDirty();
         }
     }
 
     @Override
     public void sortWaystoneSwap(Player player, UUID waystoneUid, UUID otherWaystoneUid) {
-        final var sortingIndex = getSortingIndexData(getWaystonesData(player));
-        int waystoneIndex = -1;
-        int otherWaystoneIndex = -1;
-        for (int i = 0; i < sortingIndex.size(); i++) {
-            final var sortingIndexEntry = sortingIndex.get(i);
-            if (waystoneUid.toString().equals(sortingIndexEntry.getAsString())) {
-                waystoneIndex = i;
-            } else if (otherWaystoneUid.toString().equals(sortingIndexEntry.getAsString())) {
-                otherWaystoneIndex = i;
-            }
+        final var playerState = getPlayerState(player);
+        if (playerState.getSortingIndex().swap(waystoneUid, otherWaystoneUid)) {
+            playerState.markDirty();
         }
+    }
 
-        if (waystoneIndex != -1 && otherWaystoneIndex != -1) {
-            Collections.swap(sortingIndex, waystoneIndex, otherWaystoneIndex);
-        }
+    @Override
+    public long getTargetsRevision(Player player) {
+        return getPlayerState(player).getTargetsRevision();
     }
 
     @Override
     public void deactivateWaystone(Player player, Waystone waystone) {
-        CompoundTag data = getWaystonesData(player);
-        ListTag activatedWaystones = getActivatedWaystonesData(data);
-        String waystoneUid = waystone.getWaystoneUid().toString();
-        for (int i = activatedWaystones.size() - 1; i >= 0; i--) {
-            Tag activatedWaystone = activatedWaystones.get(i);
-            if (waystoneUid.equals(activatedWaystone.getAsString())) {
-                activatedWaystones.remove(i);
-                break;
+        var handle = WaystoneManagerImpl.get(player.getServer()).getHandle(waystone);
+        if (handle == WaystoneHandleTable.NO_HANDLE) {
+            // The waystone may have been removed from the manager already, but its last handle is still what the player state holds
+            handle = WaystoneImpl.handleOf(waystone);
+        }
+        final var playerState = getPlayerState(player);
+        playerState.deactivate(handle);
+        if (isImplicitlyKnown(waystone)) {
+            playerState.hide(waystone.getWaystoneUid());
+        }
+        unindexPlayer(waystone.getWaystoneUid(), player.getUUID());
+        if (isSharedBitmapStorage()) {
+            SharedWaystoneActivations.get(player.getServer()).deactivate(player.getUUID(), handle);
+        }
+    }
+
+    /**
+     * Drops an activation whose waystone can no longer be looked up, e.g. because it was removed since the player's client last heard of it.
+     */
+    public void deactivateHandle(Player player, int handle) {
+        getPlayerState(player).deactivate(handle);
+        if (isSharedBitmapStorage()) {
+            SharedWaystoneActivations.get(player.getServer()).deactivate(player.getUUID(), handle);
+        }
+    }
+
+    /**
+     * Called before a waystone stops being global, so that a player who saw it only because it was global keeps it as a regular activation.
+     * Players who had removed it from their list just lose the hidden mark.
+     */
+    public void retainImplicitActivation(Player player, Waystone waystone) {
+        if (!getPlayerState(player).unhide(waystone.getWaystoneUid())) {
+            activateWaystone(player, waystone);
+        }
+    }
+
+    public void flushDirty(MinecraftServer server) {
+        if (!pendingLegacyRemovals.isEmpty()) {
+            removeMigratedLegacyActivations(server);
+        }
+
+        for (final var iterator = playerStates.entrySet().iterator(); iterator.hasNext(); ) {
+            final var entry = iterator.next();
+            final var playerState = entry.getValue();
+            if (!playerState.isDirty()) {
+                continue;
             }
+
+            final var player = server.getPlayerList().getPlayer(entry.getKey());
+            if (player != null) {
+                writePlayerState(player, playerState);
+                continue;
+            }
+
+            // Fake players never log out, so their state is written through the entity it was loaded from and then let go of
+            final var owner = stateOwners.remove(entry.getKey());
+            final var ownerPlayer = owner != null ? owner.get() : null;
+            if (ownerPlayer != null) {
+                writePlayerState(ownerPlayer, playerState);
+            } else {
+                Waystones.logger.warn("Dropping unsaved waystone data of {} as the player it was loaded for is gone", entry.getKey());
+            }
+            forEachActivatedWaystoneUid(server, playerState, waystoneUid -> unindexPlayer(waystoneUid, entry.getKey()));
+            iterator.remove();
         }
     }
 
-    @Override
-    public Map<ResourceLocation, Long> getCooldowns(Player player) {
+    private void removeMigratedLegacyActivations(MinecraftServer server) {
+        final var sharedActivations = SharedWaystoneActivations.get(server);
+        for (final var iterator = pendingLegacyRemovals.iterator(); iterator.hasNext(); ) {
+            final var playerUid = iterator.next();
+            if (sharedActivations.hasUnsavedImport(playerUid)) {
+                continue;
+            }
+
+            final var player = server.getPlayerList().getPlayer(playerUid);
+            if (player != null) {
+                getWaystonesData(player).remove(ACTIVATED_WAYSTONES);
+            }
+            iterator.remove();
+        }
+    }
+
+    public void unload(Player player) {
+        final var playerState = playerStates.remove(player.getUUID());
+        stateOwners.remove(player.getUUID());
+        if (playerState != null) {
+            if (playerState.isDirty()) {
+                writePlayerState(player, playerState);
+            }
+            forEachActivatedWaystoneUid(player.getServer(), playerState, waystoneUid -> unindexPlayer(waystoneUid, player.getUUID()));
+        }
+    }
+
+    public void clear() {
+        activationStorage = null;
+        playerStates.clear();
+        stateOwners.clear();
+        pendingLegacyRemovals.clear();
+        playersByWaystone.clear();
+        cooldownExpiries.clear();
+    }
+
+    /**
+     * Drops cooldowns that ran out and tells their players' clients about it.
+     */
+    public void expireCooldowns(MinecraftServer server) {
+        cooldownExpiries.advance(System.currentTimeMillis(), entry -> {
+            // Players that logged out in the meantime are skipped; their expired cooldowns are dropped on the next load instead
+            final var playerState = playerStates.get(entry.playerUid());
+            if (playerState != null && playerState.expireCooldown(entry.key(), entry.expiresAt())) {
+                final var player = server.getPlayerList().getPlayer(entry.playerUid());
+                if (player != null) {
+                    WaystoneSyncManager.sendCooldownUpdate(player, entry.key());
+                }
+            }
+        });
+    }
+
+    /**
+     * Online players whose loaded state has the given waystone activated.
+     */
+    public Set<UUID> getPlayersWhoActivated(UUID waystoneUid) {
+        final var players = playersByWaystone.get(waystoneUid);
+        return players != null ? Collections.unmodifiableSet(players) : Set.of();
+    }
+
+    public void forgetWaystone(UUID waystoneUid) {
+        playersByWaystone.remove(waystoneUid);
+    }
+
+    private void unindexPlayer(UUID waystoneUid, UUID playerUid) {
+        final var players = playersByWaystone.get(waystoneUid);
+        if (players != null && players.remove(playerUid) && players.isEmpty()) {
+            playersByWaystone.remove(waystoneUid);
+        }
+    }
+
+    private PlayerWaystoneState getPlayerState(Player player) {
+        var playerState = playerStates.get(player.getUUID());
+        if (playerState == null) {
+            playerState = loadPlayerState(player);
+            playerState.loadCooldowns(getWaystonesData(player).getCompound(COOLDOWNS), System.currentTimeMillis());
+            playerState.loadHiddenWaystones(getWaystonesData(player).getList(HIDDEN_WAYSTONES, Tag.TAG_STRING));
+            for (final var entry : Object2LongMaps.fastIterable(playerState.getCooldowns())) {
+                cooldownExpiries.schedule(new CooldownTimerWheel.Entry(player.getUUID(), entry.getKey(), entry.getLongValue()));
+            }
+            playerStates.put(player.getUUID(), playerState);
+            stateOwners.put(player.getUUID(), new WeakReference<>(player));
+            forEachActivatedWaystoneUid(player.getServer(), playerState, waystoneUid -> playersByWaystone.computeIfAbsent(waystoneUid, it -> new HashSet<>()).add(player.getUUID()));
+        }
+        return playerState;
+    }
+
+    private static void forEachActivatedWaystoneUid(MinecraftServer server, PlayerWaystoneState playerState, Consumer<UUID> consumer) {
+        final var waystoneManager = WaystoneManagerImpl.get(server);
+        for (final var iterator = playerState.getActivatedHandles().iterator(); iterator.hasNext(); ) {
+            final var waystoneUid = waystoneManager.getWaystoneUid(iterator.nextInt());
+            if (waystoneUid != null) {
+                consumer.accept(waystoneUid);
+            }
+        }
+    }
+
+    private PlayerWaystoneState loadPlayerState(Player player) {
+        final var waystoneManager = WaystoneManagerImpl.get(player.getServer());
+        final var sharedActivations = SharedWaystoneActivations.get(player.getServer());
+        final var waystonesData = getWaystonesData(player);
+        final var sortingIndexData = waystonesData.contains(SORTING_INDEX) ? waystonesData.getList(SORTING_INDEX, Tag.TAG_STRING) : null;
+        if (isSharedBitmapStorage()) {
+            if (!sharedActivations.hasPlayer(player.getUUID())) {
+                final var legacyState = PlayerWaystoneState.load(waystoneManager, getActivatedWaystonesData(waystonesData), sortingIndexData);
+                sharedActivations.importPlayer(player.getUUID(), legacyState.getActivatedHandles());
+            }
+            if (waystonesData.contains(ACTIVATED_WAYSTONES)) {
+                // Only drop the legacy list once the shared activations have been saved, or a crash before then would lose the player's activations
+                pendingLegacyRemovals.add(player.getUUID());
+            }
+            return PlayerWaystoneState.load(waystoneManager, sharedActivations.getActivatedHandles(player.getUUID(), waystoneManager), sortingIndexData);
+        }
+
+        if (sharedActivations.hasPlayer(player.getUUID())) {
+            // Storage was switched back from the shared bitmap, so move the player's activations back into their own data
+            final var playerState = PlayerWaystoneState.load(waystoneManager, sharedActivations.getActivatedHandles(player.getUUID(), waystoneManager), sortingIndexData);
+            playerState.markDirty();
+            sharedActivations.removePlayer(player.getUUID());
+            return playerState;
+        }
+
+        return PlayerWaystoneState.load(waystoneManager, getActivatedWaystonesData(waystonesData), sortingIndexData);
+    }
+
+    private void writePlayerState(Player player, PlayerWaystoneState playerState) {
         final var waystonesData = getWaystonesData(player);
-        final var cooldowns = waystonesData.getCompound(COOLDOWNS);
-        final var cooldownMap = new HashMap<ResourceLocation, Long>();
-        for (final var key : cooldowns.getAllKeys()) {
-            cooldownMap.put(ResourceLocation.parse(key), cooldowns.getLong(key));
+        final var sortingIndexData = new ListTag();
+        playerState.write(isSharedBitmapStorage() ? null : getActivatedWaystonesData(waystonesData), sortingIndexData);
+        waystonesData.put(SORTING_INDEX, sortingIndexData);
+        waystonesData.put(COOLDOWNS, playerState.writeCooldowns());
+        waystonesData.put(HIDDEN_WAYSTONES, playerState.writeHiddenWaystones());
+    }
+
+    private boolean isSharedBitmapStorage() {
+        // Latched for the whole server session, so that states loaded before a config reload keep being written where they were read from
+        if (activationStorage == null) {
+            activationStorage = WaystonesConfig.getActive().general.activationStorage;
         }
+        return activationStorage == WaystonesConfigData.ActivationStorage.SHARED_BITMAP;
+    }
 
-        return cooldownMap;
+    @Override
+    public Map<ResourceLocation, Long> getCooldowns(Player player) {
+        return new HashMap<>(getPlayerState(player).getCooldowns());
     }
 
     @Override
     public void resetCooldowns(Player player) {
-        final var waystonesData = getWaystonesData(player);
-        waystonesData.put(COOLDOWNS, new CompoundTag());
+        getPlayerState(player).clearCooldowns();
     }
 
     @Override
     public long getCooldownUntil(Player player, ResourceLocation key) {
-        final var waystonesData = getWaystonesData(player);
-        final var cooldowns = waystonesData.getCompound(COOLDOWNS);
-        return cooldowns.getLong(key.toString());
+        return getPlayerState(player).getCooldownUntil(key);
     }
 
     @Override
     public void setCooldownUntil(Player player, ResourceLocation key, long timeStamp) {
-        final var waystonesData = getWaystonesData(player);
-        final var cooldowns = waystonesData.getCompound(COOLDOWNS);
-        cooldowns.putLong(key.toString(), timeStamp);
-        waystonesData.put(COOLDOWNS, cooldowns);
+        getPlayerState(player).setCooldownUntil(key, timeStamp);
+        if (timeStamp > System.currentTimeMillis()) {
+            cooldownExpiries.schedule(new CooldownTimerWheel.Entry(player.getUUID(), key, timeStamp));
+        }
     }
 
     private static ListTag getActivatedWaystonesData(CompoundTag data) {
@@ -188,28 +375,10 @@ public class PersistentPlayerWaystoneData implements IPlayerWaystoneData {
         return list;
     }
 
-    private static ListTag getSortingIndexData(CompoundTag data) {
-        ListTag list = data.contains(SORTING_INDEX) ? data.getList(SORTING_INDEX, Tag.TAG_STRING) : createSortingIndexFromLegacy(data);
-        data.put(SORTING_INDEX, list);
-        return list;
-    }
-
     private static CompoundTag getWaystonesData(Player player) {
         CompoundTag persistedData = Balm.getHooks().getPersistentData(player);
         CompoundTag compound = persistedData.getCompound(TAG_NAME);
         persistedData.put(TAG_NAME, compound);
         return compound;
     }
-
-    private static ListTag createSortingIndexFromLegacy(CompoundTag data) {
-        final var activatedWaystones = getActivatedWaystonesData(data);
-        if (activatedWaystones.isEmpty()) {
-            return new ListTag();
-        }
-
-        final var sortingIndex = new ListTag();
-        sortingIndex.addAll(activatedWaystones);
-        return sortingIndex;
-    }
-
 }
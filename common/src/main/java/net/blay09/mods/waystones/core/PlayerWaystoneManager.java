@@ -23,7 +23,7 @@ import java.util.*;
 
 public class PlayerWaystoneManager {
 
-    private static final IPlayerWaystoneData persistentPlayerWaystoneData = new PersistentPlayerWaystoneData();
+    private static final PersistentPlayerWaystoneData persistentPlayerWaystoneData = new PersistentPlayerWaystoneData();
     private static final IPlayerWaystoneData inMemoryPlayerWaystoneData = new InMemoryPlayerWaystoneData();
 
     public static boolean isWaystoneActivated(Player player, Waystone waystone) {
@@ -42,10 +42,6 @@ public class PlayerWaystoneManager {
             mutableWaystone.setVisibility(WaystonesConfig.getActive().general.defaultVisibility);
         }
 
-        if (player.getServer() != null) {
-            WaystoneManagerImpl.get(player.getServer()).setDirty();
-        }
-
         if (!isWaystoneActivated(player, waystone) && waystone.getWaystoneType().equals(WaystoneTypes.WAYSTONE)) {
             getPlayerWaystoneData(player.level()).activateWaystone(player, waystone);
 
@@ -68,6 +64,17 @@ public class PlayerWaystoneManager {
         getPlayerWaystoneData(player.level()).deactivateWaystone(player, waystone);
     }
 
+    public static void deactivateStaleWaystone(ServerPlayer player, int waystoneHandle) {
+        persistentPlayerWaystoneData.deactivateHandle(player, waystoneHandle);
+    }
+
+    /**
+     * Changes whenever the player's activated waystones or sorting index change, so that lists derived from them can be cached until then.
+     */
+    public static long getTargetsRevision(Player player) {
+        return getPlayerWaystoneData(player.level()).getTargetsRevision(player);
+    }
+
     public static Map<ResourceLocation, Long> getCooldowns(Player player) {
         return getPlayerWaystoneData(player.level()).getCooldowns(player);
     }
@@ -80,6 +87,10 @@ public class PlayerWaystoneManager {
         return getPlayerWaystoneData(player.level()).getCooldownUntil(player, key);
     }
 
+    public static boolean isOnCooldown(Player player, ResourceLocation key) {
+        return getPlayerWaystoneData(player.level()).isOnCooldown(player, key);
+    }
+
     public static long getCooldownMillisLeft(Player player, ResourceLocation key) {
         long cooldownUntil = getCooldownUntil(player, key);
         return Math.max(0, cooldownUntil - System.currentTimeMillis());
@@ -90,13 +101,19 @@ public class PlayerWaystoneManager {
     }
 
     public static Optional<Waystone> getNearestWaystone(Player player) {
-        return getPlayerWaystoneData(player.level()).getWaystones(player).stream()
-                .filter(it -> it.getDimension() == player.level().dimension())
-                .min((first, second) -> {
-                    double firstDist = first.getPos().distToCenterSqr(player.getX(), player.getY(), player.getZ());
-                    double secondDist = second.getPos().distToCenterSqr(player.getX(), player.getY(), player.getZ());
-                    return (int) Math.round(firstDist) - (int) Math.round(secondDist);
-                });
+        final var playerWaystoneData = getPlayerWaystoneData(player.level());
+        final var waystoneManager = WaystoneManagerImpl.get(player.getServer());
+        final var dimension = player.level().dimension();
+        // Nearby cells of the spatial index usually settle it quickly, but if that takes more checks than the player has waystones, scanning those is cheaper
+        final var nearest = waystoneManager.findNearestWaystones(dimension, player.blockPosition(), 1,
+                it -> playerWaystoneData.isWaystoneActivated(player, it), Math.max(playerWaystoneData.getActivatedCount(player), 1));
+        if (nearest.complete()) {
+            return nearest.waystones().stream().findFirst();
+        }
+
+        return playerWaystoneData.getWaystones(player).stream()
+                .filter(it -> it.getDimension() == dimension)
+                .min(Comparator.comparingDouble(it -> it.getPos().distToCenterSqr(player.getX(), player.getY(), player.getZ())));
     }
 
     public static Collection<Waystone> getActivatedWaystones(Player player) {
@@ -111,12 +128,32 @@ public class PlayerWaystoneManager {
         return side.isClient() ? inMemoryPlayerWaystoneData : persistentPlayerWaystoneData;
     }
 
+    public static void savePlayerData(MinecraftServer server) {
+        persistentPlayerWaystoneData.flushDirty(server);
+    }
+
+    public static void unloadPlayerData(Player player) {
+        persistentPlayerWaystoneData.unload(player);
+    }
+
+    public static void expireCooldowns(MinecraftServer server) {
+        persistentPlayerWaystoneData.expireCooldowns(server);
+    }
+
+    public static void clearPlayerData() {
+        persistentPlayerWaystoneData.clear();
+    }
+
     public static List<UUID> getSortingIndex(Player player) {
         return getPlayerWaystoneData(player.level()).getSortingIndex(player);
     }
 
-    public static List<UUID> ensureSortingIndex(Player player, Collection<Waystone> waystones) {
-        return getPlayerWaystoneData(player.level()).ensureSortingIndex(player, waystones);
+    public static WaystoneSortingIndex getWaystoneSortingIndex(Player player) {
+        return getPlayerWaystoneData(player.level()).getWaystoneSortingIndex(player);
+    }
+
+    public static void ensureSortingIndex(Player player, Collection<Waystone> waystones) {
+        getPlayerWaystoneData(player.level()).ensureSortingIndex(player, waystones);
     }
 
     public static void sortWaystoneAsFirst(Player player, UUID waystoneUid) {
@@ -131,29 +168,45 @@ public class PlayerWaystoneManager {
         getPlayerWaystoneData(player.level()).sortWaystoneSwap(player, waystoneUid, otherWaystoneUid);
     }
 
-    public static void activeWaystoneForEveryone(@Nullable MinecraftServer server, Waystone waystone) {
+    public static void removeKnownWaystone(@Nullable MinecraftServer server, Waystone waystone) {
         if (server == null) {
             return;
         }
 
-        List<ServerPlayer> players = server.getPlayerList().getPlayers();
-        for (ServerPlayer player : players) {
-            if (!isWaystoneActivated(player, waystone)) {
-                activateWaystone(player, waystone);
-            }
+        for (ServerPlayer player : getPlayersWhoActivated(server, waystone)) {
+            deactivateWaystone(player, waystone);
+            WaystoneSyncManager.sendKnownWaystoneRemoval(player, waystone);
         }
+        persistentPlayerWaystoneData.forgetWaystone(waystone.getWaystoneUid());
     }
 
-    public static void removeKnownWaystone(@Nullable MinecraftServer server, Waystone waystone) {
-        if (server == null) {
+    /**
+     * Turns the implicit activation of a global waystone into a regular one for every online player, before it stops being global.
+     * Offline players are not covered and lose the waystone unless they activated it themselves.
+     */
+    public static void retainImplicitActivations(@Nullable MinecraftServer server, Waystone waystone) {
+        if (server == null || !PersistentPlayerWaystoneData.isImplicitlyKnown(waystone)) {
             return;
         }
 
-        List<ServerPlayer> players = server.getPlayerList().getPlayers();
-        for (ServerPlayer player : players) {
-            deactivateWaystone(player, waystone);
-            WaystoneSyncManager.sendActivatedWaystones(player);
+        for (ServerPlayer player : server.getPlayerList().getPlayers()) {
+            persistentPlayerWaystoneData.retainImplicitActivation(player, waystone);
+        }
+    }
+
+    public static List<ServerPlayer> getPlayersWhoActivated(MinecraftServer server, Waystone waystone) {
+        if (PersistentPlayerWaystoneData.isImplicitlyKnown(waystone)) {
+            return server.getPlayerList().getPlayers().stream().filter(player -> persistentPlayerWaystoneData.isWaystoneActivated(player, waystone)).toList();
         }
+
+        final var result = new ArrayList<ServerPlayer>();
+        for (UUID playerUid : persistentPlayerWaystoneData.getPlayersWhoActivated(waystone.getWaystoneUid())) {
+            final var player = server.getPlayerList().getPlayer(playerUid);
+            if (player != null) {
+                result.add(player);
+            }
+        }
+        return result;
     }
 
     public static Collection<Waystone> getTargetsForPlayer(Player player) {
@@ -175,6 +228,22 @@ public class PlayerWaystoneManager {
         return result;
     }
 
+    public static WaystoneTargetSource getTargetSourceForWaystone(Player player, Waystone waystone) {
+        final var waystoneType = waystone.getWaystoneType();
+        return WaystoneTargetSource.of(() -> getTargetsForWaystone(player, waystone), () -> getTargetsRevision(player), target -> {
+            final var isTypeTarget = WaystoneTypes.isSharestone(waystoneType)
+                    ? target.getWaystoneType().equals(waystoneType)
+                    : isWaystoneActivated(player, target);
+            if (isTypeTarget) {
+                return true;
+            }
+
+            final var blockEntity = player.level().getBlockEntity(waystone.getPos());
+            return blockEntity instanceof WaystoneBlockEntityBase waystoneBlockEntity
+                    && waystoneBlockEntity.getAuxiliaryTargets().stream().anyMatch(it -> it.getWaystoneUid().equals(target.getWaystoneUid()));
+        });
+    }
+
     public static Collection<Waystone> getTargetsForWaystoneType(Player player, ResourceLocation waystoneType) {
         final var result = new ArrayList<Waystone>();
         if (WaystoneTypes.isSharestone(waystoneType)) {
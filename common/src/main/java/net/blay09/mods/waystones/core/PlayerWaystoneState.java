@@ -0,0 +1,269 @@
+package net.blay09.mods.waystones.core;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterable;
+import it.unimi.dsi.fastutil.ints.IntLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.ints.IntSets;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMaps;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import net.blay09.mods.waystones.api.Waystone;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceLocation;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Typed view of a player's activated waystones, sorting index and cooldowns, loaded once from their persistent data and only written back when
+ * changed. Activations are held as waystone handles; UUIDs only appear when reading from or writing to the player's NBT.
+ */
+public class PlayerWaystoneState {
+
+    private final WaystoneManagerImpl waystoneManager;
+    private final IntLinkedOpenHashSet activatedWaystones = new IntLinkedOpenHashSet();
+    private final WaystoneSortingIndex sortingIndex = new WaystoneSortingIndex();
+    private final Object2LongMap<ResourceLocation> cooldowns = new Object2LongOpenHashMap<>();
+    private final Set<UUID> hiddenWaystones = new HashSet<>();
+    private boolean dirty;
+    private long targetsRevision;
+
+    private PlayerWaystoneState(WaystoneManagerImpl waystoneManager) {
+        this.waystoneManager = waystoneManager;
+    }
+
+    public static PlayerWaystoneState load(WaystoneManagerImpl waystoneManager, ListTag activatedWaystonesTag, @Nullable ListTag sortingIndexTag) {
+        final var activatedHandles = new IntArrayList(activatedWaystonesTag.size());
+        var stale = false;
+        for (final Tag activatedWaystoneTag : activatedWaystonesTag) {
+            final var waystoneUid = parseUUID(activatedWaystoneTag);
+            final var handle = waystoneUid != null ? waystoneManager.getWaystoneById(waystoneUid).map(waystoneManager::getHandle).orElse(WaystoneHandleTable.NO_HANDLE) : WaystoneHandleTable.NO_HANDLE;
+            if (handle != WaystoneHandleTable.NO_HANDLE) {
+                activatedHandles.add(handle);
+            } else {
+                stale = true;
+            }
+        }
+
+        final var state = load(waystoneManager, activatedHandles, sortingIndexTag);
+        state.dirty |= stale;
+        return state;
+    }
+
+    public static PlayerWaystoneState load(WaystoneManagerImpl waystoneManager, IntIterable activatedHandles, @Nullable ListTag sortingIndexTag) {
+        final var state = new PlayerWaystoneState(waystoneManager);
+        for (final var iterator = activatedHandles.iterator(); iterator.hasNext(); ) {
+            state.activatedWaystones.add(iterator.nextInt());
+        }
+
+        if (sortingIndexTag != null) {
+            for (final Tag sortingIndexEntry : sortingIndexTag) {
+                final var waystoneUid = parseUUID(sortingIndexEntry);
+                if (waystoneUid == null || !state.sortingIndex.add(waystoneUid)) {
+                    state.dirty = true;
+                }
+            }
+        } else {
+            for (final var iterator = state.activatedWaystones.iterator(); iterator.hasNext(); ) {
+                final var waystoneUid = waystoneManager.getWaystoneUid(iterator.nextInt());
+                if (waystoneUid != null) {
+                    state.sortingIndex.add(waystoneUid);
+                }
+            }
+            state.dirty = true;
+        }
+        return state;
+    }
+
+    public void write(@Nullable ListTag activatedWaystonesTag, ListTag sortingIndexTag) {
+        if (activatedWaystonesTag != null) {
+            activatedWaystonesTag.clear();
+            for (final var iterator = activatedWaystones.iterator(); iterator.hasNext(); ) {
+                final var waystoneUid = waystoneManager.getWaystoneUid(iterator.nextInt());
+                if (waystoneUid != null) {
+                    activatedWaystonesTag.add(StringTag.valueOf(waystoneUid.toString()));
+                }
+            }
+        }
+        sortingIndexTag.clear();
+        for (final var waystoneUid : sortingIndex.toList()) {
+            sortingIndexTag.add(StringTag.valueOf(waystoneUid.toString()));
+        }
+        dirty = false;
+    }
+
+    /**
+     * Reads the cooldowns that are still running, dropping any that expired while the player was away.
+     */
+    public void loadCooldowns(CompoundTag cooldownsTag, long now) {
+        cooldowns.clear();
+        for (final var key : cooldownsTag.getAllKeys()) {
+            final var cooldownKey = ResourceLocation.tryParse(key);
+            final var expiresAt = cooldownsTag.getLong(key);
+            if (cooldownKey != null && expiresAt > now) {
+                cooldowns.put(cooldownKey, expiresAt);
+            } else {
+                dirty = true;
+            }
+        }
+    }
+
+    public CompoundTag writeCooldowns() {
+        final var cooldownsTag = new CompoundTag();
+        for (final var entry : Object2LongMaps.fastIterable(cooldowns)) {
+            cooldownsTag.putLong(entry.getKey().toString(), entry.getLongValue());
+        }
+        return cooldownsTag;
+    }
+
+    /**
+     * Reads the global waystones the player removed from their list, dropping any that no longer exist.
+     */
+    public void loadHiddenWaystones(ListTag hiddenWaystonesTag) {
+        hiddenWaystones.clear();
+        for (final Tag hiddenWaystoneTag : hiddenWaystonesTag) {
+            final var waystoneUid = parseUUID(hiddenWaystoneTag);
+            if (waystoneUid != null && waystoneManager.getWaystoneById(waystoneUid).isPresent()) {
+                hiddenWaystones.add(waystoneUid);
+            } else {
+                dirty = true;
+            }
+        }
+    }
+
+    public ListTag writeHiddenWaystones() {
+        final var hiddenWaystonesTag = new ListTag();
+        for (final var waystoneUid : hiddenWaystones) {
+            hiddenWaystonesTag.add(StringTag.valueOf(waystoneUid.toString()));
+        }
+        return hiddenWaystonesTag;
+    }
+
+    @Nullable
+    private static UUID parseUUID(Tag tag) {
+        try {
+            return UUID.fromString(tag.getAsString());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public boolean isActivated(int handle) {
+        return activatedWaystones.contains(handle);
+    }
+
+    public void activate(int handle) {
+        if (handle != WaystoneHandleTable.NO_HANDLE && activatedWaystones.add(handle)) {
+            dirty = true;
+            targetsRevision++;
+        }
+    }
+
+    public void deactivate(int handle) {
+        if (activatedWaystones.remove(handle)) {
+            dirty = true;
+            targetsRevision++;
+        }
+    }
+
+    public boolean isHidden(UUID waystoneUid) {
+        return hiddenWaystones.contains(waystoneUid);
+    }
+
+    public void hide(UUID waystoneUid) {
+        if (hiddenWaystones.add(waystoneUid)) {
+            dirty = true;
+            targetsRevision++;
+        }
+    }
+
+    public boolean unhide(UUID waystoneUid) {
+        if (hiddenWaystones.remove(waystoneUid)) {
+            dirty = true;
+            targetsRevision++;
+            return true;
+        }
+        return false;
+    }
+
+    public Collection<Waystone> getValidWaystones() {
+        final var result = new ArrayList<Waystone>(activatedWaystones.size());
+        for (final var iterator = activatedWaystones.iterator(); iterator.hasNext(); ) {
+            final var waystone = waystoneManager.getWaystoneByHandle(iterator.nextInt());
+            if (waystone.isPresent()) {
+                result.add(waystone.get());
+            } else {
+                iterator.remove();
+                dirty = true;
+                targetsRevision++;
+            }
+        }
+        return result;
+    }
+
+    public IntSet getActivatedHandles() {
+        return IntSets.unmodifiable(activatedWaystones);
+    }
+
+    public long getCooldownUntil(ResourceLocation key) {
+        return cooldowns.getLong(key);
+    }
+
+    public void setCooldownUntil(ResourceLocation key, long expiresAt) {
+        if (expiresAt > 0) {
+            if (cooldowns.put(key, expiresAt) != expiresAt) {
+                dirty = true;
+            }
+        } else if (cooldowns.containsKey(key)) {
+            cooldowns.removeLong(key);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Removes the cooldown if it still expires at the given time, i.e. it was not renewed in the meantime.
+     */
+    public boolean expireCooldown(ResourceLocation key, long expiresAt) {
+        if (cooldowns.containsKey(key) && cooldowns.getLong(key) == expiresAt) {
+            cooldowns.removeLong(key);
+            dirty = true;
+            return true;
+        }
+        return false;
+    }
+
+    public void clearCooldowns() {
+        if (!cooldowns.isEmpty()) {
+            cooldowns.clear();
+            dirty = true;
+        }
+    }
+
+    public Object2LongMap<ResourceLocation> getCooldowns() {
+        return Object2LongMaps.unmodifiable(cooldowns);
+    }
+
+    public WaystoneSortingIndex getSortingIndex() {
+        return sortingIndex;
+    }
+
+    public void markDirty() {
+        dirty = true;
+        targetsRevision++;
+    }
+
+    /**
+     * Bumped whenever the activated waystones, the hidden waystones or the sorting index change. Cooldown changes do not count.
+     */
+    public long getTargetsRevision() {
+        return targetsRevision;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+}
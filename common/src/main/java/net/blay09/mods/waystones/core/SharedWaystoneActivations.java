@@ -0,0 +1,157 @@
+package net.blay09.mods.waystones.core;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterable;
+import it.unimi.dsi.fastutil.ints.IntList;
+import net.blay09.mods.waystones.Waystones;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.Tag;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.datafix.DataFixTypes;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.saveddata.SavedData;
+
+import java.util.*;
+
+/**
+ * Activation backend that keeps one bitmap per player over waystone handle slots in a single world-level file, instead of a list of UUID strings in
+ * every player's NBT. Each slot remembers the handle generation its bits belong to, so bits for a removed waystone are discarded once its slot is
+ * reused.
+ */
+public class SharedWaystoneActivations extends SavedData {
+
+    private static final String DATA_NAME = Waystones.MOD_ID + "_activations";
+    private static final String TAG_PLAYERS = "Players";
+    private static final String TAG_SLOT_GENERATIONS = "SlotGenerations";
+
+    private final Map<UUID, BitSet> activationsByPlayer = new HashMap<>();
+    private final IntArrayList slotGenerations = new IntArrayList();
+    private final Set<UUID> unsavedImports = new HashSet<>();
+
+    public boolean hasPlayer(UUID playerUid) {
+        return activationsByPlayer.containsKey(playerUid);
+    }
+
+    public void importPlayer(UUID playerUid, IntIterable handles) {
+        final var activations = activationsByPlayer.computeIfAbsent(playerUid, it -> new BitSet());
+        for (final var iterator = handles.iterator(); iterator.hasNext(); ) {
+            activate(activations, iterator.nextInt());
+        }
+        unsavedImports.add(playerUid);
+        setDirty();
+    }
+
+    /**
+     * Whether the player's activations were imported from their legacy player data since this was last saved, in which case that legacy data
+     * is still the only copy on disk.
+     */
+    public boolean hasUnsavedImport(UUID playerUid) {
+        return unsavedImports.contains(playerUid);
+    }
+
+    public void removePlayer(UUID playerUid) {
+        if (activationsByPlayer.remove(playerUid) != null) {
+            setDirty();
+        }
+    }
+
+    public void activate(UUID playerUid, int handle) {
+        if (handle == WaystoneHandleTable.NO_HANDLE) {
+            return;
+        }
+
+        activate(activationsByPlayer.computeIfAbsent(playerUid, it -> new BitSet()), handle);
+        setDirty();
+    }
+
+    public void deactivate(UUID playerUid, int handle) {
+        final var activations = activationsByPlayer.get(playerUid);
+        if (activations != null && isCurrent(handle)) {
+            activations.clear(WaystoneHandleTable.slotOf(handle));
+            setDirty();
+        }
+    }
+
+    public IntList getActivatedHandles(UUID playerUid, WaystoneManagerImpl waystoneManager) {
+        final var result = new IntArrayList();
+        final var activations = activationsByPlayer.get(playerUid);
+        if (activations == null) {
+            return result;
+        }
+
+        for (int slot = activations.nextSetBit(0); slot >= 0; slot = activations.nextSetBit(slot + 1)) {
+            final var handle = waystoneManager.getHandleForSlot(slot);
+            if (handle != WaystoneHandleTable.NO_HANDLE && isCurrent(handle)) {
+                result.add(handle);
+            }
+        }
+        return result;
+    }
+
+    private void activate(BitSet activations, int handle) {
+        final var slot = WaystoneHandleTable.slotOf(handle);
+        final var generation = WaystoneHandleTable.generationOf(handle);
+        while (slotGenerations.size() <= slot) {
+            slotGenerations.add(0);
+        }
+
+        if (slotGenerations.getInt(slot) != generation) {
+            // The slot was handed to a different waystone since these bits were set, so they no longer mean anything
+            for (final var playerActivations : activationsByPlayer.values()) {
+                playerActivations.clear(slot);
+            }
+            slotGenerations.set(slot, generation);
+        }
+
+        activations.set(slot);
+    }
+
+    private boolean isCurrent(int handle) {
+        if (handle == WaystoneHandleTable.NO_HANDLE) {
+            return false;
+        }
+
+        final var slot = WaystoneHandleTable.slotOf(handle);
+        return slot < slotGenerations.size() && slotGenerations.getInt(slot) == WaystoneHandleTable.generationOf(handle);
+    }
+
+    public static SharedWaystoneActivations read(CompoundTag tagCompound, HolderLookup.Provider provider) {
+        final var activations = new SharedWaystoneActivations();
+        for (final var slotGeneration : tagCompound.getIntArray(TAG_SLOT_GENERATIONS)) {
+            activations.slotGenerations.add(slotGeneration);
+        }
+
+        final var playersTag = tagCompound.getList(TAG_PLAYERS, Tag.TAG_COMPOUND);
+        for (final var tag : playersTag) {
+            final var playerTag = (CompoundTag) tag;
+            final var playerUid = NbtUtils.loadUUID(Objects.requireNonNull(playerTag.get("PlayerUid")));
+            activations.activationsByPlayer.put(playerUid, BitSet.valueOf(playerTag.getLongArray("Slots")));
+        }
+        return activations;
+    }
+
+    @Override
+    public CompoundTag save(CompoundTag tagCompound, HolderLookup.Provider provider) {
+        unsavedImports.clear();
+        tagCompound.putIntArray(TAG_SLOT_GENERATIONS, slotGenerations.toIntArray());
+        final var playersTag = new ListTag();
+        for (final var entry : activationsByPlayer.entrySet()) {
+            final var playerTag = new CompoundTag();
+            playerTag.put("PlayerUid", NbtUtils.createUUID(entry.getKey()));
+            playerTag.putLongArray("Slots", entry.getValue().toLongArray());
+            playersTag.add(playerTag);
+        }
+        tagCompound.put(TAG_PLAYERS, playersTag);
+        return tagCompound;
+    }
+
+    public static SharedWaystoneActivations get(MinecraftServer server) {
+        ServerLevel overworld = server.getLevel(Level.OVERWORLD);
+        return Objects.requireNonNull(overworld).getDataStorage().computeIfAbsent(new Factory<>(SharedWaystoneActivations::new, SharedWaystoneActivations::read,
+                DataFixTypes.SAVED_DATA_MAP_DATA), DATA_NAME);
+    }
+}
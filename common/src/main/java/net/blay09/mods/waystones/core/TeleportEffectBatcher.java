@@ -0,0 +1,88 @@
+package net.blay09.mods.waystones.core;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import net.blay09.mods.balm.api.Balm;
+import net.blay09.mods.waystones.network.message.TeleportEffectMessage;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.sounds.SoundEvents;
+import net.minecraft.sounds.SoundSource;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.Level;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collects teleport particles and sounds during a tick and emits them once per position at the end of it, so that a group of entities arriving
+ * or leaving together results in a single effect packet and a single sound.
+ */
+public class TeleportEffectBatcher {
+
+    private static class PendingEffect {
+        private final ServerLevel level;
+        private final BlockPos pos;
+        private int entityCount;
+        private float soundVolume;
+        private Entity soundExcept;
+
+        private PendingEffect(ServerLevel level, BlockPos pos) {
+            this.level = level;
+            this.pos = pos;
+        }
+    }
+
+    private static final Map<ResourceKey<Level>, Long2ObjectMap<PendingEffect>> pendingEffects = new HashMap<>();
+
+    /**
+     * Queues particles for the given number of entities at the position.
+     */
+    public static void addEffect(ServerLevel level, BlockPos pos, int entityCount) {
+        getPending(level, pos).entityCount += entityCount;
+    }
+
+    /**
+     * Queues the teleport sound at the position. The excluded entity only stays excluded if nothing else plays a sound at the same position.
+     */
+    public static void addSound(ServerLevel level, BlockPos pos, float volume, @Nullable Entity except) {
+        final var pending = getPending(level, pos);
+        pending.soundExcept = pending.soundVolume > 0 ? null : except;
+        pending.soundVolume = Math.max(pending.soundVolume, volume);
+    }
+
+    public static void flush(MinecraftServer server) {
+        if (pendingEffects.isEmpty()) {
+            return;
+        }
+
+        for (final var effectsInLevel : pendingEffects.values()) {
+            for (final var pending : effectsInLevel.values()) {
+                if (pending.soundVolume > 0) {
+                    pending.level.playSound(pending.soundExcept, pending.pos, SoundEvents.PORTAL_TRAVEL, SoundSource.PLAYERS, pending.soundVolume, 1f);
+                }
+                if (pending.entityCount > 0) {
+                    Balm.getNetworking().sendToTracking(pending.level, pending.pos, new TeleportEffectMessage(pending.pos, pending.entityCount));
+                }
+            }
+        }
+        pendingEffects.clear();
+    }
+
+    public static void clear() {
+        pendingEffects.clear();
+    }
+
+    private static PendingEffect getPending(ServerLevel level, BlockPos pos) {
+        final var effectsInLevel = pendingEffects.computeIfAbsent(level.dimension(), it -> new Long2ObjectLinkedOpenHashMap<>());
+        var pending = effectsInLevel.get(pos.asLong());
+        if (pending == null) {
+            pending = new PendingEffect(level, pos.immutable());
+            effectsInLevel.put(pos.asLong(), pending);
+        }
+        return pending;
+    }
+}
@@ -0,0 +1,46 @@
+package net.blay09.mods.waystones.core;
+
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.HashCommon;
+import net.blay09.mods.waystones.api.Waystone;
+import net.minecraft.core.RegistryAccess;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+
+import java.util.Collection;
+
+/**
+ * Content hash over a list of waystones as they appear on the wire, so that the server and a client cache can tell whether they hold the same
+ * list without exchanging it. The hash does not depend on list order.
+ */
+public class WaystoneCatalogueHash {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    public static long hash(Collection<Waystone> waystones, RegistryAccess registryAccess) {
+        final var buf = new RegistryFriendlyByteBuf(Unpooled.buffer(), registryAccess);
+        try {
+            long hash = waystones.size();
+            for (final var waystone : waystones) {
+                final var entryHash = waystone instanceof WaystoneImpl waystoneImpl
+                        ? waystoneImpl.getContentHash(it -> hashEntry(buf, it))
+                        : hashEntry(buf, waystone);
+                hash += HashCommon.mix(entryHash);
+            }
+            return hash;
+        } finally {
+            buf.release();
+        }
+    }
+
+    private static long hashEntry(RegistryFriendlyByteBuf buf, Waystone waystone) {
+        buf.clear();
+        WaystoneImpl.write(buf, waystone);
+        var hash = FNV_OFFSET_BASIS;
+        for (int i = buf.readerIndex(); i < buf.writerIndex(); i++) {
+            hash ^= buf.getByte(i) & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
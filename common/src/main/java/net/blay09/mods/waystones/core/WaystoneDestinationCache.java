@@ -0,0 +1,71 @@
+package net.blay09.mods.waystones.core;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.blay09.mods.waystones.api.TeleportDestination;
+import net.blay09.mods.waystones.api.Waystone;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Remembers where teleports to a waystone land, so that popular waystones don't re-check their surroundings on every teleport. Entries are
+ * dropped when a block next to the waystone changes shape, when the waystone block is removed, or when the waystone moves. They also expire
+ * after a while to catch changes the waystone block is not told about.
+ */
+public class WaystoneDestinationCache {
+
+    public record Resolved(TeleportDestination destination, boolean blocked) {
+    }
+
+    private record Entry(Resolved resolved, int revision, long expiresAt) {
+    }
+
+    private static final long MAX_AGE_TICKS = 600;
+
+    private static final Map<ResourceKey<Level>, Long2ObjectMap<Entry>> entries = new HashMap<>();
+
+    public static Resolved resolve(ServerLevel level, Waystone waystone, Supplier<Resolved> resolver) {
+        final var levelEntries = entries.computeIfAbsent(level.dimension(), it -> new Long2ObjectOpenHashMap<>());
+        final var key = waystone.getPos().asLong();
+        final var revision = WaystoneImpl.revisionOf(waystone);
+        final var entry = levelEntries.get(key);
+        if (entry != null && entry.revision == revision && level.getGameTime() < entry.expiresAt) {
+            return entry.resolved;
+        }
+
+        final var resolved = resolver.get();
+        levelEntries.put(key, new Entry(resolved, revision, level.getGameTime() + MAX_AGE_TICKS));
+        return resolved;
+    }
+
+    /**
+     * Whether the last resolved destination of the waystone had no free space around it, or false if it has not been resolved recently.
+     */
+    public static boolean isKnownBlocked(ServerLevel level, Waystone waystone) {
+        final var levelEntries = entries.get(level.dimension());
+        final var entry = levelEntries != null ? levelEntries.get(waystone.getPos().asLong()) : null;
+        return entry != null && entry.resolved.blocked() && level.getGameTime() < entry.expiresAt;
+    }
+
+    /**
+     * Drops the entry of a waystone occupying the given block. Double-tall waystones are keyed by their lower half, so the block below is
+     * dropped as well.
+     */
+    public static void invalidate(ServerLevel level, BlockPos pos) {
+        final var levelEntries = entries.get(level.dimension());
+        if (levelEntries != null) {
+            levelEntries.remove(pos.asLong());
+            levelEntries.remove(pos.below().asLong());
+        }
+    }
+
+    public static void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,161 @@
+package net.blay09.mods.waystones.core;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Maps waystone UUIDs to dense, reusable int handles. The low bits of a handle are its slot, the high bits a generation counter so that handles
+ * held on to after a waystone was removed do not resolve to whatever waystone reuses the slot.
+ */
+public class WaystoneHandleTable {
+
+    public static final int NO_HANDLE = -1;
+
+    private static final int SLOT_BITS = 24;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int GENERATION_MASK = 0x7F;
+
+    private final List<UUID> slots = new ArrayList<>();
+    private final IntArrayList generations = new IntArrayList();
+    private final IntArrayList freeSlots = new IntArrayList();
+    private final Object2IntMap<UUID> handles = new Object2IntOpenHashMap<>();
+
+    public WaystoneHandleTable() {
+        handles.defaultReturnValue(NO_HANDLE);
+    }
+
+    public int getHandle(UUID waystoneUid) {
+        return handles.getInt(waystoneUid);
+    }
+
+    @Nullable
+    public UUID getWaystoneUid(int handle) {
+        if (handle < 0) {
+            return null;
+        }
+
+        final var slot = slotOf(handle);
+        if (slot >= slots.size() || generations.getInt(slot) != generationOf(handle)) {
+            return null;
+        }
+
+        return slots.get(slot);
+    }
+
+    public int getHandleForSlot(int slot) {
+        if (slot < 0 || slot >= slots.size() || slots.get(slot) == null) {
+            return NO_HANDLE;
+        }
+
+        return toHandle(slot, generations.getInt(slot));
+    }
+
+    public int assign(UUID waystoneUid) {
+        final var existing = handles.getInt(waystoneUid);
+        if (existing != NO_HANDLE) {
+            return existing;
+        }
+
+        final int slot;
+        if (!freeSlots.isEmpty()) {
+            slot = freeSlots.popInt();
+            generations.set(slot, (generations.getInt(slot) + 1) & GENERATION_MASK);
+            slots.set(slot, waystoneUid);
+        } else {
+            slot = slots.size();
+            slots.add(waystoneUid);
+            generations.add(0);
+        }
+
+        final var handle = toHandle(slot, generations.getInt(slot));
+        handles.put(waystoneUid, handle);
+        return handle;
+    }
+
+    /**
+     * Binds a waystone to a specific handle, e.g. one restored from disk or received from the server.
+     * Unless forced, this fails if the slot is already held by a different waystone.
+     */
+    public boolean claim(UUID waystoneUid, int handle, boolean force) {
+        if (handle < 0) {
+            return false;
+        } else if (handles.getInt(waystoneUid) == handle) {
+            return true;
+        }
+
+        final var slot = slotOf(handle);
+        if (slot < slots.size()) {
+            final var occupant = slots.get(slot);
+            if (occupant != null && !occupant.equals(waystoneUid)) {
+                if (!force) {
+                    return false;
+                }
+                handles.removeInt(occupant);
+            }
+        }
+
+        final var previous = handles.getInt(waystoneUid);
+        if (previous != NO_HANDLE && previous != handle) {
+            release(waystoneUid);
+        }
+
+        while (slots.size() <= slot) {
+            slots.add(null);
+            generations.add(0);
+        }
+
+        freeSlots.rem(slot);
+        slots.set(slot, waystoneUid);
+        generations.set(slot, generationOf(handle));
+        handles.put(waystoneUid, handle);
+        return true;
+    }
+
+    public void release(UUID waystoneUid) {
+        final var handle = handles.removeInt(waystoneUid);
+        if (handle == NO_HANDLE) {
+            return;
+        }
+
+        final var slot = slotOf(handle);
+        slots.set(slot, null);
+        freeSlots.add(slot);
+    }
+
+    /**
+     * Collects the gaps left behind by {@link #claim(UUID, int, boolean)} so they can be handed out again.
+     */
+    public void rebuildFreeSlots() {
+        freeSlots.clear();
+        for (int slot = slots.size() - 1; slot >= 0; slot--) {
+            if (slots.get(slot) == null) {
+                freeSlots.add(slot);
+            }
+        }
+    }
+
+    public void clear() {
+        slots.clear();
+        generations.clear();
+        freeSlots.clear();
+        handles.clear();
+    }
+
+    public static int slotOf(int handle) {
+        return handle & SLOT_MASK;
+    }
+
+    public static int generationOf(int handle) {
+        return (handle >>> SLOT_BITS) & GENERATION_MASK;
+    }
+
+    private static int toHandle(int slot, int generation) {
+        return (generation << SLOT_BITS) | slot;
+    }
+}
@@ -11,7 +11,6 @@ import net.minecraft.nbt.NbtUtils;
 import net.minecraft.network.RegistryFriendlyByteBuf;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.ComponentSerialization;
-import net.minecraft.network.codec.ByteBufCodecs;
 import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
@@ -22,11 +21,12 @@ import net.minecraft.world.level.block.state.BlockState;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.function.ToLongFunction;
 
 public class WaystoneImpl implements Waystone, MutableWaystone {
 
     public static final StreamCodec<RegistryFriendlyByteBuf, Waystone> STREAM_CODEC = StreamCodec.of(WaystoneImpl::write, WaystoneImpl::read);
-    public static final StreamCodec<RegistryFriendlyByteBuf, Collection<Waystone>> LIST_STREAM_CODEC = STREAM_CODEC.apply(ByteBufCodecs.collection(ArrayList::new));
+    public static final StreamCodec<RegistryFriendlyByteBuf, Collection<Waystone>> LIST_STREAM_CODEC = StreamCodec.of(WaystoneListCodec::encode, WaystoneListCodec::decode);
 
     private final ResourceLocation waystoneType;
     private final UUID waystoneUid;
@@ -41,6 +41,18 @@ public class WaystoneImpl implements Waystone, MutableWaystone {
 
     private UUID ownerUid;
 
+    private int handle = WaystoneHandleTable.NO_HANDLE;
+    private int revision;
+    private long contentHash;
+    private int contentHashRevision = -1;
+    private int contentHashHandle;
+    private boolean snapshot;
+    private WaystoneImpl cachedSnapshot;
+    private int cachedSnapshotRevision;
+    private int cachedSnapshotHandle;
+
+    private final List<WaystoneManagerImpl> attachedManagers = new ArrayList<>(1);
+
     public WaystoneImpl(ResourceLocation waystoneType, UUID waystoneUid, ResourceKey<Level> dimension, BlockPos pos, WaystoneOrigin origin, @Nullable UUID ownerUid) {
         this.waystoneType = waystoneType;
         this.waystoneUid = waystoneUid;
@@ -64,6 +76,7 @@ public class WaystoneImpl implements Waystone, MutableWaystone {
     @Override
     public void setName(Component name) {
         this.name = name;
+        notifyManagers();
     }
 
     @Override
@@ -84,6 +97,7 @@ public class WaystoneImpl implements Waystone, MutableWaystone {
     @Override
     public void setVisibility(WaystoneVisibility visibility) {
         this.visibility = visibility;
+        notifyManagers();
     }
 
     @Override
@@ -94,6 +108,7 @@ public class WaystoneImpl implements Waystone, MutableWaystone {
     @Override
     public void setOwnerUid(@Nullable UUID ownerUid) {
         this.ownerUid = ownerUid;
+        notifyManagers();
     }
 
     @Override
@@ -113,10 +128,69 @@ public class WaystoneImpl implements Waystone, MutableWaystone {
 
     public void setDimension(ResourceKey<Level> dimension) {
         this.dimension = dimension;
+        notifyManagers();
     }
 
     public void setPos(BlockPos pos) {
         this.pos = pos;
+        notifyManagers();
+    }
+
+    public int getHandle() {
+        return handle;
+    }
+
+    void setHandle(int handle) {
+        this.handle = handle;
+    }
+
+    public static int handleOf(Waystone waystone) {
+        if (waystone instanceof WaystoneImpl waystoneImpl) {
+            return waystoneImpl.getHandle();
+        } else if (waystone instanceof WaystoneProxy proxy && proxy.getBackingWaystone() instanceof WaystoneImpl waystoneImpl) {
+            return waystoneImpl.getHandle();
+        }
+
+        return WaystoneHandleTable.NO_HANDLE;
+    }
+
+    /**
+     * Counts changes made through the setters, so that sync code can tell whether a copy it sent earlier is still current.
+     */
+    public static int revisionOf(Waystone waystone) {
+        if (waystone instanceof WaystoneImpl waystoneImpl) {
+            return waystoneImpl.revision;
+        } else if (waystone instanceof WaystoneProxy proxy && proxy.getBackingWaystone() instanceof WaystoneImpl waystoneImpl) {
+            return waystoneImpl.revision;
+        }
+
+        return 0;
+    }
+
+    long getContentHash(ToLongFunction<WaystoneImpl> hashFunction) {
+        if (contentHashRevision != revision || contentHashHandle != handle) {
+            contentHash = hashFunction.applyAsLong(this);
+            contentHashRevision = revision;
+            contentHashHandle = handle;
+        }
+        return contentHash;
+    }
+
+    void attachManager(WaystoneManagerImpl manager) {
+        if (!attachedManagers.contains(manager)) {
+            attachedManagers.add(manager);
+        }
+    }
+
+    void detachManager(WaystoneManagerImpl manager) {
+        attachedManagers.remove(manager);
+    }
+
+    private void notifyManagers() {
+        revision++;
+        for (final var manager : attachedManagers) {
+            manager.onWaystoneChanged(this);
+        }
     }
 
     @Override
@@ -138,15 +212,53 @@ public class WaystoneImpl implements Waystone, MutableWaystone {
     @Override
     public void setTransient(boolean isTransient) {
         this.isTransient = isTransient;
+        notifyManagers();
     }
 
-    public static List<Waystone> readList(RegistryFriendlyByteBuf buf) {
-        int size = buf.readShort();
-        List<Waystone> waystones = new ArrayList<>(size);
-        for (int i = 0; i < size; i++) {
-            waystones.add(read(buf));
+    /**
+     * Creates a detached copy that is not attached to any manager and will not see further changes to the original.
+     */
+    public static WaystoneImpl copyOf(Waystone waystone) {
+        final var copy = new WaystoneImpl(waystone.getWaystoneType(), waystone.getWaystoneUid(), waystone.getDimension(), waystone.getPos(), waystone.getOrigin(), waystone.getOwnerUid());
+        copy.name = waystone.getName();
+        copy.visibility = waystone.getVisibility();
+        copy.isTransient = waystone.isTransient();
+        copy.handle = handleOf(waystone);
+        return copy;
+    }
+
+    /**
+     * Returns a detached copy that the server will never change, reused for as long as the original stays unchanged. Used to hand waystones to
+     * a client in the same JVM without sharing the server's live instance.
+     */
+    public static WaystoneImpl snapshotOf(Waystone waystone) {
+        final var backingWaystone = waystone instanceof WaystoneProxy proxy ? proxy.getBackingWaystone() : waystone;
+        if (!(backingWaystone instanceof WaystoneImpl waystoneImpl)) {
+            final var copy = copyOf(waystone);
+            copy.snapshot = true;
+            return copy;
+        }
+
+        if (waystoneImpl.snapshot) {
+            return waystoneImpl;
         }
-        return waystones;
+
+        if (waystoneImpl.cachedSnapshot == null || waystoneImpl.cachedSnapshotRevision != waystoneImpl.revision || waystoneImpl.cachedSnapshotHandle != waystoneImpl.handle) {
+            final var copy = copyOf(waystoneImpl);
+            copy.snapshot = true;
+            waystoneImpl.cachedSnapshot = copy;
+            waystoneImpl.cachedSnapshotRevision = waystoneImpl.revision;
+            waystoneImpl.cachedSnapshotHandle = waystoneImpl.handle;
+        }
+        return waystoneImpl.cachedSnapshot;
+    }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public static List<Waystone> readList(RegistryFriendlyByteBuf buf) {
+        return WaystoneListCodec.decode(buf);
     }
 
     public static Waystone read(RegistryFriendlyByteBuf buf) {
@@ -157,10 +269,12 @@ public class WaystoneImpl implements Waystone, MutableWaystone {
         final var dimension = ResourceKey.create(Registries.DIMENSION, ResourceLocation.parse(buf.readUtf(250)));
         final var pos = buf.readBlockPos();
         final var origin = buf.readEnum(WaystoneOrigin.class);
+        final var handle = buf.readVarInt() - 1;
 
         final var waystone = new WaystoneImpl(waystoneType, waystoneUid, dimension, pos, origin, null);
         waystone.setName(name);
         waystone.setVisibility(visibility);
+        waystone.setHandle(handle);
         return waystone;
     }
 
@@ -190,6 +304,7 @@ public class WaystoneImpl implements Waystone, MutableWaystone {
         final var waystone = new WaystoneImpl(waystoneType, waystoneUid, dimensionType, pos, origin, ownerUid);
         waystone.setName(name);
         waystone.setTransient(isTransient);
+        waystone.setHandle(compound.contains("Handle") ? compound.getInt("Handle") : WaystoneHandleTable.NO_HANDLE);
         if (compound.contains("Visibility")) {
             waystone.setVisibility(WaystoneVisibility.valueOf(compound.getString("Visibility")));
         } else {
@@ -199,10 +314,7 @@ public class WaystoneImpl implements Waystone, MutableWaystone {
     }
 
     public static void writeList(RegistryFriendlyByteBuf buf, Collection<Waystone> waystones) {
-        buf.writeShort(waystones.size());
-        for (Waystone waystone : waystones) {
-            write(buf, waystone);
-        }
+        WaystoneListCodec.encode(buf, waystones);
     }
 
     public static void write(RegistryFriendlyByteBuf buf, Waystone waystone) {
@@ -213,6 +325,7 @@ public class WaystoneImpl implements Waystone, MutableWaystone {
         buf.writeResourceLocation(waystone.getDimension().location());
         buf.writeBlockPos(waystone.getPos());
         buf.writeEnum(waystone.getOrigin());
+        buf.writeVarInt(handleOf(waystone) + 1);
     }
 
     public static CompoundTag write(Waystone waystone, CompoundTag compound, HolderLookup.Provider provider) {
@@ -227,6 +340,10 @@ public class WaystoneImpl implements Waystone, MutableWaystone {
             compound.put("OwnerUid", NbtUtils.createUUID(waystone.getOwnerUid()));
         }
         compound.putString("Visibility", waystone.getVisibility().name());
+        final var handle = handleOf(waystone);
+        if (handle != WaystoneHandleTable.NO_HANDLE) {
+            compound.putInt("Handle", handle);
+        }
         return compound;
     }
 }
@@ -0,0 +1,172 @@
+package net.blay09.mods.waystones.core;
+
+import io.netty.handler.codec.DecoderException;
+import net.blay09.mods.waystones.api.Waystone;
+import net.blay09.mods.waystones.api.WaystoneOrigin;
+import net.blay09.mods.waystones.api.WaystoneVisibility;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.ComponentSerialization;
+import net.minecraft.network.chat.contents.PlainTextContents;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.*;
+
+/**
+ * Compact network encoding for lists of waystones. Types and dimensions go into a per-list string table, entries are sorted by dimension and
+ * region so that positions can be written as small varint deltas, and names that are plain literals skip the full component codec.
+ * If that changes the order, each entry also carries its original index so the list order can be restored on decode.
+ */
+public class WaystoneListCodec {
+
+    private static final int REGION_SHIFT = 9;
+    // UUID plus at least one byte for each of the other fields
+    private static final int MIN_ENTRY_BYTES = 16 + 8;
+    private static final WaystoneVisibility[] VISIBILITIES = WaystoneVisibility.values();
+    private static final WaystoneOrigin[] ORIGINS = WaystoneOrigin.values();
+
+    private record Entry(int index, Waystone waystone, int dimensionId) {
+    }
+
+    public static void encode(RegistryFriendlyByteBuf buf, Collection<Waystone> waystones) {
+        final var stringTable = new ArrayList<ResourceLocation>();
+        final var stringIds = new HashMap<ResourceLocation, Integer>();
+        final var entries = new ArrayList<Entry>(waystones.size());
+        var index = 0;
+        for (final var waystone : waystones) {
+            stringIds.computeIfAbsent(waystone.getWaystoneType(), it -> addToTable(stringTable, it));
+            final var dimensionId = stringIds.computeIfAbsent(waystone.getDimension().location(), it -> addToTable(stringTable, it));
+            entries.add(new Entry(index++, waystone, dimensionId));
+        }
+        entries.sort(Comparator.comparingInt(Entry::dimensionId)
+                .thenComparingInt(it -> it.waystone().getPos().getX() >> REGION_SHIFT)
+                .thenComparingInt(it -> it.waystone().getPos().getZ() >> REGION_SHIFT)
+                .thenComparingInt(it -> it.waystone().getPos().getX())
+                .thenComparingInt(it -> it.waystone().getPos().getZ()));
+        var reordered = false;
+        for (int i = 0; i < entries.size() && !reordered; i++) {
+            reordered = entries.get(i).index() != i;
+        }
+
+        buf.writeVarInt(entries.size());
+        buf.writeBoolean(reordered);
+        buf.writeVarInt(stringTable.size());
+        for (final var location : stringTable) {
+            buf.writeResourceLocation(location);
+        }
+
+        var previousDimensionId = -1;
+        var previousPos = BlockPos.ZERO;
+        for (final var entry : entries) {
+            final var waystone = entry.waystone();
+            if (entry.dimensionId() != previousDimensionId) {
+                previousPos = BlockPos.ZERO;
+                previousDimensionId = entry.dimensionId();
+            }
+
+            final var name = waystone.getName();
+            final var literalName = isPlainLiteral(name);
+            if (reordered) {
+                buf.writeVarInt(entry.index());
+            }
+            buf.writeUUID(waystone.getWaystoneUid());
+            buf.writeVarInt(stringIds.get(waystone.getWaystoneType()));
+            buf.writeVarInt(entry.dimensionId());
+            buf.writeVarInt((waystone.getOrigin().ordinal() * VISIBILITIES.length + waystone.getVisibility().ordinal()) * 2 + (literalName ? 1 : 0));
+            final var pos = waystone.getPos();
+            buf.writeVarInt(zigZag(pos.getX() - previousPos.getX()));
+            buf.writeVarInt(zigZag(pos.getY() - previousPos.getY()));
+            buf.writeVarInt(zigZag(pos.getZ() - previousPos.getZ()));
+            previousPos = pos;
+            if (literalName) {
+                buf.writeUtf(name.getString());
+            } else {
+                ComponentSerialization.STREAM_CODEC.encode(buf, name);
+            }
+            buf.writeVarInt(WaystoneImpl.handleOf(waystone) + 1);
+        }
+    }
+
+    public static List<Waystone> decode(RegistryFriendlyByteBuf buf) {
+        final var size = buf.readVarInt();
+        if (size < 0 || size > buf.readableBytes() / MIN_ENTRY_BYTES) {
+            throw new DecoderException("Invalid waystone list size: " + size);
+        }
+
+        final var reordered = buf.readBoolean();
+        final var stringTableSize = buf.readVarInt();
+        if (stringTableSize < 0 || stringTableSize > buf.readableBytes()) {
+            throw new DecoderException("Invalid waystone list string table size: " + stringTableSize);
+        }
+
+        final var stringTable = new ResourceLocation[stringTableSize];
+        for (int i = 0; i < stringTableSize; i++) {
+            stringTable[i] = buf.readResourceLocation();
+        }
+
+        final var waystones = new Waystone[size];
+        var previousDimensionId = -1;
+        var previousPos = BlockPos.ZERO;
+        for (int i = 0; i < size; i++) {
+            final var index = reordered ? buf.readVarInt() : i;
+            if (index < 0 || index >= size || waystones[index] != null) {
+                throw new DecoderException("Invalid waystone list index: " + index);
+            }
+
+            final var waystoneUid = buf.readUUID();
+            final var waystoneType = stringTable[readStringId(buf, stringTableSize)];
+            final var dimensionId = readStringId(buf, stringTableSize);
+            final var flags = buf.readVarInt();
+            if (flags < 0 || (flags >> 1) >= VISIBILITIES.length * ORIGINS.length) {
+                throw new DecoderException("Invalid waystone flags: " + flags);
+            }
+            if (dimensionId != previousDimensionId) {
+                previousPos = BlockPos.ZERO;
+                previousDimensionId = dimensionId;
+            }
+
+            final var pos = previousPos.offset(unZigZag(buf.readVarInt()), unZigZag(buf.readVarInt()), unZigZag(buf.readVarInt()));
+            previousPos = pos;
+            final var name = (flags & 1) != 0 ? Component.literal(buf.readUtf()) : ComponentSerialization.STREAM_CODEC.decode(buf);
+            final var handle = buf.readVarInt() - 1;
+
+            final var visibility = VISIBILITIES[(flags >> 1) % VISIBILITIES.length];
+            final var origin = ORIGINS[(flags >> 1) / VISIBILITIES.length];
+            final var dimension = ResourceKey.create(Registries.DIMENSION, stringTable[dimensionId]);
+            final var waystone = new WaystoneImpl(waystoneType, waystoneUid, dimension, pos, origin, null);
+            waystone.setName(name);
+            waystone.setVisibility(visibility);
+            waystone.setHandle(handle);
+            waystones[index] = waystone;
+        }
+        return new ArrayList<>(Arrays.asList(waystones));
+    }
+
+    private static int readStringId(RegistryFriendlyByteBuf buf, int stringTableSize) {
+        final var id = buf.readVarInt();
+        if (id < 0 || id >= stringTableSize) {
+            throw new DecoderException("Invalid waystone list string id: " + id);
+        }
+        return id;
+    }
+
+    private static int addToTable(List<ResourceLocation> stringTable, ResourceLocation location) {
+        stringTable.add(location);
+        return stringTable.size() - 1;
+    }
+
+    private static boolean isPlainLiteral(Component component) {
+        return component.getContents() instanceof PlainTextContents && component.getStyle().isEmpty() && component.getSiblings().isEmpty();
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
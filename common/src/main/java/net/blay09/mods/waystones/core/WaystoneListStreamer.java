@@ -0,0 +1,149 @@
+package net.blay09.mods.waystones.core;
+
+import net.blay09.mods.balm.api.Balm;
+import net.blay09.mods.waystones.api.Waystone;
+import net.blay09.mods.waystones.comparator.DistanceToPlayerComparator;
+import net.blay09.mods.waystones.comparator.PreferSameDimensionComparator;
+import net.blay09.mods.waystones.menu.WaystoneSelectionMenu;
+import net.blay09.mods.waystones.network.message.WaystoneListChunkMessage;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.*;
+
+/**
+ * Splits large waystone lists into bounded chunks that are sent across several ticks, nearest waystones first. The first chunk goes out right
+ * away so that the receiving screen is usable immediately, the rest is sent under a per-player byte budget at the end of each tick.
+ */
+public class WaystoneListStreamer {
+
+    private static final int MAX_CHUNK_BYTES = 16384;
+    private static final int MAX_BYTES_PER_TICK = 32768;
+    private static final int ESTIMATED_ENTRY_OVERHEAD = 40;
+
+    private static class Stream {
+        private final Deque<Waystone> remaining;
+        private final boolean knownWaystones;
+        private int containerId = -1;
+
+        private Stream(Deque<Waystone> remaining, boolean knownWaystones) {
+            this.remaining = remaining;
+            this.knownWaystones = knownWaystones;
+        }
+    }
+
+    private static final Map<UUID, Stream> menuStreams = new HashMap<>();
+    private static final Map<UUID, Stream> knownWaystoneStreams = new HashMap<>();
+
+    /**
+     * Returns the part of the list to include in a menu's opening data and queues the rest to be streamed into the menu once it is open.
+     */
+    public static List<Waystone> beginMenuStream(ServerPlayer player, Collection<Waystone> waystones) {
+        return begin(player, waystones, false);
+    }
+
+    /**
+     * Returns the part of the player's known waystones to send as the initial full sync and queues the rest to follow as deltas.
+     */
+    public static List<Waystone> beginKnownWaystonesStream(ServerPlayer player, Collection<Waystone> waystones) {
+        return begin(player, waystones, true);
+    }
+
+    private static List<Waystone> begin(ServerPlayer player, Collection<Waystone> waystones, boolean knownWaystones) {
+        final var streams = knownWaystones ? knownWaystoneStreams : menuStreams;
+        streams.remove(player.getUUID());
+        if (estimateSize(waystones) <= MAX_CHUNK_BYTES) {
+            return new ArrayList<>(waystones);
+        }
+
+        final var sorted = new ArrayList<>(waystones);
+        sorted.sort(new PreferSameDimensionComparator(player.level().dimension()).thenComparing(new DistanceToPlayerComparator(player)));
+        final var remaining = new ArrayDeque<>(sorted);
+        final var firstChunk = takeChunk(remaining, MAX_CHUNK_BYTES);
+        streams.put(player.getUUID(), new Stream(remaining, knownWaystones));
+        return firstChunk;
+    }
+
+    public static void flush(MinecraftServer server) {
+        flush(server, menuStreams);
+        flush(server, knownWaystoneStreams);
+    }
+
+    private static void flush(MinecraftServer server, Map<UUID, Stream> streams) {
+        if (streams.isEmpty()) {
+            return;
+        }
+
+        for (final var iterator = streams.entrySet().iterator(); iterator.hasNext(); ) {
+            final var entry = iterator.next();
+            final var player = server.getPlayerList().getPlayer(entry.getKey());
+            final var stream = entry.getValue();
+            if (player == null || !flush(player, stream)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static boolean flush(ServerPlayer player, Stream stream) {
+        if (stream.knownWaystones) {
+            final var chunk = takeChunk(stream.remaining, MAX_BYTES_PER_TICK);
+            for (final var waystone : chunk) {
+                // Skip anything the player forgot about since the stream was started, it would otherwise be re-added on the client
+                if (PlayerWaystoneManager.isWaystoneActivated(player, waystone)) {
+                    WaystoneSyncManager.sendKnownWaystoneUpdate(player, waystone);
+                }
+            }
+            return !stream.remaining.isEmpty();
+        }
+
+        if (!(player.containerMenu instanceof WaystoneSelectionMenu menu)) {
+            return false;
+        }
+
+        if (stream.containerId == -1) {
+            stream.containerId = menu.containerId;
+        } else if (stream.containerId != menu.containerId) {
+            return false;
+        }
+
+        var budget = MAX_BYTES_PER_TICK;
+        while (budget > 0 && !stream.remaining.isEmpty()) {
+            final var chunk = takeChunk(stream.remaining, Math.min(budget, MAX_CHUNK_BYTES));
+            budget -= estimateSize(chunk);
+            Balm.getNetworking().sendTo(player, new WaystoneListChunkMessage(menu.containerId, new ArrayList<>(LocalWaystoneChannel.prepare(player, chunk))));
+        }
+        return !stream.remaining.isEmpty();
+    }
+
+    private static List<Waystone> takeChunk(Deque<Waystone> remaining, int maxBytes) {
+        final var chunk = new ArrayList<Waystone>();
+        var bytes = 0;
+        while (!remaining.isEmpty()) {
+            final var size = estimateSize(remaining.peekFirst());
+            if (!chunk.isEmpty() && bytes + size > maxBytes) {
+                break;
+            }
+            chunk.add(remaining.pollFirst());
+            bytes += size;
+        }
+        return chunk;
+    }
+
+    private static int estimateSize(Collection<Waystone> waystones) {
+        var bytes = 0;
+        for (final var waystone : waystones) {
+            bytes += estimateSize(waystone);
+        }
+        return bytes;
+    }
+
+    private static int estimateSize(Waystone waystone) {
+        return ESTIMATED_ENTRY_OVERHEAD + waystone.getName().getString().length() * 3;
+    }
+
+    public static void forgetPlayer(Player player) {
+        menuStreams.remove(player.getUUID());
+        knownWaystoneStreams.remove(player.getUUID());
+    }
+}
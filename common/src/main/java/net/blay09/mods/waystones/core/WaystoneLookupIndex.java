@@ -0,0 +1,127 @@
+package net.blay09.mods.waystones.core;
+
+import net.blay09.mods.waystones.api.Waystone;
+import net.blay09.mods.waystones.api.WaystoneVisibility;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.*;
+
+/**
+ * Multimap indexes of waystones by type, visibility and plain-text name, plus a trigram index over lower-cased names for substring searches.
+ */
+public class WaystoneLookupIndex {
+
+    private record IndexedKeys(ResourceLocation type, WaystoneVisibility visibility, String name, Set<String> trigrams) {
+    }
+
+    public static final int MIN_SEARCH_LENGTH = 3;
+
+    private final Map<ResourceLocation, Map<UUID, Waystone>> byType = new HashMap<>();
+    private final Map<WaystoneVisibility, Map<UUID, Waystone>> byVisibility = new EnumMap<>(WaystoneVisibility.class);
+    private final Map<String, Map<UUID, Waystone>> byName = new HashMap<>();
+    private final Map<String, Map<UUID, Waystone>> byNameTrigram = new HashMap<>();
+    private final Map<UUID, IndexedKeys> indexedKeys = new HashMap<>();
+
+    public void add(Waystone waystone) {
+        remove(waystone.getWaystoneUid());
+        final var waystoneUid = waystone.getWaystoneUid();
+        final var name = waystone.getName().getString();
+        final var keys = new IndexedKeys(waystone.getWaystoneType(), waystone.getVisibility(), normalizeName(name), trigramsOf(name.toLowerCase(Locale.ROOT)));
+        byType.computeIfAbsent(keys.type(), it -> new LinkedHashMap<>()).put(waystoneUid, waystone);
+        byVisibility.computeIfAbsent(keys.visibility(), it -> new LinkedHashMap<>()).put(waystoneUid, waystone);
+        byName.computeIfAbsent(keys.name(), it -> new LinkedHashMap<>()).put(waystoneUid, waystone);
+        for (final var trigram : keys.trigrams()) {
+            byNameTrigram.computeIfAbsent(trigram, it -> new HashMap<>()).put(waystoneUid, waystone);
+        }
+        indexedKeys.put(waystoneUid, keys);
+    }
+
+    public void remove(UUID waystoneUid) {
+        final var keys = indexedKeys.remove(waystoneUid);
+        if (keys == null) {
+            return;
+        }
+
+        removeFrom(byType, keys.type(), waystoneUid);
+        removeFrom(byVisibility, keys.visibility(), waystoneUid);
+        removeFrom(byName, keys.name(), waystoneUid);
+        for (final var trigram : keys.trigrams()) {
+            removeFrom(byNameTrigram, trigram, waystoneUid);
+        }
+    }
+
+    public void clear() {
+        byType.clear();
+        byVisibility.clear();
+        byName.clear();
+        byNameTrigram.clear();
+        indexedKeys.clear();
+    }
+
+    public Collection<Waystone> getByType(ResourceLocation type) {
+        return byType.getOrDefault(type, Map.of()).values();
+    }
+
+    public Collection<Waystone> getByVisibility(WaystoneVisibility visibility) {
+        return byVisibility.getOrDefault(visibility, Map.of()).values();
+    }
+
+    public Optional<Waystone> findByName(String name) {
+        return byName.getOrDefault(normalizeName(name), Map.of()).values().stream().findFirst();
+    }
+
+    /**
+     * Waystones whose name contains the search text, ignoring case. Only looks at the waystones sharing the search text's rarest trigram, so the
+     * search text must be at least {@link #MIN_SEARCH_LENGTH} characters long.
+     */
+    public List<Waystone> findByNameContaining(String searchText) {
+        final var lowerCaseSearchText = searchText.toLowerCase(Locale.ROOT);
+        Map<UUID, Waystone> candidates = null;
+        for (final var trigram : trigramsOf(lowerCaseSearchText)) {
+            final var bucket = byNameTrigram.get(trigram);
+            if (bucket == null) {
+                return List.of();
+            } else if (candidates == null || bucket.size() < candidates.size()) {
+                candidates = bucket;
+            }
+        }
+
+        if (candidates == null) {
+            throw new IllegalArgumentException("Search text must be at least " + MIN_SEARCH_LENGTH + " characters long");
+        }
+
+        final var result = new ArrayList<Waystone>();
+        for (final var waystone : candidates.values()) {
+            if (waystone.getName().getString().toLowerCase(Locale.ROOT).contains(lowerCaseSearchText)) {
+                result.add(waystone);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> trigramsOf(String text) {
+        if (text.length() < MIN_SEARCH_LENGTH) {
+            return Set.of();
+        }
+
+        final var trigrams = new HashSet<String>(text.length());
+        for (int i = 0; i + MIN_SEARCH_LENGTH <= text.length(); i++) {
+            trigrams.add(text.substring(i, i + MIN_SEARCH_LENGTH));
+        }
+        return trigrams;
+    }
+
+    private static <K> void removeFrom(Map<K, Map<UUID, Waystone>> index, K key, UUID waystoneUid) {
+        final var bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(waystoneUid);
+            if (bucket.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    public static String normalizeName(String name) {
+        return name.trim();
+    }
+}
@@ -12,7 +12,9 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.core.HolderLookup;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
 import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
@@ -21,41 +23,264 @@ import net.minecraft.world.level.BlockGetter;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.saveddata.SavedData;
+import net.minecraft.world.level.storage.DimensionDataStorage;
+import net.minecraft.world.level.storage.LevelResource;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 public class WaystoneManagerImpl extends SavedData implements WaystoneManager {
 
     private static final String DATA_NAME = Waystones.MOD_ID;
     private static final String TAG_WAYSTONES = "Waystones";
+    private static final String TAG_SHARDS = "Shards";
+    private static final String TAG_CATALOGUE_ID = "CatalogueId";
+    private static final AtomicLong serverModificationEpoch = new AtomicLong();
+    private static final AtomicLong clientModificationEpoch = new AtomicLong();
     private static final WaystoneManagerImpl clientStorageCopy = new WaystoneManagerImpl();
 
     private final Map<UUID, Waystone> waystones = new HashMap<>();
+    private final WaystoneSpatialIndex spatialIndex = new WaystoneSpatialIndex();
+    private final WaystoneLookupIndex lookupIndex = new WaystoneLookupIndex();
+    private final WaystoneHandleTable handles = new WaystoneHandleTable();
+    private final Set<String> shardNames = new LinkedHashSet<>();
+    private final Map<ResourceKey<Level>, WaystoneRegistryShard> shards = new HashMap<>();
+    private final Map<UUID, WaystoneRegistryShard> shardsByWaystone = new HashMap<>();
+    private DimensionDataStorage dataStorage;
+    private WaystoneMutationJournal journal;
+    private boolean loadedFromDisk;
+    private UUID catalogueId = UUID.randomUUID();
+    private long indexRevision;
+
+    public WaystoneManagerImpl() {
+        // Apart from the client copy created up front, every new instance replaces a server-side manager
+        serverModificationEpoch.incrementAndGet();
+    }
 
     public void addWaystone(Waystone waystone) {
         waystones.put(waystone.getWaystoneUid(), waystone);
-        setDirty();
+        index(waystone);
+        bumpModificationEpoch();
+        recordPut(waystone);
         Balm.getEvents().fireEvent(new WaystoneInitializedEvent(waystone));
     }
 
     public void updateWaystone(Waystone waystone) {
-        WaystoneImpl mutableWaystone = (WaystoneImpl) waystones.getOrDefault(waystone.getWaystoneUid(), waystone);
+        if (waystone instanceof WaystoneImpl receivedWaystone && receivedWaystone.isSnapshot()) {
+            // Snapshots from an integrated server are never changed on its side, so they are kept as they are instead of copied into our own instance
+            final var previousWaystone = waystones.put(waystone.getWaystoneUid(), waystone);
+            if (previousWaystone != waystone) {
+                if (previousWaystone != null) {
+                    unindex(previousWaystone);
+                }
+                bumpModificationEpoch();
+            }
+            index(waystone);
+            markDirty(waystone);
+            recordPut(waystone);
+            Balm.getEvents().fireEvent(new WaystoneUpdatedEvent(waystone));
+            return;
+        }
+
+        // A snapshot stored earlier is shared with the integrated server's cache, so it is replaced rather than changed in place
+        final var existingWaystone = waystones.get(waystone.getWaystoneUid());
+        final WaystoneImpl mutableWaystone;
+        if (existingWaystone instanceof WaystoneImpl existingImpl && !existingImpl.isSnapshot()) {
+            mutableWaystone = existingImpl;
+        } else if (waystone instanceof WaystoneImpl receivedImpl) {
+            mutableWaystone = receivedImpl;
+        } else {
+            mutableWaystone = WaystoneImpl.copyOf(waystone);
+        }
         mutableWaystone.setName(waystone.getName());
         mutableWaystone.setVisibility(waystone.getVisibility());
-        waystones.put(waystone.getWaystoneUid(), mutableWaystone);
-        setDirty();
+        if (mutableWaystone != waystone && waystone instanceof WaystoneImpl receivedWaystone && receivedWaystone.getHandle() != WaystoneHandleTable.NO_HANDLE) {
+            mutableWaystone.setHandle(receivedWaystone.getHandle());
+        }
+        final var previousWaystone = waystones.put(waystone.getWaystoneUid(), mutableWaystone);
+        if (previousWaystone != mutableWaystone) {
+            if (previousWaystone != null) {
+                unindex(previousWaystone);
+            }
+            bumpModificationEpoch();
+        }
+        index(mutableWaystone);
+        markDirty(mutableWaystone);
+        recordPut(mutableWaystone);
         Balm.getEvents().fireEvent(new WaystoneUpdatedEvent(waystone));
     }
 
     public void removeWaystone(Waystone waystone) {
-        waystones.remove(waystone.getWaystoneUid());
-        setDirty();
+        final var removedWaystone = waystones.remove(waystone.getWaystoneUid());
+        if (removedWaystone != null) {
+            unindex(removedWaystone);
+            bumpModificationEpoch();
+            if (this == clientStorageCopy) {
+                WaystoneProxyRegistry.forgetClientProxy(removedWaystone.getWaystoneUid());
+            } else {
+                WaystoneProxyRegistry.forgetServerProxy(removedWaystone.getWaystoneUid());
+            }
+            if (journal != null) {
+                journal.recordRemove(removedWaystone.getWaystoneUid());
+                setDirty();
+            }
+        }
         Balm.getEvents().fireEvent(new WaystoneRemovedEvent(waystone));
     }
 
+    /**
+     * Bumped whenever a waystone is added to or removed from a manager of the given side, or a server-side manager is replaced. Lets
+     * {@link WaystoneProxy} keep its resolved waystone until something actually changed on its side.
+     */
+    public static long getModificationEpoch(boolean client) {
+        return client ? clientModificationEpoch.get() : serverModificationEpoch.get();
+    }
+
+    private void bumpModificationEpoch() {
+        (this == clientStorageCopy ? clientModificationEpoch : serverModificationEpoch).incrementAndGet();
+    }
+
+    /**
+     * Bumped whenever a waystone of this manager is added, removed or changed, so that results derived from the indexes can be cached until then.
+     */
+    public long getIndexRevision() {
+        return indexRevision;
+    }
+
+    /**
+     * Identifies this world's registry to client catalogue caches, so that cached lists from another world on the same server address are never
+     * mistaken for this one's.
+     */
+    public UUID getCatalogueId() {
+        return catalogueId;
+    }
+
+    void onWaystoneChanged(Waystone waystone) {
+        if (waystones.get(waystone.getWaystoneUid()) == waystone) {
+            spatialIndex.add(waystone);
+            lookupIndex.add(waystone);
+            assignShard(waystone);
+            markDirty(waystone);
+            recordPut(waystone);
+            indexRevision++;
+        }
+    }
+
+    private void recordPut(Waystone waystone) {
+        if (journal != null) {
+            journal.recordPut(waystone);
+            // Saving the registry is what rotates the journal, so make sure it happens on the next save
+            setDirty();
+        }
+    }
+
+    /**
+     * Flags a single waystone to be written on the next save, leaving the rest of the registry untouched.
+     */
+    public void markDirty(Waystone waystone) {
+        final var shard = shardsByWaystone.get(waystone.getWaystoneUid());
+        if (shard != null) {
+            shard.markDirty(waystone.getWaystoneUid());
+        }
+    }
+
+    public void flushChanges(HolderLookup.Provider provider) {
+        if (journal != null) {
+            journal.flush(provider);
+        }
+        for (final var shard : shards.values()) {
+            shard.snapshotDirty(provider);
+        }
+    }
+
+    private void index(Waystone waystone) {
+        indexRevision++;
+        spatialIndex.add(waystone);
+        lookupIndex.add(waystone);
+        assignShard(waystone);
+        if (waystone instanceof WaystoneImpl waystoneImpl) {
+            if (waystoneImpl.isSnapshot()) {
+                // Snapshots never change, so there is nothing to be notified about, and their handle is whatever the server gave them
+                handles.claim(waystone.getWaystoneUid(), waystoneImpl.getHandle(), true);
+            } else {
+                waystoneImpl.attachManager(this);
+                assignHandle(waystoneImpl);
+            }
+        }
+    }
+
+    private void unindex(Waystone waystone) {
+        indexRevision++;
+        spatialIndex.remove(waystone.getWaystoneUid());
+        lookupIndex.remove(waystone.getWaystoneUid());
+        handles.release(waystone.getWaystoneUid());
+        final var shard = shardsByWaystone.remove(waystone.getWaystoneUid());
+        if (shard != null) {
+            shard.remove(waystone.getWaystoneUid());
+        }
+        if (waystone instanceof WaystoneImpl waystoneImpl) {
+            waystoneImpl.detachManager(this);
+        }
+    }
+
+    private void assignShard(Waystone waystone) {
+        if (dataStorage == null) {
+            return;
+        }
+
+        final var shard = shards.computeIfAbsent(waystone.getDimension(), dimension -> {
+            final var shardName = WaystoneRegistryShard.getDataName(dimension);
+            if (shardNames.add(shardName)) {
+                setDirty();
+            }
+            return WaystoneRegistryShard.get(dataStorage, shardName);
+        });
+        final var previousShard = shardsByWaystone.put(waystone.getWaystoneUid(), shard);
+        if (previousShard != null && previousShard != shard) {
+            previousShard.remove(waystone.getWaystoneUid());
+        }
+        if (!shard.contains(waystone)) {
+            shard.add(waystone);
+        }
+    }
+
+    private void assignHandle(WaystoneImpl waystone) {
+        final var handle = waystone.getHandle();
+        if (this == clientStorageCopy) {
+            // The server is authoritative for handles, the client only mirrors what it was sent
+            handles.claim(waystone.getWaystoneUid(), handle, true);
+        } else if (handle == WaystoneHandleTable.NO_HANDLE || !handles.claim(waystone.getWaystoneUid(), handle, false)) {
+            waystone.setHandle(handles.assign(waystone.getWaystoneUid()));
+            markDirty(waystone);
+        }
+    }
+
+    public int getHandle(Waystone waystone) {
+        final var handle = WaystoneImpl.handleOf(waystone);
+        if (handle != WaystoneHandleTable.NO_HANDLE && waystone.getWaystoneUid().equals(handles.getWaystoneUid(handle))) {
+            return handle;
+        }
+
+        return handles.getHandle(waystone.getWaystoneUid());
+    }
+
+    @Nullable
+    public UUID getWaystoneUid(int handle) {
+        return handles.getWaystoneUid(handle);
+    }
+
+    public int getHandleForSlot(int slot) {
+        return handles.getHandleForSlot(slot);
+    }
+
+    public Optional<Waystone> getWaystoneByHandle(int handle) {
+        final var waystoneUid = handles.getWaystoneUid(handle);
+        return waystoneUid != null ? getWaystoneById(waystoneUid) : Optional.empty();
+    }
+
     @Override
     public Optional<Waystone> getWaystoneAt(BlockGetter world, BlockPos pos) {
         BlockEntity blockEntity = world.getBlockEntity(pos);
@@ -73,7 +298,7 @@ public class WaystoneManagerImpl extends SavedData implements WaystoneManager {
 
     @Override
     public Optional<Waystone> findWaystoneByName(String name) {
-        return waystones.values().stream().filter(it -> it.getName().equals(name)).findFirst();
+        return lookupIndex.findByName(name);
     }
 
     @Override
@@ -83,42 +308,124 @@ public class WaystoneManagerImpl extends SavedData implements WaystoneManager {
 
     @Override
     public Stream<Waystone> getWaystonesByType(ResourceLocation type) {
-        return waystones.values().stream()
-                .filter(it -> it.getWaystoneType().equals(type));
+        return lookupIndex.getByType(type).stream();
+    }
+
+    /**
+     * Waystones whose name contains the search text, ignoring case. The search text must be at least
+     * {@link WaystoneLookupIndex#MIN_SEARCH_LENGTH} characters long.
+     */
+    public List<Waystone> findWaystonesByNameContaining(String searchText) {
+        return lookupIndex.findByNameContaining(searchText);
     }
 
     @Override
     public List<Waystone> getGlobalWaystones() {
-        return waystones.values().stream().filter(it -> it.getVisibility() == WaystoneVisibility.GLOBAL).collect(Collectors.toList());
+        return new ArrayList<>(lookupIndex.getByVisibility(WaystoneVisibility.GLOBAL));
+    }
+
+    @Override
+    public List<Waystone> getWaystonesWithinDistance(ResourceKey<Level> dimension, BlockPos pos, double distance, Predicate<Waystone> filter) {
+        return spatialIndex.getWithinDistance(dimension, pos, distance, filter);
+    }
+
+    public WaystoneSpatialIndex.NearestResult findNearestWaystones(ResourceKey<Level> dimension, BlockPos pos, int count, Predicate<Waystone> filter, int maxChecked) {
+        return spatialIndex.getNearest(dimension, pos, count, filter, maxChecked);
+    }
+
+    @Override
+    public List<Waystone> getNearestWaystones(ResourceKey<Level> dimension, BlockPos pos, int count, Predicate<Waystone> filter) {
+        return spatialIndex.getNearest(dimension, pos, count, filter);
     }
 
     public static WaystoneManagerImpl read(CompoundTag tagCompound, HolderLookup.Provider provider) {
         WaystoneManagerImpl waystoneManager = new WaystoneManagerImpl();
+        waystoneManager.loadedFromDisk = true;
+        for (Tag tag : tagCompound.getList(TAG_SHARDS, Tag.TAG_STRING)) {
+            waystoneManager.shardNames.add(tag.getAsString());
+        }
+        if (tagCompound.hasUUID(TAG_CATALOGUE_ID)) {
+            waystoneManager.catalogueId = tagCompound.getUUID(TAG_CATALOGUE_ID);
+        } else {
+            waystoneManager.setDirty();
+        }
+
+        // Registries from before sharding kept every waystone in this file; they are moved into shards once loaded
         ListTag tagList = tagCompound.getList(TAG_WAYSTONES, Tag.TAG_COMPOUND);
         for (Tag tag : tagList) {
             CompoundTag compound = (CompoundTag) tag;
             Waystone waystone = WaystoneImpl.read(compound, provider);
             waystoneManager.waystones.put(waystone.getWaystoneUid(), waystone);
         }
-        Balm.getEvents().fireEvent(new WaystonesLoadedEvent(waystoneManager));
+        if (!tagList.isEmpty()) {
+            waystoneManager.setDirty();
+        }
         return waystoneManager;
     }
 
+    private void loadShards(MinecraftServer server, DimensionDataStorage dataStorage) {
+        this.dataStorage = dataStorage;
+        final var loadedShards = new ArrayList<WaystoneRegistryShard>();
+        for (String shardName : List.copyOf(shardNames)) {
+            final var shard = WaystoneRegistryShard.get(dataStorage, shardName);
+            loadedShards.add(shard);
+            for (Waystone waystone : shard.getWaystones()) {
+                waystones.putIfAbsent(waystone.getWaystoneUid(), waystone);
+            }
+        }
+
+        // Apply whatever changed after the last save; replayed waystones are re-added to their shard when indexed below
+        journal = new WaystoneMutationJournal(server.getWorldPath(LevelResource.ROOT).resolve("data"));
+        journal.replay(server.registryAccess(), waystone -> {
+            loadedShards.forEach(shard -> shard.remove(waystone.getWaystoneUid()));
+            waystones.put(waystone.getWaystoneUid(), waystone);
+            setDirty();
+        }, waystoneUid -> {
+            loadedShards.forEach(shard -> shard.remove(waystoneUid));
+            waystones.remove(waystoneUid);
+            setDirty();
+        });
+
+        // Restore all persisted handles first so that newly assigned ones can't steal their slots
+        for (Waystone waystone : waystones.values()) {
+            handles.claim(waystone.getWaystoneUid(), WaystoneImpl.handleOf(waystone), false);
+        }
+        handles.rebuildFreeSlots();
+        for (Waystone waystone : waystones.values()) {
+            index(waystone);
+        }
+
+        if (loadedFromDisk) {
+            Balm.getEvents().fireEvent(new WaystonesLoadedEvent(this));
+        }
+    }
+
     @Override
     public CompoundTag save(CompoundTag tagCompound, HolderLookup.Provider provider) {
+        if (journal != null) {
+            // Every dirty shard is saved in this same pass, so the changes logged up to now are covered from here on
+            journal.rotate();
+        }
+
         ListTag tagList = new ListTag();
-        for (Waystone waystone : waystones.values()) {
-            tagList.add(WaystoneImpl.write(waystone, new CompoundTag(), provider));
+        for (String shardName : shardNames) {
+            tagList.add(StringTag.valueOf(shardName));
         }
-        tagCompound.put(TAG_WAYSTONES, tagList);
+        tagCompound.put(TAG_SHARDS, tagList);
+        tagCompound.putUUID(TAG_CATALOGUE_ID, catalogueId);
         return tagCompound;
     }
 
     public static WaystoneManagerImpl get(@Nullable MinecraftServer server) {
         if (server != null) {
             ServerLevel overworld = server.getLevel(Level.OVERWORLD);
-            return Objects.requireNonNull(overworld).getDataStorage().computeIfAbsent(new Factory<>(WaystoneManagerImpl::new, WaystoneManagerImpl::read,
+            final var dataStorage = Objects.requireNonNull(overworld).getDataStorage();
+            final var waystoneManager = dataStorage.computeIfAbsent(new Factory<>(WaystoneManagerImpl::new, WaystoneManagerImpl::read,
                     DataFixTypes.SAVED_DATA_MAP_DATA), DATA_NAME); // TODO this is most likely wrong but I don't think Forge has a solution, Fabric allows null
+            if (waystoneManager.dataStorage == null) {
+                waystoneManager.loadShards(server, dataStorage);
+            }
+            return waystoneManager;
         }
 
         return clientStorageCopy;
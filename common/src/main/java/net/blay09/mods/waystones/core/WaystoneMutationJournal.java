@@ -0,0 +1,221 @@
+package net.blay09.mods.waystones.core;
+
+import net.blay09.mods.waystones.Waystones;
+import net.blay09.mods.waystones.api.Waystone;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of waystone registry changes since the last world save. Changes are collected during a tick, encoded at the end of it and
+ * handed to a background writer, which appends everything that has piled up with a single fsync. A crash between autosaves can then be recovered
+ * by replaying the log on top of the last saved registry.
+ * <p>
+ * On every registry save the current log is rotated out and the previous one discarded, since by then the save before it has been written.
+ */
+public class WaystoneMutationJournal {
+
+    private static final String FILE_NAME = Waystones.MOD_ID + "_journal.bin";
+    private static final String ROTATED_FILE_NAME = Waystones.MOD_ID + "_journal.old.bin";
+
+    private static ExecutorService writer;
+
+    private final Path journalPath;
+    private final Path rotatedJournalPath;
+    private final Map<UUID, Waystone> pendingChanges = new LinkedHashMap<>();
+    private final Queue<byte[]> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+    public WaystoneMutationJournal(Path dataFolder) {
+        this.journalPath = dataFolder.resolve(FILE_NAME);
+        this.rotatedJournalPath = dataFolder.resolve(ROTATED_FILE_NAME);
+    }
+
+    public void recordPut(Waystone waystone) {
+        pendingChanges.put(waystone.getWaystoneUid(), waystone);
+    }
+
+    public void recordRemove(UUID waystoneUid) {
+        pendingChanges.put(waystoneUid, null);
+    }
+
+    public void flush(HolderLookup.Provider provider) {
+        if (pendingChanges.isEmpty()) {
+            return;
+        }
+
+        final var bytes = new ByteArrayOutputStream();
+        try (final var output = new DataOutputStream(bytes)) {
+            for (final var entry : pendingChanges.entrySet()) {
+                final var record = new CompoundTag();
+                record.put("WaystoneUid", NbtUtils.createUUID(entry.getKey()));
+                if (entry.getValue() != null) {
+                    record.put("Waystone", WaystoneImpl.write(entry.getValue(), new CompoundTag(), provider));
+                } else {
+                    record.putBoolean("Removed", true);
+                }
+
+                final var recordBytes = new ByteArrayOutputStream();
+                NbtIo.write(record, new DataOutputStream(recordBytes));
+                output.writeInt(recordBytes.size());
+                recordBytes.writeTo(output);
+            }
+        } catch (IOException e) {
+            Waystones.logger.error("Failed to encode waystone journal entries", e);
+            return;
+        }
+        pendingChanges.clear();
+
+        pendingWrites.add(bytes.toByteArray());
+        if (!writeScheduled.getAndSet(true)) {
+            getWriter().execute(this::writePending);
+        }
+    }
+
+    private void writePending() {
+        // Cleared before draining so that anything added from here on schedules another pass
+        writeScheduled.set(false);
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(journalPath.getParent());
+        } catch (IOException e) {
+            Waystones.logger.error("Failed to create waystone journal directory", e);
+        }
+
+        try (final var channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            byte[] bytes;
+            while ((bytes = pendingWrites.poll()) != null) {
+                final var buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            Waystones.logger.error("Failed to append to waystone journal", e);
+        }
+    }
+
+    /**
+     * Blocks until everything handed to the background writer so far has been written.
+     */
+    public void awaitWrites() {
+        final ExecutorService currentWriter;
+        synchronized (WaystoneMutationJournal.class) {
+            currentWriter = writer;
+        }
+        if (currentWriter == null) {
+            return;
+        }
+
+        try {
+            // The writer runs tasks in order, so once this no-op has run every earlier write has finished
+            currentWriter.submit(() -> {
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException e) {
+            Waystones.logger.error("Failed to wait for waystone journal writes", e);
+        }
+    }
+
+    private static synchronized ExecutorService getWriter() {
+        if (writer == null) {
+            writer = Executors.newSingleThreadExecutor(runnable -> {
+                final var thread = new Thread(runnable, "Waystones Journal Writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return writer;
+    }
+
+    /**
+     * Finishes all pending writes and stops the background writer. A new one is started on demand, e.g. when another world is loaded.
+     */
+    public static void shutdownWriter() {
+        final ExecutorService stoppedWriter;
+        synchronized (WaystoneMutationJournal.class) {
+            stoppedWriter = writer;
+            writer = null;
+        }
+        if (stoppedWriter == null) {
+            return;
+        }
+
+        stoppedWriter.shutdown();
+        try {
+            if (!stoppedWriter.awaitTermination(10, TimeUnit.SECONDS)) {
+                Waystones.logger.warn("Timed out waiting for the waystone journal writer to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Replays the rotated log followed by the current one. A truncated record at the end of a log, e.g. from a crash mid-write, ends that log.
+     */
+    public void replay(HolderLookup.Provider provider, Consumer<Waystone> onPut, Consumer<UUID> onRemove) {
+        replay(rotatedJournalPath, provider, onPut, onRemove);
+        replay(journalPath, provider, onPut, onRemove);
+    }
+
+    private static void replay(Path path, HolderLookup.Provider provider, Consumer<Waystone> onPut, Consumer<UUID> onRemove) {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try (final var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                final int length;
+                try {
+                    length = input.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                final var recordBytes = new byte[length];
+                input.readFully(recordBytes);
+                final var record = NbtIo.read(new DataInputStream(new ByteArrayInputStream(recordBytes)));
+                if (record.getBoolean("Removed")) {
+                    onRemove.accept(NbtUtils.loadUUID(Objects.requireNonNull(record.get("WaystoneUid"))));
+                } else {
+                    onPut.accept(WaystoneImpl.read(record.getCompound("Waystone"), provider));
+                }
+            }
+        } catch (EOFException e) {
+            Waystones.logger.warn("Waystone journal {} ends in an incomplete entry, ignoring it", path.getFileName());
+        } catch (IOException | RuntimeException e) {
+            Waystones.logger.error("Failed to replay waystone journal {}", path.getFileName(), e);
+        }
+    }
+
+    public void rotate() {
+        awaitWrites();
+        try {
+            Files.deleteIfExists(rotatedJournalPath);
+            if (Files.exists(journalPath)) {
+                Files.move(journalPath, rotatedJournalPath, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            Waystones.logger.error("Failed to rotate waystone journal", e);
+        }
+    }
+}
@@ -18,6 +18,7 @@ public class WaystoneProxy implements Waystone, MutableWaystone {
     private final MinecraftServer server;
     private final UUID waystoneUid;
     private Waystone backingWaystone;
+    private long backingEpoch;
 
     public WaystoneProxy(@Nullable MinecraftServer server, UUID waystoneUid) {
         this.server = server;
@@ -36,12 +37,14 @@ public class WaystoneProxy implements Waystone, MutableWaystone {
 
     @Override
     public boolean isValid() {
-        return WaystoneManagerImpl.get(server).getWaystoneById(waystoneUid).isPresent();
+        return getBackingWaystone() != InvalidWaystone.INSTANCE;
     }
 
     public Waystone getBackingWaystone() {
-        if (backingWaystone == null) {
+        final var epoch = WaystoneManagerImpl.getModificationEpoch(server == null);
+        if (backingWaystone == null || backingEpoch != epoch) {
             backingWaystone = WaystoneManagerImpl.get(server).getWaystoneById(waystoneUid).orElse(InvalidWaystone.INSTANCE);
+            backingEpoch = epoch;
         }
 
         return backingWaystone;
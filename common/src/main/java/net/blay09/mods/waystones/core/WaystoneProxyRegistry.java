@@ -0,0 +1,59 @@
+package net.blay09.mods.waystones.core;
+
+import net.minecraft.server.MinecraftServer;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns one {@link WaystoneProxy} per waystone UUID and side, so that item stacks, block entities and messages referring to the same waystone
+ * share a proxy and its resolved backing waystone. Server proxies are only interned for waystones that exist, so UUIDs sent by clients or stored
+ * in stale items cannot grow the registry.
+ */
+public class WaystoneProxyRegistry {
+
+    private static final Map<UUID, WaystoneProxy> clientProxies = new ConcurrentHashMap<>();
+    private static final Map<UUID, WaystoneProxy> serverProxies = new ConcurrentHashMap<>();
+    private static MinecraftServer currentServer;
+
+    public static WaystoneProxy get(@Nullable MinecraftServer server, UUID waystoneUid) {
+        if (server == null) {
+            return clientProxies.computeIfAbsent(waystoneUid, it -> new WaystoneProxy(null, it));
+        }
+
+        if (currentServer != server) {
+            serverProxies.clear();
+            currentServer = server;
+        }
+
+        final var proxy = serverProxies.get(waystoneUid);
+        if (proxy != null) {
+            return proxy;
+        }
+
+        if (WaystoneManagerImpl.get(server).getWaystoneById(waystoneUid).isEmpty()) {
+            return new WaystoneProxy(server, waystoneUid);
+        }
+
+        return serverProxies.computeIfAbsent(waystoneUid, it -> new WaystoneProxy(server, it));
+    }
+
+    public static void forgetServerProxy(UUID waystoneUid) {
+        serverProxies.remove(waystoneUid);
+    }
+
+    public static void forgetClientProxy(UUID waystoneUid) {
+        clientProxies.remove(waystoneUid);
+    }
+
+    public static void clearServerProxies() {
+        serverProxies.clear();
+        currentServer = null;
+    }
+
+    public static void clearClientProxies() {
+        clientProxies.clear();
+    }
+}
@@ -0,0 +1,119 @@
+package net.blay09.mods.waystones.core;
+
+import net.blay09.mods.waystones.Waystones;
+import net.blay09.mods.waystones.api.Waystone;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.util.datafix.DataFixTypes;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.saveddata.SavedData;
+import net.minecraft.world.level.storage.DimensionDataStorage;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One dimension's slice of the waystone registry, saved to its own file. Entries that have not changed since the last save are written from
+ * their cached tag instead of being encoded again.
+ */
+public class WaystoneRegistryShard extends SavedData {
+
+    private static final String TAG_WAYSTONES = "Waystones";
+
+    private final Map<UUID, Waystone> waystones = new LinkedHashMap<>();
+    private final Map<UUID, CompoundTag> encodedWaystones = new HashMap<>();
+    private final Map<UUID, CompletableFuture<CompoundTag>> pendingEncodes = new HashMap<>();
+    private final Set<UUID> dirtyWaystones = new HashSet<>();
+
+    public Collection<Waystone> getWaystones() {
+        return waystones.values();
+    }
+
+    public boolean contains(Waystone waystone) {
+        return waystones.get(waystone.getWaystoneUid()) == waystone;
+    }
+
+    public void add(Waystone waystone) {
+        waystones.put(waystone.getWaystoneUid(), waystone);
+        markDirty(waystone.getWaystoneUid());
+    }
+
+    public void remove(UUID waystoneUid) {
+        if (waystones.remove(waystoneUid) != null) {
+            encodedWaystones.remove(waystoneUid);
+            pendingEncodes.remove(waystoneUid);
+            dirtyWaystones.remove(waystoneUid);
+            setDirty();
+        }
+    }
+
+    public void markDirty(UUID waystoneUid) {
+        if (waystones.containsKey(waystoneUid)) {
+            encodedWaystones.remove(waystoneUid);
+            pendingEncodes.remove(waystoneUid);
+            dirtyWaystones.add(waystoneUid);
+            setDirty();
+        }
+    }
+
+    /**
+     * Hands copies of everything that changed since the last call to the background encoder.
+     */
+    public void snapshotDirty(HolderLookup.Provider provider) {
+        for (final var waystoneUid : dirtyWaystones) {
+            pendingEncodes.put(waystoneUid, WaystoneSnapshotEncoder.encode(waystones.get(waystoneUid), provider));
+        }
+        dirtyWaystones.clear();
+    }
+
+    public static WaystoneRegistryShard read(CompoundTag tagCompound, HolderLookup.Provider provider) {
+        final var shard = new WaystoneRegistryShard();
+        final var tagList = tagCompound.getList(TAG_WAYSTONES, Tag.TAG_COMPOUND);
+        for (final var tag : tagList) {
+            final var compound = (CompoundTag) tag;
+            final var waystone = WaystoneImpl.read(compound, provider);
+            shard.waystones.put(waystone.getWaystoneUid(), waystone);
+            shard.encodedWaystones.put(waystone.getWaystoneUid(), compound);
+        }
+        return shard;
+    }
+
+    @Override
+    public CompoundTag save(CompoundTag tagCompound, HolderLookup.Provider provider) {
+        final var tagList = new ListTag();
+        for (final var waystone : waystones.values()) {
+            tagList.add(getEncoded(waystone, provider));
+        }
+        tagCompound.put(TAG_WAYSTONES, tagList);
+        return tagCompound;
+    }
+
+    private CompoundTag getEncoded(Waystone waystone, HolderLookup.Provider provider) {
+        final var waystoneUid = waystone.getWaystoneUid();
+        var encoded = encodedWaystones.get(waystoneUid);
+        if (encoded == null) {
+            final var pendingEncode = pendingEncodes.remove(waystoneUid);
+            if (pendingEncode != null) {
+                encoded = pendingEncode.join();
+            } else {
+                // Changed since the last snapshot, so encode on the spot
+                encoded = WaystoneImpl.write(waystone, new CompoundTag(), provider);
+                dirtyWaystones.remove(waystoneUid);
+            }
+            encodedWaystones.put(waystoneUid, encoded);
+        }
+        return encoded;
+    }
+
+    public static String getDataName(ResourceKey<Level> dimension) {
+        final var location = dimension.location();
+        return Waystones.MOD_ID + "_" + location.getNamespace() + "_" + location.getPath().replace('/', '_');
+    }
+
+    public static WaystoneRegistryShard get(DimensionDataStorage dataStorage, String dataName) {
+        return dataStorage.computeIfAbsent(new Factory<>(WaystoneRegistryShard::new, WaystoneRegistryShard::read, DataFixTypes.SAVED_DATA_MAP_DATA), dataName);
+    }
+}
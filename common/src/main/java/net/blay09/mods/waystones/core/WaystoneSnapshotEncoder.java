@@ -0,0 +1,58 @@
+package net.blay09.mods.waystones.core;
+
+import net.blay09.mods.waystones.Waystones;
+import net.blay09.mods.waystones.api.Waystone;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes detached copies of changed waystones on a background thread, so that a world save only has to collect tags that are already built.
+ */
+public class WaystoneSnapshotEncoder {
+
+    private static ExecutorService executor;
+
+    public static CompletableFuture<CompoundTag> encode(Waystone waystone, HolderLookup.Provider provider) {
+        final var snapshot = WaystoneImpl.copyOf(waystone);
+        return CompletableFuture.supplyAsync(() -> WaystoneImpl.write(snapshot, new CompoundTag(), provider), getExecutor());
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                final var thread = new Thread(runnable, "Waystones Snapshot Encoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Finishes all pending encodes and stops the background thread. A new one is started on demand, e.g. when another world is loaded.
+     */
+    public static void shutdown() {
+        final ExecutorService stoppedExecutor;
+        synchronized (WaystoneSnapshotEncoder.class) {
+            stoppedExecutor = executor;
+            executor = null;
+        }
+        if (stoppedExecutor == null) {
+            return;
+        }
+
+        stoppedExecutor.shutdown();
+        try {
+            if (!stoppedExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                Waystones.logger.warn("Timed out waiting for the waystone snapshot encoder to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package net.blay09.mods.waystones.core;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.*;
+
+/**
+ * User-defined waystone order as a hash-indexed linked list. Moves are O(1), ranks are rebuilt lazily on the first lookup after a change.
+ */
+public class WaystoneSortingIndex {
+
+    private static class Node {
+        private UUID waystoneUid;
+        private Node previous;
+        private Node next;
+
+        private Node(UUID waystoneUid) {
+            this.waystoneUid = waystoneUid;
+        }
+    }
+
+    private final Map<UUID, Node> nodes = new HashMap<>();
+    private final Object2IntMap<UUID> ranks = new Object2IntOpenHashMap<>();
+    private Node head;
+    private Node tail;
+    private boolean ranksStale;
+
+    public WaystoneSortingIndex() {
+        ranks.defaultReturnValue(-1);
+    }
+
+    public static WaystoneSortingIndex of(Collection<UUID> waystoneUids) {
+        final var sortingIndex = new WaystoneSortingIndex();
+        sortingIndex.setAll(waystoneUids);
+        return sortingIndex;
+    }
+
+    public boolean contains(UUID waystoneUid) {
+        return nodes.containsKey(waystoneUid);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public boolean add(UUID waystoneUid) {
+        if (nodes.containsKey(waystoneUid)) {
+            return false;
+        }
+
+        final var node = new Node(waystoneUid);
+        nodes.put(waystoneUid, node);
+        linkLast(node);
+        if (!ranksStale) {
+            ranks.put(waystoneUid, nodes.size() - 1);
+        }
+        return true;
+    }
+
+    public boolean remove(UUID waystoneUid) {
+        final var node = nodes.remove(waystoneUid);
+        if (node == null) {
+            return false;
+        }
+
+        unlink(node);
+        ranksStale = true;
+        return true;
+    }
+
+    public boolean moveToFirst(UUID waystoneUid) {
+        final var node = nodes.get(waystoneUid);
+        if (node == null || node == head) {
+            return false;
+        }
+
+        unlink(node);
+        node.next = head;
+        head.previous = node;
+        head = node;
+        ranksStale = true;
+        return true;
+    }
+
+    public boolean moveToLast(UUID waystoneUid) {
+        final var node = nodes.get(waystoneUid);
+        if (node == null || node == tail) {
+            return false;
+        }
+
+        unlink(node);
+        linkLast(node);
+        ranksStale = true;
+        return true;
+    }
+
+    public boolean swap(UUID waystoneUid, UUID otherWaystoneUid) {
+        final var node = nodes.get(waystoneUid);
+        final var otherNode = nodes.get(otherWaystoneUid);
+        if (node == null || otherNode == null || node == otherNode) {
+            return false;
+        }
+
+        node.waystoneUid = otherWaystoneUid;
+        otherNode.waystoneUid = waystoneUid;
+        nodes.put(waystoneUid, otherNode);
+        nodes.put(otherWaystoneUid, node);
+        if (!ranksStale) {
+            final var rank = ranks.getInt(waystoneUid);
+            ranks.put(waystoneUid, ranks.getInt(otherWaystoneUid));
+            ranks.put(otherWaystoneUid, rank);
+        }
+        return true;
+    }
+
+    public int getRank(UUID waystoneUid) {
+        if (ranksStale) {
+            ranks.clear();
+            var rank = 0;
+            for (var node = head; node != null; node = node.next) {
+                ranks.put(node.waystoneUid, rank++);
+            }
+            ranksStale = false;
+        }
+
+        return ranks.getInt(waystoneUid);
+    }
+
+    public void setAll(Collection<UUID> waystoneUids) {
+        nodes.clear();
+        ranks.clear();
+        head = null;
+        tail = null;
+        ranksStale = false;
+        for (final var waystoneUid : waystoneUids) {
+            add(waystoneUid);
+        }
+    }
+
+    public List<UUID> toList() {
+        final var result = new ArrayList<UUID>(nodes.size());
+        for (var node = head; node != null; node = node.next) {
+            result.add(node.waystoneUid);
+        }
+        return result;
+    }
+
+    private void linkLast(Node node) {
+        node.previous = tail;
+        node.next = null;
+        if (tail != null) {
+            tail.next = node;
+        } else {
+            head = node;
+        }
+        tail = node;
+    }
+
+    private void unlink(Node node) {
+        if (node.previous != null) {
+            node.previous.next = node.next;
+        } else {
+            head = node.next;
+        }
+
+        if (node.next != null) {
+            node.next.previous = node.previous;
+        } else {
+            tail = node.previous;
+        }
+
+        node.previous = null;
+        node.next = null;
+    }
+}
@@ -0,0 +1,218 @@
+package net.blay09.mods.waystones.core;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.blay09.mods.waystones.api.Waystone;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Buckets waystones into a coarse horizontal grid per dimension so that nearest and radius lookups only have to look at nearby cells.
+ */
+public class WaystoneSpatialIndex {
+
+    private static final int CELL_SHIFT = 6;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    private record IndexedLocation(ResourceKey<Level> dimension, long cell) {
+    }
+
+    /**
+     * Result of a nearest lookup that was given a budget. If the budget ran out before the result was certain, it is not complete and holds no
+     * waystones.
+     */
+    public record NearestResult(List<Waystone> waystones, boolean complete) {
+        private static final NearestResult INCOMPLETE = new NearestResult(List.of(), false);
+    }
+
+    private final Map<ResourceKey<Level>, Long2ObjectMap<List<Waystone>>> cellsByDimension = new HashMap<>();
+    private final Map<UUID, IndexedLocation> locations = new HashMap<>();
+    private final Object2IntMap<ResourceKey<Level>> countsByDimension = new Object2IntOpenHashMap<>();
+
+    public void add(Waystone waystone) {
+        remove(waystone.getWaystoneUid());
+        final var dimension = waystone.getDimension();
+        final var pos = waystone.getPos();
+        if (dimension == null || pos == null) {
+            return;
+        }
+
+        final var cell = cellKey(pos.getX() >> CELL_SHIFT, pos.getZ() >> CELL_SHIFT);
+        cellsByDimension.computeIfAbsent(dimension, it -> new Long2ObjectOpenHashMap<>())
+                .computeIfAbsent(cell, it -> new ArrayList<>())
+                .add(waystone);
+        locations.put(waystone.getWaystoneUid(), new IndexedLocation(dimension, cell));
+        countsByDimension.mergeInt(dimension, 1, Integer::sum);
+    }
+
+    public void remove(UUID waystoneUid) {
+        final var location = locations.remove(waystoneUid);
+        if (location == null) {
+            return;
+        }
+
+        if (countsByDimension.mergeInt(location.dimension(), -1, Integer::sum) <= 0) {
+            countsByDimension.removeInt(location.dimension());
+        }
+
+        final var cells = cellsByDimension.get(location.dimension());
+        if (cells == null) {
+            return;
+        }
+
+        final var bucket = cells.get(location.cell());
+        if (bucket != null) {
+            bucket.removeIf(it -> it.getWaystoneUid().equals(waystoneUid));
+            if (bucket.isEmpty()) {
+                cells.remove(location.cell());
+            }
+        }
+
+        if (cells.isEmpty()) {
+            cellsByDimension.remove(location.dimension());
+        }
+    }
+
+    public void clear() {
+        cellsByDimension.clear();
+        locations.clear();
+        countsByDimension.clear();
+    }
+
+    public int getCount(ResourceKey<Level> dimension) {
+        return countsByDimension.getInt(dimension);
+    }
+
+    public List<Waystone> getWithinDistance(ResourceKey<Level> dimension, BlockPos origin, double radius, Predicate<Waystone> filter) {
+        final var cells = cellsByDimension.get(dimension);
+        if (cells == null) {
+            return List.of();
+        }
+
+        final var result = new ArrayList<Waystone>();
+        final var radiusSqr = radius * radius;
+        final var minCellX = (int) Math.floor((origin.getX() - radius) / CELL_SIZE);
+        final var maxCellX = (int) Math.floor((origin.getX() + radius) / CELL_SIZE);
+        final var minCellZ = (int) Math.floor((origin.getZ() - radius) / CELL_SIZE);
+        final var maxCellZ = (int) Math.floor((origin.getZ() + radius) / CELL_SIZE);
+        final var cellCount = (long) (maxCellX - minCellX + 1) * (maxCellZ - minCellZ + 1);
+        if (cellCount > cells.size()) {
+            for (final var bucket : cells.values()) {
+                collectWithinDistance(bucket, origin, radiusSqr, filter, result);
+            }
+        } else {
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                    final var bucket = cells.get(cellKey(cellX, cellZ));
+                    if (bucket != null) {
+                        collectWithinDistance(bucket, origin, radiusSqr, filter, result);
+                    }
+                }
+            }
+        }
+
+        result.sort(Comparator.comparingDouble(it -> distanceSqr(it, origin)));
+        return result;
+    }
+
+    public List<Waystone> getNearest(ResourceKey<Level> dimension, BlockPos origin, int count, Predicate<Waystone> filter) {
+        return getNearest(dimension, origin, count, filter, Integer.MAX_VALUE).waystones();
+    }
+
+    /**
+     * Looks up the nearest waystones like {@link #getNearest(ResourceKey, BlockPos, int, Predicate)}, but gives up once more than
+     * {@code maxChecked} waystones have been tested against the filter, so that callers with a cheaper alternative can fall back to it.
+     */
+    public NearestResult getNearest(ResourceKey<Level> dimension, BlockPos origin, int count, Predicate<Waystone> filter, int maxChecked) {
+        final var cells = cellsByDimension.get(dimension);
+        if (cells == null || count <= 0) {
+            return new NearestResult(List.of(), true);
+        }
+
+        // Max-heap of the best candidates so far, so the furthest one can be evicted cheaply
+        final var candidates = new PriorityQueue<Waystone>(Comparator.comparingDouble((Waystone it) -> distanceSqr(it, origin)).reversed());
+        final var originCellX = origin.getX() >> CELL_SHIFT;
+        final var originCellZ = origin.getZ() >> CELL_SHIFT;
+        var visitedCells = 0;
+        var checked = 0;
+        for (int ring = 0; visitedCells < cells.size(); ring++) {
+            // Once the ring's inner edge is further away than our worst candidate, no remaining cell can improve the result
+            if (candidates.size() >= count) {
+                final var ringDistance = (double) (ring - 1) * CELL_SIZE;
+                if (ringDistance > 0 && ringDistance * ringDistance > distanceSqr(candidates.peek(), origin)) {
+                    break;
+                }
+            }
+
+            if (checked >= maxChecked) {
+                return NearestResult.INCOMPLETE;
+            }
+
+            // Sparse dimensions would make us walk a lot of empty rings, so just check every occupied cell instead at that point
+            final var ringSize = 2L * ring + 1;
+            if (ringSize * ringSize > (long) cells.size() * 4) {
+                if (getCount(dimension) > maxChecked) {
+                    return NearestResult.INCOMPLETE;
+                }
+
+                candidates.clear();
+                for (final var bucket : cells.values()) {
+                    collectNearest(bucket, count, filter, candidates);
+                }
+                break;
+            }
+
+            for (int cellX = originCellX - ring; cellX <= originCellX + ring; cellX++) {
+                for (int cellZ = originCellZ - ring; cellZ <= originCellZ + ring; cellZ++) {
+                    if (Math.abs(cellX - originCellX) != ring && Math.abs(cellZ - originCellZ) != ring) {
+                        continue;
+                    }
+
+                    final var bucket = cells.get(cellKey(cellX, cellZ));
+                    if (bucket != null) {
+                        visitedCells++;
+                        checked += bucket.size();
+                        collectNearest(bucket, count, filter, candidates);
+                    }
+                }
+            }
+        }
+
+        final var result = new ArrayList<>(candidates);
+        result.sort(Comparator.comparingDouble(it -> distanceSqr(it, origin)));
+        return new NearestResult(result, true);
+    }
+
+    private static void collectNearest(List<Waystone> bucket, int count, Predicate<Waystone> filter, PriorityQueue<Waystone> candidates) {
+        for (final var waystone : bucket) {
+            if (filter.test(waystone)) {
+                candidates.add(waystone);
+                if (candidates.size() > count) {
+                    candidates.poll();
+                }
+            }
+        }
+    }
+
+    private static void collectWithinDistance(List<Waystone> bucket, BlockPos origin, double radiusSqr, Predicate<Waystone> filter, List<Waystone> result) {
+        for (final var waystone : bucket) {
+            if (distanceSqr(waystone, origin) <= radiusSqr && filter.test(waystone)) {
+                result.add(waystone);
+            }
+        }
+    }
+
+    private static double distanceSqr(Waystone waystone, BlockPos origin) {
+        return waystone.getPos().distToCenterSqr(origin.getX() + 0.5, origin.getY() + 0.5, origin.getZ() + 0.5);
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+}
@@ -1,30 +1,74 @@
 package net.blay09.mods.waystones.core;
 
 import net.blay09.mods.balm.api.Balm;
+import net.blay09.mods.waystones.Waystones;
 import net.blay09.mods.waystones.api.Waystone;
-import net.blay09.mods.waystones.api.WaystoneCooldowns;
 import net.blay09.mods.waystones.api.WaystoneTypes;
 import net.blay09.mods.waystones.network.message.*;
+import net.minecraft.core.RegistryAccess;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.player.Player;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 public class WaystoneSyncManager {
 
+    /**
+     * Sync changes queued for a player during the current tick, sent as a single {@link WaystoneSyncBundleMessage} at the end of it.
+     * Repeated changes to the same waystone within a tick collapse into one entry.
+     */
+    private static class Outbox {
+        private boolean knownWaystonesDirty;
+        private final Map<UUID, Waystone> knownWaystoneUpdates = new LinkedHashMap<>();
+        private final Set<UUID> knownWaystoneRemovals = new LinkedHashSet<>();
+        private final Map<UUID, Waystone> waystoneUpdates = new LinkedHashMap<>();
+        private final Map<UUID, WaystoneRemovedMessage> waystoneRemovals = new LinkedHashMap<>();
+        private boolean sortingIndexDirty;
+        private boolean cooldownsDirty;
+        private final Set<ResourceLocation> cooldownUpdates = new LinkedHashSet<>();
+    }
+
+    /**
+     * Catalogue hashes offered to a player on login, kept until the client reports which lists it has cached or the wait times out.
+     */
+    private static class PendingInitialSync {
+        private final Map<ResourceLocation, Long> offeredHashes;
+        private int ticksWaited;
+
+        private PendingInitialSync(Map<ResourceLocation, Long> offeredHashes) {
+            this.offeredHashes = offeredHashes;
+        }
+    }
+
+    private static final int INITIAL_SYNC_TIMEOUT_TICKS = 100;
+    private static final int MIN_TICKS_BETWEEN_RESYNCS = 20;
+
+    private static final Map<UUID, KnownWaystonesSyncState> knownWaystonesSyncStates = new HashMap<>();
+    private static final Map<UUID, Outbox> outboxes = new LinkedHashMap<>();
+    private static final Map<UUID, PendingInitialSync> pendingInitialSyncs = new HashMap<>();
+    private static final Set<UUID> pendingResyncs = new LinkedHashSet<>();
+    private static final Map<UUID, Integer> lastResyncTicks = new HashMap<>();
+
     public static void sendWaystoneUpdateToAll(@Nullable MinecraftServer server, Waystone waystone) {
         if (server == null) {
             return;
         }
 
+        if (waystone.getWaystoneType().equals(WaystoneTypes.WAYSTONE)) {
+            // Only players who know the waystone care, and the known list delta already carries the update
+            for (ServerPlayer player : PlayerWaystoneManager.getPlayersWhoActivated(server, waystone)) {
+                sendKnownWaystoneUpdate(player, waystone);
+            }
+            return;
+        }
+
         List<ServerPlayer> players = server.getPlayerList().getPlayers();
         for (ServerPlayer player : players) {
-            sendWaystoneUpdate(player, waystone);
-            sendActivatedWaystones(player);
+            getOutbox(player).waystoneUpdates.put(waystone.getWaystoneUid(), waystone);
         }
     }
 
@@ -33,43 +77,309 @@ public class WaystoneSyncManager {
             return;
         }
 
-        List<ServerPlayer> players = server.getPlayerList().getPlayers();
+        final var players = waystone.getWaystoneType().equals(WaystoneTypes.WAYSTONE)
+                ? PlayerWaystoneManager.getPlayersWhoActivated(server, waystone)
+                : server.getPlayerList().getPlayers();
         for (ServerPlayer player : players) {
-            sendWaystoneRemoval(player, waystone, wasDestroyed);
+            queueWaystoneRemoval(player, waystone, wasDestroyed);
         }
     }
 
     public static void sendSortingIndex(Player player) {
-        final var sortingIndex = PlayerWaystoneManager.getSortingIndex(player);
-        Balm.getNetworking().sendTo(player, new SortingIndexMessage(sortingIndex));
+        getOutbox(player).sortingIndexDirty = true;
     }
 
     public static void sendActivatedWaystones(Player player) {
-        final var waystones = PlayerWaystoneManager.getActivatedWaystones(player);
-        Balm.getNetworking().sendTo(player, new KnownWaystonesMessage(WaystoneTypes.WAYSTONE, waystones));
+        if (!knownWaystonesSyncStates.containsKey(player.getUUID())) {
+            sendFullActivatedWaystones(player);
+            return;
+        }
+
+        getOutbox(player).knownWaystonesDirty = true;
+    }
+
+    public static void sendKnownWaystoneUpdate(Player player, Waystone waystone) {
+        final var outbox = getOutbox(player);
+        outbox.knownWaystoneRemovals.remove(waystone.getWaystoneUid());
+        outbox.knownWaystoneUpdates.put(waystone.getWaystoneUid(), waystone);
+    }
+
+    public static void sendKnownWaystoneRemoval(Player player, Waystone waystone) {
+        final var outbox = getOutbox(player);
+        outbox.knownWaystoneUpdates.remove(waystone.getWaystoneUid());
+        outbox.knownWaystoneRemovals.add(waystone.getWaystoneUid());
+    }
+
+    /**
+     * Handles a client asking for its full known waystones list. Clients that already have the latest version are ignored, and the rest are
+     * answered at the end of the tick, at most once every {@link #MIN_TICKS_BETWEEN_RESYNCS} ticks per player.
+     */
+    public static void requestResync(ServerPlayer player, int clientVersion) {
+        final var syncState = knownWaystonesSyncStates.get(player.getUUID());
+        if (syncState != null && syncState.getVersion() == clientVersion) {
+            return;
+        }
+
+        pendingResyncs.add(player.getUUID());
+    }
+
+    public static void resyncActivatedWaystones(Player player) {
+        final var outbox = outboxes.get(player.getUUID());
+        if (outbox != null) {
+            outbox.knownWaystonesDirty = false;
+            outbox.knownWaystoneUpdates.clear();
+            outbox.knownWaystoneRemovals.clear();
+        }
+        sendFullActivatedWaystones(player);
+    }
+
+    private static void sendFullActivatedWaystones(Player player) {
+        Balm.getNetworking().sendTo(player, createFullActivatedWaystonesMessage(player));
+    }
+
+    private static KnownWaystonesMessage createFullActivatedWaystonesMessage(Player player) {
+        var waystones = PlayerWaystoneManager.getActivatedWaystones(player);
+        if (player instanceof ServerPlayer serverPlayer) {
+            waystones = WaystoneListStreamer.beginKnownWaystonesStream(serverPlayer, waystones);
+        }
+        // Versions keep counting up across full syncs, so that a client still holding an older list never matches the current one
+        final var syncState = knownWaystonesSyncStates.computeIfAbsent(player.getUUID(), it -> new KnownWaystonesSyncState());
+        final var version = syncState.reset(waystones);
+        if (player instanceof ServerPlayer serverPlayer) {
+            waystones = LocalWaystoneChannel.prepare(serverPlayer, waystones);
+        }
+        return new KnownWaystonesMessage(WaystoneTypes.WAYSTONE, version, waystones);
+    }
+
+    /**
+     * Offers the content hashes of every list a player receives on login. The client answers with the lists it still has cached, which are then
+     * left out of {@link #sendInitialState(ServerPlayer, Set)}. Clients that do not answer in time are sent the full state instead.
+     */
+    public static void sendCatalogueHashes(ServerPlayer player) {
+        final var waystoneManager = WaystoneManagerImpl.get(player.server);
+        final var registryAccess = player.server.registryAccess();
+        final var hashes = new HashMap<ResourceLocation, Long>();
+        hashes.put(WaystoneTypes.WAYSTONE, WaystoneCatalogueHash.hash(PlayerWaystoneManager.getActivatedWaystones(player), registryAccess));
+        for (final var entry : getWaystonesByType(waystoneManager).entrySet()) {
+            hashes.put(entry.getKey(), WaystoneCatalogueHash.hash(entry.getValue(), registryAccess));
+        }
+        pendingInitialSyncs.put(player.getUUID(), new PendingInitialSync(hashes));
+        Balm.getNetworking().sendTo(player, new WaystoneCatalogueHashesMessage(waystoneManager.getCatalogueId(), hashes));
+    }
+
+    /**
+     * Sends the sorting index, known waystones, warp plates, sharestones and cooldowns of a player that just logged in as a single message.
+     * Lists the client reported as cached are only sent if they changed since their hash was offered. Changes queued while waiting for the
+     * client's answer follow right after it.
+     */
+    public static void sendInitialState(ServerPlayer player, Set<ResourceLocation> cachedTypes) {
+        final var pendingInitialSync = pendingInitialSyncs.remove(player.getUUID());
+        if (pendingInitialSync == null) {
+            return;
+        }
+
+        final var offeredHashes = pendingInitialSync.offeredHashes;
+        final var registryAccess = player.server.registryAccess();
+        final var reusedTypes = new ArrayList<ResourceLocation>();
+
+        final KnownWaystonesMessage knownWaystones;
+        final var activatedWaystones = PlayerWaystoneManager.getActivatedWaystones(player);
+        if (isCacheValid(WaystoneTypes.WAYSTONE, activatedWaystones, cachedTypes, offeredHashes, registryAccess)) {
+            final var syncState = knownWaystonesSyncStates.computeIfAbsent(player.getUUID(), it -> new KnownWaystonesSyncState());
+            knownWaystones = new KnownWaystonesMessage(WaystoneTypes.WAYSTONE, syncState.reset(activatedWaystones), List.of());
+            reusedTypes.add(WaystoneTypes.WAYSTONE);
+        } else {
+            knownWaystones = createFullActivatedWaystonesMessage(player);
+        }
+
+        final var waystonesByType = new ArrayList<KnownWaystonesMessage>(WaystoneTypes.SHARESTONES.length + 1);
+        for (final var entry : getWaystonesByType(WaystoneManagerImpl.get(player.server)).entrySet()) {
+            if (isCacheValid(entry.getKey(), entry.getValue(), cachedTypes, offeredHashes, registryAccess)) {
+                reusedTypes.add(entry.getKey());
+            } else {
+                waystonesByType.add(new KnownWaystonesMessage(entry.getKey(), LocalWaystoneChannel.prepare(player, entry.getValue())));
+            }
+        }
+
+        Balm.getNetworking().sendTo(player, new InitialWaystoneSyncMessage(
+                new SortingIndexMessage(PlayerWaystoneManager.getSortingIndex(player)),
+                knownWaystones,
+                waystonesByType,
+                reusedTypes,
+                PlayerWaystoneCooldownsMessage.full(PlayerWaystoneManager.getCooldowns(player))));
+
+        final var outbox = outboxes.remove(player.getUUID());
+        if (outbox != null) {
+            flush(player, outbox);
+        }
+    }
+
+    private static boolean isCacheValid(ResourceLocation type, Collection<Waystone> waystones, Set<ResourceLocation> cachedTypes, Map<ResourceLocation, Long> offeredHashes, RegistryAccess registryAccess) {
+        // The list may have changed while the client was looking up its cache, in which case the offered hash is stale
+        final var offeredHash = offeredHashes.get(type);
+        return cachedTypes.contains(type) && offeredHash != null && offeredHash == WaystoneCatalogueHash.hash(waystones, registryAccess);
+    }
+
+    private static Map<ResourceLocation, List<Waystone>> getWaystonesByType(WaystoneManagerImpl waystoneManager) {
+        final var waystonesByType = new LinkedHashMap<ResourceLocation, List<Waystone>>();
+        waystonesByType.put(WaystoneTypes.WARP_PLATE, waystoneManager.getWaystonesByType(WaystoneTypes.WARP_PLATE).toList());
+        for (ResourceLocation dyedSharestone : WaystoneTypes.SHARESTONES) {
+            waystonesByType.put(dyedSharestone, waystoneManager.getWaystonesByType(dyedSharestone).toList());
+        }
+        return waystonesByType;
+    }
+
+    public static void forgetPlayer(Player player) {
+        knownWaystonesSyncStates.remove(player.getUUID());
+        outboxes.remove(player.getUUID());
+        pendingInitialSyncs.remove(player.getUUID());
+        pendingResyncs.remove(player.getUUID());
+        lastResyncTicks.remove(player.getUUID());
     }
 
     public static void sendWaystonesOfType(ResourceLocation waystoneType, ServerPlayer player) {
         List<Waystone> warpPlates = WaystoneManagerImpl.get(player.server).getWaystonesByType(waystoneType).collect(Collectors.toList());
-        Balm.getNetworking().sendTo(player, new KnownWaystonesMessage(waystoneType, warpPlates));
+        Balm.getNetworking().sendTo(player, new KnownWaystonesMessage(waystoneType, LocalWaystoneChannel.prepare(player, warpPlates)));
     }
 
     public static void sendWaystoneUpdate(Player player, Waystone waystone) {
         // If this is a waystone, only send an update if the player has activated it already
-        if (!waystone.getWaystoneType().equals(WaystoneTypes.WAYSTONE) || PlayerWaystoneManager.isWaystoneActivated(player, waystone)) {
-            Balm.getNetworking().sendTo(player, new UpdateWaystoneMessage(waystone));
+        if (!waystone.getWaystoneType().equals(WaystoneTypes.WAYSTONE)) {
+            getOutbox(player).waystoneUpdates.put(waystone.getWaystoneUid(), waystone);
+        } else if (PlayerWaystoneManager.isWaystoneActivated(player, waystone)) {
+            sendKnownWaystoneUpdate(player, waystone);
         }
     }
 
     public static void sendWaystoneRemoval(Player player, Waystone waystone, boolean wasDestroyed) {
         // If this is a waystone, only send an update if the player has activated it already
         if (!waystone.getWaystoneType().equals(WaystoneTypes.WAYSTONE) || PlayerWaystoneManager.isWaystoneActivated(player, waystone)) {
-            Balm.getNetworking().sendTo(player, new WaystoneRemovedMessage(waystone.getWaystoneType(), waystone.getWaystoneUid(), wasDestroyed));
+            queueWaystoneRemoval(player, waystone, wasDestroyed);
         }
     }
 
+    private static void queueWaystoneRemoval(Player player, Waystone waystone, boolean wasDestroyed) {
+        final var outbox = getOutbox(player);
+        outbox.waystoneUpdates.remove(waystone.getWaystoneUid());
+        outbox.waystoneRemovals.put(waystone.getWaystoneUid(), new WaystoneRemovedMessage(waystone.getWaystoneType(), waystone.getWaystoneUid(), wasDestroyed));
+    }
+
+    /**
+     * Resends all of the player's cooldowns, e.g. after they were reset.
+     */
     public static void sendWaystoneCooldowns(Player player) {
-        final var cooldowns = PlayerWaystoneManager.getCooldowns(player);
-        Balm.getNetworking().sendTo(player, new PlayerWaystoneCooldownsMessage(cooldowns));
+        getOutbox(player).cooldownsDirty = true;
+    }
+
+    public static void sendCooldownUpdate(Player player, ResourceLocation key) {
+        getOutbox(player).cooldownUpdates.add(key);
+    }
+
+    private static Outbox getOutbox(Player player) {
+        return outboxes.computeIfAbsent(player.getUUID(), it -> new Outbox());
+    }
+
+    public static void flush(MinecraftServer server) {
+        if (!pendingInitialSyncs.isEmpty()) {
+            expirePendingInitialSyncs(server);
+        }
+
+        if (!pendingResyncs.isEmpty()) {
+            flushPendingResyncs(server);
+        }
+
+        if (outboxes.isEmpty()) {
+            return;
+        }
+
+        for (final var iterator = outboxes.entrySet().iterator(); iterator.hasNext(); ) {
+            final var entry = iterator.next();
+            // Players still waiting for their initial state keep their changes until it has been sent
+            if (pendingInitialSyncs.containsKey(entry.getKey())) {
+                continue;
+            }
+
+            final var player = server.getPlayerList().getPlayer(entry.getKey());
+            if (player != null) {
+                flush(player, entry.getValue());
+            }
+            iterator.remove();
+        }
+    }
+
+    private static void flushPendingResyncs(MinecraftServer server) {
+        final var tickCount = server.getTickCount();
+        for (final var iterator = pendingResyncs.iterator(); iterator.hasNext(); ) {
+            final var playerUid = iterator.next();
+            final var lastResyncTick = lastResyncTicks.get(playerUid);
+            if (lastResyncTick != null && tickCount - lastResyncTick < MIN_TICKS_BETWEEN_RESYNCS) {
+                continue;
+            }
+
+            final var player = server.getPlayerList().getPlayer(playerUid);
+            if (player != null) {
+                resyncActivatedWaystones(player);
+                lastResyncTicks.put(playerUid, tickCount);
+            }
+            iterator.remove();
+        }
+    }
+
+    private static void expirePendingInitialSyncs(MinecraftServer server) {
+        final var expiredPlayers = new ArrayList<UUID>();
+        for (final var entry : pendingInitialSyncs.entrySet()) {
+            if (++entry.getValue().ticksWaited > INITIAL_SYNC_TIMEOUT_TICKS) {
+                expiredPlayers.add(entry.getKey());
+            }
+        }
+
+        for (final var playerUid : expiredPlayers) {
+            final var player = server.getPlayerList().getPlayer(playerUid);
+            if (player != null) {
+                Waystones.logger.debug("{} did not report its cached waystone lists in time, sending the full state", player.getName().getString());
+                sendInitialState(player, Set.of());
+            } else {
+                pendingInitialSyncs.remove(playerUid);
+            }
+        }
+    }
+
+    private static void flush(ServerPlayer player, Outbox outbox) {
+        KnownWaystonesDeltaMessage knownWaystonesDelta = null;
+        final var syncState = knownWaystonesSyncStates.get(player.getUUID());
+        if (syncState != null) {
+            final KnownWaystonesSyncState.Delta delta;
+            if (outbox.knownWaystonesDirty) {
+                delta = syncState.diff(PlayerWaystoneManager.getActivatedWaystones(player));
+            } else {
+                delta = syncState.diffEntries(outbox.knownWaystoneUpdates.values(), outbox.knownWaystoneRemovals);
+            }
+            if (!delta.isEmpty()) {
+                final var changed = new ArrayList<>(LocalWaystoneChannel.prepare(player, delta.changed()));
+                knownWaystonesDelta = new KnownWaystonesDeltaMessage(delta.baseVersion(), delta.version(), changed, delta.removed());
+            }
+        }
+
+        final var updates = new ArrayList<UpdateWaystoneMessage>(outbox.waystoneUpdates.size());
+        for (final var waystone : outbox.waystoneUpdates.values()) {
+            updates.add(new UpdateWaystoneMessage(LocalWaystoneChannel.prepare(player, waystone)));
+        }
+        final var removals = new ArrayList<>(outbox.waystoneRemovals.values());
+        final var sortingIndex = outbox.sortingIndexDirty ? new SortingIndexMessage(PlayerWaystoneManager.getSortingIndex(player)) : null;
+        PlayerWaystoneCooldownsMessage cooldowns = null;
+        if (outbox.cooldownsDirty) {
+            cooldowns = PlayerWaystoneCooldownsMessage.full(PlayerWaystoneManager.getCooldowns(player));
+        } else if (!outbox.cooldownUpdates.isEmpty()) {
+            final var cooldownUpdates = new HashMap<ResourceLocation, Long>(outbox.cooldownUpdates.size());
+            for (final var key : outbox.cooldownUpdates) {
+                cooldownUpdates.put(key, PlayerWaystoneManager.getCooldownUntil(player, key));
+            }
+            cooldowns = PlayerWaystoneCooldownsMessage.delta(cooldownUpdates);
+        }
+
+        final var bundle = new WaystoneSyncBundleMessage(knownWaystonesDelta, updates, removals, sortingIndex, cooldowns);
+        if (!bundle.isEmpty()) {
+            Balm.getNetworking().sendTo(player, bundle);
+        }
     }
 }
@@ -0,0 +1,53 @@
+package net.blay09.mods.waystones.core;
+
+import net.blay09.mods.waystones.api.Waystone;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * The set of waystones a selection menu offers, looked up on demand instead of being held as a list for as long as the menu is open.
+ */
+public interface WaystoneTargetSource {
+
+    Collection<Waystone> getTargets();
+
+    boolean isTarget(Waystone waystone);
+
+    /**
+     * Changes whenever the player state the targets are derived from changes. Changes to the waystones themselves are tracked by the manager's
+     * index revision instead.
+     */
+    long getRevision();
+
+    static WaystoneTargetSource of(Collection<Waystone> waystones) {
+        final var waystoneUids = new HashSet<UUID>(waystones.size());
+        for (final var waystone : waystones) {
+            waystoneUids.add(waystone.getWaystoneUid());
+        }
+        return of(() -> waystones, () -> 0, waystone -> waystoneUids.contains(waystone.getWaystoneUid()));
+    }
+
+    static WaystoneTargetSource of(Supplier<Collection<Waystone>> targets, LongSupplier revision, Predicate<Waystone> isTarget) {
+        return new WaystoneTargetSource() {
+            @Override
+            public Collection<Waystone> getTargets() {
+                return targets.get();
+            }
+
+            @Override
+            public boolean isTarget(Waystone waystone) {
+                return isTarget.test(waystone);
+            }
+
+            @Override
+            public long getRevision() {
+                return revision.getAsLong();
+            }
+        };
+    }
+}
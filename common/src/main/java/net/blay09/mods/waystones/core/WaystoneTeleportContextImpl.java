@@ -11,6 +11,8 @@ import net.minecraft.world.item.ItemStack;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class WaystoneTeleportContextImpl implements WaystoneTeleportContext {
     private final Entity entity;
@@ -19,6 +21,9 @@ public class WaystoneTeleportContextImpl implements WaystoneTeleportContext {
     private final List<Entity> additionalEntities = new ArrayList<>();
     private final List<Mob> leashedEntities = new ArrayList<>();
     private final Set<ResourceLocation> flags = new HashSet<>();
+    private final Map<ResourceLocation, Object> values = new HashMap<>();
+    private final List<Consumer<List<Entity>>> teleportedListeners = new ArrayList<>();
+    private final List<Runnable> droppedListeners = new ArrayList<>();
 
     private Waystone fromWaystone;
 
@@ -28,6 +33,7 @@ public class WaystoneTeleportContextImpl implements WaystoneTeleportContext {
 
     private boolean playsSound = true;
     private boolean playsEffect = true;
+    private boolean queued;
 
     public WaystoneTeleportContextImpl(Entity entity, Waystone targetWaystone) {
         this.entity = entity;
@@ -137,4 +143,49 @@ public class WaystoneTeleportContextImpl implements WaystoneTeleportContext {
         flags.remove(flag);
         return this;
     }
+
+    @Override
+    public List<Consumer<List<Entity>>> getTeleportedListeners() {
+        return teleportedListeners;
+    }
+
+    @Override
+    public WaystoneTeleportContext addTeleportedListener(Consumer<List<Entity>> listener) {
+        teleportedListeners.add(listener);
+        return this;
+    }
+
+    @Override
+    public List<Runnable> getDroppedListeners() {
+        return droppedListeners;
+    }
+
+    @Override
+    public WaystoneTeleportContext addDroppedListener(Runnable listener) {
+        droppedListeners.add(listener);
+        return this;
+    }
+
+    @Override
+    public boolean isQueued() {
+        return queued;
+    }
+
+    @Override
+    public WaystoneTeleportContext setQueued(boolean queued) {
+        this.queued = queued;
+        return this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getOrComputeValue(ResourceLocation key, Function<WaystoneTeleportContext, T> computer) {
+        // Not computeIfAbsent, so a computer may itself read other values from this context
+        var value = (T) values.get(key);
+        if (value == null && !values.containsKey(key)) {
+            value = computer.apply(this);
+            values.put(key, value);
+        }
+        return value;
+    }
 }
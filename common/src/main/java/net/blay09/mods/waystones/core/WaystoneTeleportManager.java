@@ -1,8 +1,8 @@
 package net.blay09.mods.waystones.core;
 
-import com.google.common.collect.Lists;
 import com.mojang.datafixers.util.Either;
 import net.blay09.mods.balm.api.Balm;
+import net.blay09.mods.waystones.Waystones;
 import net.blay09.mods.waystones.api.*;
 import net.blay09.mods.waystones.api.error.WaystoneTeleportError;
 import net.blay09.mods.waystones.api.event.WaystoneTeleportEvent;
@@ -11,16 +11,14 @@ import net.blay09.mods.waystones.block.entity.WarpPlateBlockEntity;
 import net.blay09.mods.waystones.block.entity.WaystoneBlockEntityBase;
 import net.blay09.mods.waystones.config.WaystonesConfig;
 import net.blay09.mods.waystones.config.WaystonesConfigData;
-import net.blay09.mods.waystones.network.message.TeleportEffectMessage;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.network.protocol.game.ClientboundSetExperiencePacket;
+import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.server.level.TicketType;
-import net.minecraft.sounds.SoundEvents;
-import net.minecraft.sounds.SoundSource;
 import net.minecraft.util.Mth;
 import net.minecraft.world.entity.*;
 import net.minecraft.world.entity.player.Player;
@@ -33,6 +31,11 @@ import java.util.*;
 
 public class WaystoneTeleportManager {
 
+    private static final Direction[] FALLBACK_DIRECTIONS = {Direction.EAST, Direction.WEST, Direction.SOUTH, Direction.NORTH};
+    private static final ResourceLocation PETS = ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID, "pets");
+    private static final ResourceLocation LEASHED = ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID, "leashed");
+    private static final ResourceLocation DISTANCE = ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID, "distance");
+
     public static Collection<? extends Entity> findPets(Entity entity) {
         return entity.level().getEntitiesOfClass(TamableAnimal.class, new AABB(entity.blockPosition()).inflate(10),
                 pet -> entity.getUUID().equals(pet.getOwnerUUID()) && !pet.isOrderedToSit() && !pet.isLeashed() && !WaystonePermissionManager.isEntityDeniedTeleports(pet)
@@ -45,6 +48,18 @@ public class WaystoneTeleportManager {
         );
     }
 
+    public static Collection<? extends Entity> findPets(WaystoneTeleportContext context) {
+        return context.getOrComputeValue(PETS, it -> Collections.unmodifiableCollection(findPets(it.getEntity())));
+    }
+
+    public static List<Mob> findLeashedAnimals(WaystoneTeleportContext context) {
+        return context.getOrComputeValue(LEASHED, it -> Collections.unmodifiableList(findLeashedAnimals(it.getEntity())));
+    }
+
+    public static float getDistanceToTarget(WaystoneTeleportContext context) {
+        return context.getOrComputeValue(DISTANCE, it -> (float) Math.sqrt(it.getEntity().distanceToSqr(it.getTargetWaystone().getPos().getCenter())));
+    }
+
     public static Either<List<Entity>, WaystoneTeleportError> doTeleport(WaystoneTeleportContext context) {
         final var server = context.getEntity().getServer();
         if (server == null) {
@@ -70,13 +85,13 @@ public class WaystoneTeleportManager {
         }
 
         if (context.playsSound()) {
-            sourceLevel.playSound(context.getEntity(), sourcePos, SoundEvents.PORTAL_TRAVEL, SoundSource.PLAYERS, 0.01f, 1f);
-            targetLevel.playSound(null, targetPos, SoundEvents.PORTAL_TRAVEL, SoundSource.PLAYERS, 0.05f, 1f);
+            TeleportEffectBatcher.addSound(sourceLevel, sourcePos, 0.01f, context.getEntity());
+            TeleportEffectBatcher.addSound(targetLevel, targetPos, 0.05f, null);
         }
 
         if (context.playsEffect()) {
-            teleportedEntities.forEach(additionalEntity -> Balm.getNetworking().sendToTracking(sourceLevel, sourcePos, new TeleportEffectMessage(sourcePos)));
-            Balm.getNetworking().sendToTracking(targetLevel, targetPos, new TeleportEffectMessage(targetPos));
+            TeleportEffectBatcher.addEffect(sourceLevel, sourcePos, teleportedEntities.size());
+            TeleportEffectBatcher.addEffect(targetLevel, targetPos, teleportedEntities.size());
         }
 
         if (targetTileEntity instanceof WaystoneBlockEntityBase waystoneBlockEntity) {
@@ -187,13 +202,19 @@ public class WaystoneTeleportManager {
             return Either.right(new WaystoneTeleportError.InvalidDimension(waystone.getDimension()));
         }
 
+        return Either.left(WaystoneDestinationCache.resolve(level, waystone, () -> findDestination(level, waystone)).destination());
+    }
+
+    private static WaystoneDestinationCache.Resolved findDestination(ServerLevel level, Waystone waystone) {
         final var pos = waystone.getPos();
         final var state = level.getBlockState(pos);
-        var direction = state.hasProperty(WaystoneBlock.FACING) ? state.getValue(WaystoneBlock.FACING) : Direction.NORTH;
+        final var facing = state.hasProperty(WaystoneBlock.FACING) ? state.getValue(WaystoneBlock.FACING) : Direction.NORTH;
 
-        // Use a list to keep order intact - it might check one direction twice, but no one cares
-        final var directionCandidates = Lists.newArrayList(direction, Direction.EAST, Direction.WEST, Direction.SOUTH, Direction.NORTH);
-        for (Direction candidate : directionCandidates) {
+        // Keep order intact - it might check one direction twice, but no one cares
+        var direction = facing;
+        var blocked = true;
+        for (int i = -1; i < FALLBACK_DIRECTIONS.length; i++) {
+            final var candidate = i < 0 ? facing : FALLBACK_DIRECTIONS[i];
             BlockPos offsetPos = pos.relative(candidate);
             BlockPos offsetPosUp = offsetPos.above();
             if (level.getBlockState(offsetPos).isSuffocating(level, offsetPos) || level.getBlockState(offsetPosUp).isSuffocating(level, offsetPosUp)) {
@@ -201,6 +222,7 @@ public class WaystoneTeleportManager {
             }
 
             direction = candidate;
+            blocked = false;
             break;
         }
 
@@ -208,7 +230,7 @@ public class WaystoneTeleportManager {
         final var shouldOffsetFacing = !(waystoneType.equals(WaystoneTypes.WARP_PLATE));
         final var targetPos = shouldOffsetFacing ? pos.relative(direction) : pos;
         final var location = new Vec3(targetPos.getX() + 0.5, targetPos.getY() + 0.5, targetPos.getZ() + 0.5);
-        return Either.left(new TeleportDestination(level, location, direction));
+        return new WaystoneDestinationCache.Resolved(new TeleportDestination(level, location, direction), blocked);
     }
 
     private static void sendHackySyncPacketsAfterTeleport(Entity entity) {
@@ -226,6 +248,9 @@ public class WaystoneTeleportManager {
         }
 
         final var entity = context.getEntity();
+        if (WaystoneTeleportQueue.isQueued(entity)) {
+            return Either.right(new WaystoneTeleportError.TeleportPending());
+        }
 
         if (!context.getLeashedEntities().isEmpty()) {
             if (WaystonesConfig.getActive().teleports.transportLeashed == WaystonesConfigData.TransportMobs.DISABLED) {
@@ -247,11 +272,65 @@ public class WaystoneTeleportManager {
             return Either.right(new WaystoneTeleportError.NotEnoughXp());
         }
 
-        if (entity instanceof Player player) {
-            context.getRequirements().consume(player);
+        final var server = entity.getServer();
+        if (server == null) {
+            return Either.right(new WaystoneTeleportError.NotOnServer());
+        }
+
+        return resolveDestination(server, context.getTargetWaystone()).flatMap(destination -> {
+            // Requirements are paid up front so that a queued teleport cannot be paid for twice or end up unpaid
+            if (entity instanceof Player player) {
+                context.getRequirements().consume(player);
+            }
+
+            if (WaystoneTeleportQueue.canRunNow(entity)) {
+                return WaystoneTeleportQueue.runNow(() -> completeTeleport(context, destination))
+                        .ifRight(error -> rollbackRequirements(server, context));
+            }
+
+            context.setQueued(true);
+            WaystoneTeleportQueue.enqueue(entity, () -> runQueuedTeleport(server, context), () -> dropQueuedTeleport(server, context));
+            return Either.left(List.of());
+        });
+    }
+
+    private static Either<List<Entity>, WaystoneTeleportError> completeTeleport(WaystoneTeleportContext context, TeleportDestination destination) {
+        return doTeleport(context, destination).ifLeft(teleportedEntities -> {
+            Balm.getEvents().fireEvent(new WaystoneTeleportEvent.Post(context, teleportedEntities));
+            context.getTeleportedListeners().forEach(listener -> listener.accept(teleportedEntities));
+        });
+    }
+
+    private static void runQueuedTeleport(MinecraftServer server, WaystoneTeleportContext context) {
+        // The waystone may have been moved, broken or blocked while the teleport was waiting, so look it up and resolve it again
+        final var waystone = WaystoneManagerImpl.get(server).getWaystoneById(context.getTargetWaystone().getWaystoneUid())
+                .filter(Waystone::isValid)
+                .filter(it -> {
+                    final var level = server.getLevel(it.getDimension());
+                    return level != null && it.isValidInLevel(level);
+                });
+        final var destination = waystone.flatMap(it -> resolveDestination(server, it).left());
+        if (destination.isEmpty()) {
+            dropQueuedTeleport(server, context);
+            return;
+        }
+
+        completeTeleport(context, destination.get()).ifRight(error -> dropQueuedTeleport(server, context));
+    }
+
+    private static void dropQueuedTeleport(MinecraftServer server, WaystoneTeleportContext context) {
+        rollbackRequirements(server, context);
+        context.getDroppedListeners().forEach(Runnable::run);
+    }
+
+    private static void rollbackRequirements(MinecraftServer server, WaystoneTeleportContext context) {
+        if (!(context.getEntity() instanceof Player paidBy)) {
+            return;
         }
 
-        return doTeleport(context).ifLeft(teleportedEntities -> Balm.getEvents().fireEvent(new WaystoneTeleportEvent.Post(context, teleportedEntities)));
+        // A player that died in the meantime has been replaced by a respawned instance, which is the one that needs the refund
+        final var onlinePlayer = server.getPlayerList().getPlayer(paidBy.getUUID());
+        context.getRequirements().rollback(onlinePlayer != null ? onlinePlayer : paidBy);
     }
 
 }
@@ -0,0 +1,125 @@
+package net.blay09.mods.waystones.core;
+
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.blay09.mods.waystones.Waystones;
+import net.blay09.mods.waystones.config.WaystonesConfig;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Spreads teleports across ticks once a per-tick count or time budget is used up. Teleports that fit into the budget still run right away;
+ * the rest wait at the end of each tick, with players going ahead of mobs and items.
+ */
+public class WaystoneTeleportQueue {
+
+    private record QueuedTeleport(Entity entity, Runnable action, Runnable onDropped) {
+    }
+
+    private static final Deque<QueuedTeleport> playerTeleports = new ArrayDeque<>();
+    private static final Deque<QueuedTeleport> entityTeleports = new ArrayDeque<>();
+    private static final Set<Entity> queuedEntities = new ReferenceOpenHashSet<>();
+
+    private static int teleportsThisTick;
+    private static long nanosThisTick;
+
+    /**
+     * Whether a teleport of the entity can run right away, i.e. the budget allows it and nothing of the same or higher priority is waiting.
+     */
+    public static boolean canRunNow(Entity entity) {
+        final var hasQueuedAhead = !playerTeleports.isEmpty() || (!(entity instanceof Player) && !entityTeleports.isEmpty());
+        return !hasQueuedAhead && hasBudgetLeft();
+    }
+
+    /**
+     * Runs a teleport right away, counting it against this tick's budget.
+     */
+    public static <T> T runNow(Supplier<T> teleport) {
+        final var startedAt = System.nanoTime();
+        try {
+            return teleport.get();
+        } finally {
+            teleportsThisTick++;
+            nanosThisTick += System.nanoTime() - startedAt;
+        }
+    }
+
+    /**
+     * Queues a teleport for a later tick. If the entity is no longer in the world by then, onDropped is called instead of the action.
+     */
+    public static void enqueue(Entity entity, Runnable action, Runnable onDropped) {
+        (entity instanceof Player ? playerTeleports : entityTeleports).add(new QueuedTeleport(entity, action, onDropped));
+        queuedEntities.add(entity);
+    }
+
+    /**
+     * Drops the entity's queued teleport, if any, e.g. because the player is logging out.
+     */
+    public static void cancel(Entity entity) {
+        if (queuedEntities.remove(entity)) {
+            final var queue = entity instanceof Player ? playerTeleports : entityTeleports;
+            for (final var iterator = queue.iterator(); iterator.hasNext(); ) {
+                final var teleport = iterator.next();
+                if (teleport.entity() == entity) {
+                    iterator.remove();
+                    teleport.onDropped().run();
+                }
+            }
+        }
+    }
+
+    public static boolean isQueued(Entity entity) {
+        return queuedEntities.contains(entity);
+    }
+
+    public static int getQueuedPlayerTeleports() {
+        return playerTeleports.size();
+    }
+
+    public static int getQueuedEntityTeleports() {
+        return entityTeleports.size();
+    }
+
+    public static void process(MinecraftServer server) {
+        teleportsThisTick = 0;
+        nanosThisTick = 0;
+        drain(playerTeleports);
+        drain(entityTeleports);
+    }
+
+    public static void clear() {
+        playerTeleports.clear();
+        entityTeleports.clear();
+        queuedEntities.clear();
+    }
+
+    private static void drain(Deque<QueuedTeleport> queue) {
+        while (!queue.isEmpty() && hasBudgetLeft()) {
+            final var teleport = queue.poll();
+            final var entity = teleport.entity();
+            queuedEntities.remove(entity);
+            if (entity.isRemoved()) {
+                Waystones.logger.debug("Dropping queued teleport of {} as it is no longer in the world", entity);
+                teleport.onDropped().run();
+                continue;
+            }
+
+            runNow(() -> {
+                teleport.action().run();
+                return null;
+            });
+        }
+    }
+
+    private static boolean hasBudgetLeft() {
+        final var teleports = WaystonesConfig.getActive().teleports;
+        final var maxTeleports = teleports.maxTeleportsPerTick;
+        final var maxNanos = teleports.teleportTimeBudgetMillis * 1_000_000L;
+        return (maxTeleports <= 0 || teleportsThisTick < maxTeleports) && (maxNanos <= 0 || nanosThisTick < maxNanos);
+    }
+}
@@ -3,12 +3,48 @@ package net.blay09.mods.waystones.handler;
 import net.blay09.mods.balm.api.Balm;
 import net.blay09.mods.balm.api.event.LivingDamageEvent;
 import net.blay09.mods.balm.api.event.PlayerLoginEvent;
+import net.blay09.mods.balm.api.event.PlayerLogoutEvent;
+import net.blay09.mods.balm.api.event.TickPhase;
+import net.blay09.mods.balm.api.event.TickType;
 import net.blay09.mods.balm.api.event.UseBlockEvent;
+import net.blay09.mods.balm.api.event.server.ServerStoppedEvent;
 import net.blay09.mods.waystones.api.event.WaystoneActivatedEvent;
+import net.blay09.mods.waystones.core.PlayerWaystoneManager;
+import net.blay09.mods.waystones.core.TeleportEffectBatcher;
+import net.blay09.mods.waystones.core.WaystoneListStreamer;
+import net.blay09.mods.waystones.core.WaystoneDestinationCache;
+import net.blay09.mods.waystones.core.WaystoneManagerImpl;
+import net.blay09.mods.waystones.core.WaystoneMutationJournal;
+import net.blay09.mods.waystones.core.WaystoneProxyRegistry;
+import net.blay09.mods.waystones.core.WaystoneSnapshotEncoder;
+import net.blay09.mods.waystones.core.WaystoneSyncManager;
+import net.blay09.mods.waystones.core.WaystoneTeleportQueue;
 
 public class ModEventHandlers {
     public static void initialize() {
         Balm.getEvents().onEvent(PlayerLoginEvent.class, LoginHandler::onPlayerLogin);
+        Balm.getEvents().onEvent(PlayerLogoutEvent.class, event -> {
+            WaystoneTeleportQueue.cancel(event.getPlayer());
+            PlayerWaystoneManager.unloadPlayerData(event.getPlayer());
+            WaystoneSyncManager.forgetPlayer(event.getPlayer());
+            WaystoneListStreamer.forgetPlayer(event.getPlayer());
+        });
+        Balm.getEvents().onEvent(ServerStoppedEvent.class, event -> {
+            PlayerWaystoneManager.clearPlayerData();
+            WaystoneProxyRegistry.clearServerProxies();
+            WaystoneDestinationCache.clear();
+            WaystoneTeleportQueue.clear();
+            TeleportEffectBatcher.clear();
+            WaystoneMutationJournal.shutdownWriter();
+            WaystoneSnapshotEncoder.shutdown();
+        });
+        Balm.getEvents().onTickEvent(TickType.Server, TickPhase.End, WaystoneTeleportQueue::process);
+        Balm.getEvents().onTickEvent(TickType.Server, TickPhase.End, TeleportEffectBatcher::flush);
+        Balm.getEvents().onTickEvent(TickType.Server, TickPhase.End, PlayerWaystoneManager::expireCooldowns);
+        Balm.getEvents().onTickEvent(TickType.Server, TickPhase.End, PlayerWaystoneManager::savePlayerData);
+        Balm.getEvents().onTickEvent(TickType.Server, TickPhase.End, server -> WaystoneManagerImpl.get(server).flushChanges(server.registryAccess()));
+        Balm.getEvents().onTickEvent(TickType.Server, TickPhase.End, WaystoneListStreamer::flush);
+        Balm.getEvents().onTickEvent(TickType.Server, TickPhase.End, WaystoneSyncManager::flush);
         Balm.getEvents().onEvent(LivingDamageEvent.class, WarpDamageResetHandler::onDamage);
         Balm.getEvents().onEvent(WaystoneActivatedEvent.class, WaystoneActivationStatHandler::onWaystoneActivated);
         Balm.getEvents().onEvent(UseBlockEvent.class, WaystoneDebugHandler::onWaystoneUsed);
@@ -6,7 +6,7 @@ import net.blay09.mods.waystones.api.WaystoneTypes;
 import net.blay09.mods.waystones.block.WarpPlateBlock;
 import net.blay09.mods.waystones.component.ModComponents;
 import net.blay09.mods.waystones.core.InvalidWaystone;
-import net.blay09.mods.waystones.core.WaystoneProxy;
+import net.blay09.mods.waystones.core.WaystoneProxyRegistry;
 import net.minecraft.ChatFormatting;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.MinecraftServer;
@@ -53,7 +53,7 @@ public abstract class AbstractAttunedShardItem extends ShardItem implements IAtt
 
     @Override
     public Optional<Waystone> getWaystoneAttunedTo(MinecraftServer server, Player player, ItemStack itemStack) {
-        return Optional.ofNullable(itemStack.get(ModComponents.attunement.get())).map(attunement -> new WaystoneProxy(server, attunement));
+        return Optional.ofNullable(itemStack.get(ModComponents.attunement.get())).map(attunement -> WaystoneProxyRegistry.get(server, attunement));
     }
 
     @Override
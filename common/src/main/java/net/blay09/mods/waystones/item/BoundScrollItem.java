@@ -7,11 +7,14 @@ import net.blay09.mods.waystones.api.trait.IFOVOnUse;
 import net.blay09.mods.waystones.api.trait.IResetUseOnDamage;
 import net.blay09.mods.waystones.component.ModComponents;
 import net.blay09.mods.waystones.config.WaystonesConfig;
-import net.blay09.mods.waystones.core.WaystoneProxy;
+import net.blay09.mods.waystones.core.DestinationPrewarmer;
+import net.blay09.mods.waystones.core.WaystoneProxyRegistry;
 import net.minecraft.ChatFormatting;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.InteractionHand;
+import net.minecraft.world.InteractionResult;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
@@ -33,13 +36,38 @@ public class BoundScrollItem extends ScrollItemBase implements IResetUseOnDamage
         return WaystonesConfig.getActive().general.scrollUseTime;
     }
 
+    @Override
+    public InteractionResult use(Level world, Player player, InteractionHand hand) {
+        if (!world.isClientSide && getUseDuration(player.getItemInHand(hand), player) > 0) {
+            prewarmDestination(player, player.getItemInHand(hand));
+        }
+        return super.use(world, player, hand);
+    }
+
+    @Override
+    public void onUseTick(Level level, LivingEntity entity, ItemStack itemStack, int remainingTicks) {
+        super.onUseTick(level, entity, itemStack, remainingTicks);
+        if (!level.isClientSide && entity instanceof Player player && remainingTicks % DestinationPrewarmer.REFRESH_INTERVAL == 0) {
+            prewarmDestination(player, itemStack);
+        }
+    }
+
+    private void prewarmDestination(Player player, ItemStack itemStack) {
+        final var server = player.getServer();
+        if (server != null) {
+            getWaystoneAttunedTo(server, player, itemStack).filter(Waystone::isValid).ifPresent(it -> DestinationPrewarmer.prewarm(server, it));
+        }
+    }
+
     @Override
     public ItemStack finishUsingItem(ItemStack stack, Level world, LivingEntity entity) {
         if (!world.isClientSide && entity instanceof ServerPlayer player) {
             final var boundTo = getWaystoneAttunedTo(player.getServer(), player, stack);
-            boundTo.ifPresent(targetWaystone -> WaystonesAPI.createDefaultTeleportContext(player, targetWaystone, it -> it.setWarpItem(stack))
-                    .mapLeft(WaystonesAPI::tryTeleport)
-                    .ifLeft(it -> stack.consume(1, player))
+            boundTo.ifPresent(targetWaystone -> WaystonesAPI.createDefaultTeleportContext(player, targetWaystone, it -> {
+                        it.setWarpItem(stack);
+                        it.addTeleportedListener(entities -> stack.consume(1, player));
+                    })
+                    .ifLeft(WaystonesAPI::tryTeleport)
             );
         }
 
@@ -48,7 +76,7 @@ public class BoundScrollItem extends ScrollItemBase implements IResetUseOnDamage
 
     @Override
     public Optional<Waystone> getWaystoneAttunedTo(MinecraftServer server, Player player, ItemStack itemStack) {
-        return Optional.ofNullable(itemStack.get(ModComponents.attunement.get())).map(attunement -> new WaystoneProxy(server, attunement));
+        return Optional.ofNullable(itemStack.get(ModComponents.attunement.get())).map(attunement -> WaystoneProxyRegistry.get(server, attunement));
     }
 
     @Override
@@ -7,6 +7,7 @@ import net.blay09.mods.waystones.api.trait.IResetUseOnDamage;
 import net.blay09.mods.waystones.config.WaystonesConfig;
 import net.blay09.mods.waystones.core.PlayerWaystoneManager;
 import net.blay09.mods.waystones.core.WaystoneImpl;
+import net.blay09.mods.waystones.core.WaystoneListStreamer;
 import net.blay09.mods.waystones.menu.ModMenus;
 import net.blay09.mods.waystones.menu.WaystoneSelectionMenu;
 import net.minecraft.network.FriendlyByteBuf;
@@ -56,7 +57,7 @@ public class WarpScrollItem extends ScrollItemBase implements IResetUseOnDamage
 
                 @Override
                 public Collection<Waystone> getScreenOpeningData(ServerPlayer serverPlayer) {
-                    return waystones;
+                    return WaystoneListStreamer.beginMenuStream(serverPlayer, waystones);
                 }
 
                 @Override
@@ -8,6 +8,7 @@ import net.blay09.mods.waystones.compat.Compat;
 import net.blay09.mods.waystones.config.WaystonesConfig;
 import net.blay09.mods.waystones.core.PlayerWaystoneManager;
 import net.blay09.mods.waystones.core.WaystoneImpl;
+import net.blay09.mods.waystones.core.WaystoneListStreamer;
 import net.blay09.mods.waystones.menu.ModMenus;
 import net.blay09.mods.waystones.menu.WaystoneSelectionMenu;
 import net.minecraft.core.particles.ParticleTypes;
@@ -146,7 +147,7 @@ public class WarpStoneItem extends Item implements IResetUseOnDamage {
 
                 @Override
                 public Collection<Waystone> getScreenOpeningData(ServerPlayer serverPlayer) {
-                    return waystones;
+                    return WaystoneListStreamer.beginMenuStream(serverPlayer, waystones);
                 }
 
                 @Override
@@ -1,20 +1,30 @@
 package net.blay09.mods.waystones.menu;
 
+import net.blay09.mods.balm.api.Balm;
 import net.blay09.mods.waystones.api.Waystone;
 import net.blay09.mods.waystones.api.WaystoneTeleportContext;
+import net.blay09.mods.waystones.comparator.UserSortingComparator;
+import net.blay09.mods.waystones.config.WaystonesConfig;
+import net.blay09.mods.waystones.core.LocalWaystoneChannel;
+import net.blay09.mods.waystones.core.PlayerWaystoneManager;
 import net.blay09.mods.waystones.core.WaystoneImpl;
+import net.blay09.mods.waystones.core.WaystoneLookupIndex;
+import net.blay09.mods.waystones.core.WaystoneManagerImpl;
+import net.blay09.mods.waystones.core.WaystoneTargetSource;
+import net.blay09.mods.waystones.network.message.WaystoneQueryResultMessage;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.RegistryFriendlyByteBuf;
 import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.util.Mth;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.inventory.AbstractContainerMenu;
 import net.minecraft.world.inventory.MenuType;
 import net.minecraft.world.item.ItemStack;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Collection;
-import java.util.Set;
+import java.util.*;
 import java.util.function.Consumer;
 
 public class WaystoneSelectionMenu extends AbstractContainerMenu {
@@ -29,16 +39,167 @@ public class WaystoneSelectionMenu extends AbstractContainerMenu {
             Data::waystones,
             Data::new);
 
+    public static final int DEFAULT_QUERY_PAGE_SIZE = 8;
+    public static final int MAX_QUERY_PAGE_SIZE = 64;
+    private static final int MIN_TICKS_BETWEEN_QUERIES = 4;
+
     private final Waystone fromWaystone;
     private final Collection<Waystone> waystones;
+    private final WaystoneTargetSource targetSource;
     private final Set<ResourceLocation> flags;
     private Consumer<WaystoneTeleportContext> postTeleportHandler = it -> {};
+    private Consumer<Collection<Waystone>> streamedWaystonesListener = it -> {};
+
+    private boolean queryMode;
+    private WaystoneSelectionQuery.SortKey defaultSortKey = WaystoneSelectionQuery.SortKey.SORTING_INDEX;
+    private ServerPlayer queryingPlayer;
+    private WaystoneSelectionQuery.Result queryResult;
+    private Consumer<WaystoneSelectionQuery.Result> queryResultListener = it -> {};
+
+    private WaystoneSelectionQuery pendingQuery;
+    private ServerPlayer pendingQueryPlayer;
+    private int lastQueryTick = -MIN_TICKS_BETWEEN_QUERIES;
+    private List<Waystone> cachedMatches;
+    private String cachedSearchText;
+    private WaystoneSelectionQuery.SortKey cachedSortKey;
+    private long cachedIndexRevision;
+    private long cachedSourceRevision;
+    private long cachedPlayerRevision;
 
     public WaystoneSelectionMenu(MenuType<WaystoneSelectionMenu> type, @Nullable Waystone fromWaystone, int windowId, Collection<Waystone> waystones, Set<ResourceLocation> flags) {
         super(type, windowId);
         this.fromWaystone = fromWaystone;
         this.waystones = waystones;
+        this.targetSource = WaystoneTargetSource.of(waystones);
+        this.flags = flags;
+    }
+
+    /**
+     * Creates a menu in query mode, in which the client asks for single pages of the targets instead of receiving all of them when the menu opens.
+     */
+    public WaystoneSelectionMenu(MenuType<WaystoneSelectionMenu> type, @Nullable Waystone fromWaystone, int windowId, ServerPlayer player, WaystoneTargetSource targetSource, WaystoneSelectionQuery.SortKey defaultSortKey, Set<ResourceLocation> flags) {
+        super(type, windowId);
+        this.fromWaystone = fromWaystone;
+        this.waystones = new ArrayList<>();
+        this.targetSource = targetSource;
         this.flags = flags;
+        this.queryMode = true;
+        this.queryingPlayer = player;
+        this.defaultSortKey = defaultSortKey;
+    }
+
+    public static boolean shouldUseQueryMode(Collection<Waystone> targets) {
+        final var threshold = WaystonesConfig.getActive().general.selectionQueryThreshold;
+        return threshold > 0 && targets.size() > threshold;
+    }
+
+    @Override
+    public void broadcastChanges() {
+        super.broadcastChanges();
+
+        // The client doesn't know this menu is in query mode until it receives the first page, which is sent once the menu has been opened
+        if (queryingPlayer != null) {
+            final var query = new WaystoneSelectionQuery(0, DEFAULT_QUERY_PAGE_SIZE, "", defaultSortKey);
+            answerQuery(queryingPlayer, query);
+            queryingPlayer = null;
+        }
+
+        if (pendingQuery != null && pendingQueryPlayer != null && pendingQueryPlayer.server.getTickCount() - lastQueryTick >= MIN_TICKS_BETWEEN_QUERIES) {
+            answerQuery(pendingQueryPlayer, pendingQuery);
+            pendingQuery = null;
+        }
+    }
+
+    /**
+     * Queues a query from the client. Queries are answered at most every few ticks; if several arrive in between, only the latest is answered.
+     */
+    public void requestQuery(ServerPlayer player, WaystoneSelectionQuery query) {
+        pendingQuery = query;
+        pendingQueryPlayer = player;
+    }
+
+    private void answerQuery(ServerPlayer player, WaystoneSelectionQuery query) {
+        lastQueryTick = player.server.getTickCount();
+        Balm.getNetworking().sendTo(player, new WaystoneQueryResultMessage(containerId, query(player, query)));
+    }
+
+    private WaystoneSelectionQuery.Result query(ServerPlayer player, WaystoneSelectionQuery query) {
+        final var matches = getMatches(player, query.searchText(), query.sortKey());
+        final var pageSize = Mth.clamp(query.pageSize(), 1, MAX_QUERY_PAGE_SIZE);
+        final var page = Mth.clamp(query.page(), 0, Math.max(0, (matches.size() - 1) / pageSize));
+        final var fromIndex = Math.min(page * pageSize, matches.size());
+        final var toIndex = Math.min(fromIndex + pageSize, matches.size());
+        final var effectiveQuery = new WaystoneSelectionQuery(page, pageSize, query.searchText(), query.sortKey());
+        return new WaystoneSelectionQuery.Result(effectiveQuery, matches.size(), new ArrayList<>(LocalWaystoneChannel.prepare(player, matches.subList(fromIndex, toIndex))));
+    }
+
+    /**
+     * The filtered and sorted targets for a search, reused for paging until the search changes or the waystones or player state they were built
+     * from have changed.
+     */
+    private List<Waystone> getMatches(ServerPlayer player, String searchText, WaystoneSelectionQuery.SortKey sortKey) {
+        final var indexRevision = WaystoneManagerImpl.get(player.server).getIndexRevision();
+        final var sourceRevision = targetSource.getRevision();
+        final var playerRevision = PlayerWaystoneManager.getTargetsRevision(player);
+        if (cachedMatches != null && searchText.equals(cachedSearchText) && sortKey == cachedSortKey && indexRevision == cachedIndexRevision
+                && sourceRevision == cachedSourceRevision && playerRevision == cachedPlayerRevision) {
+            return cachedMatches;
+        }
+
+        final var lowerCaseSearchText = searchText.toLowerCase(Locale.ROOT);
+        final var matches = new ArrayList<Waystone>();
+        if (lowerCaseSearchText.length() >= WaystoneLookupIndex.MIN_SEARCH_LENGTH && sortKey != WaystoneSelectionQuery.SortKey.SOURCE) {
+            // Narrow down through the name index first, the source's own order does not matter for the other sort keys
+            for (final var waystone : WaystoneManagerImpl.get(player.server).findWaystonesByNameContaining(lowerCaseSearchText)) {
+                if (targetSource.isTarget(waystone)) {
+                    matches.add(waystone);
+                }
+            }
+        } else {
+            for (final var waystone : targetSource.getTargets()) {
+                if (lowerCaseSearchText.isEmpty() || waystone.getName().getString().toLowerCase(Locale.ROOT).contains(lowerCaseSearchText)) {
+                    matches.add(waystone);
+                }
+            }
+        }
+
+        switch (sortKey) {
+            case SORTING_INDEX -> matches.sort(new UserSortingComparator(PlayerWaystoneManager.getWaystoneSortingIndex(player)));
+            case NAME -> matches.sort(Comparator.comparing(it -> it.getName().getString(), String.CASE_INSENSITIVE_ORDER));
+            case SOURCE -> {
+            }
+        }
+
+        cachedMatches = matches;
+        cachedSearchText = searchText;
+        cachedSortKey = sortKey;
+        cachedIndexRevision = indexRevision;
+        cachedSourceRevision = sourceRevision;
+        cachedPlayerRevision = playerRevision;
+        return matches;
+    }
+
+    public boolean isSelectable(Waystone waystone) {
+        return targetSource.isTarget(waystone);
+    }
+
+    public boolean isQueryMode() {
+        return queryMode;
+    }
+
+    @Nullable
+    public WaystoneSelectionQuery.Result getQueryResult() {
+        return queryResult;
+    }
+
+    public void setQueryResult(WaystoneSelectionQuery.Result queryResult) {
+        this.queryMode = true;
+        this.queryResult = queryResult;
+        queryResultListener.accept(queryResult);
+    }
+
+    public void setQueryResultListener(Consumer<WaystoneSelectionQuery.Result> queryResultListener) {
+        this.queryResultListener = queryResultListener;
     }
 
     @Override
@@ -65,6 +226,15 @@ public class WaystoneSelectionMenu extends AbstractContainerMenu {
         return waystones;
     }
 
+    public void addStreamedWaystones(Collection<Waystone> streamedWaystones) {
+        waystones.addAll(streamedWaystones);
+        streamedWaystonesListener.accept(streamedWaystones);
+    }
+
+    public void setStreamedWaystonesListener(Consumer<Collection<Waystone>> streamedWaystonesListener) {
+        this.streamedWaystonesListener = streamedWaystonesListener;
+    }
+
     public Set<ResourceLocation> getFlags() {
         return flags;
     }
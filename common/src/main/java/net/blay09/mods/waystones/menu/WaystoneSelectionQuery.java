@@ -0,0 +1,38 @@
+package net.blay09.mods.waystones.menu;
+
+import net.blay09.mods.waystones.api.Waystone;
+import net.minecraft.network.FriendlyByteBuf;
+
+import java.util.List;
+
+/**
+ * A page of a selection menu's targets as requested by the client, used instead of sending every target up front when there are too many.
+ */
+public record WaystoneSelectionQuery(int page, int pageSize, String searchText, SortKey sortKey) {
+
+    public static final int MAX_SEARCH_TEXT_LENGTH = 64;
+
+    public enum SortKey {
+        SOURCE,
+        SORTING_INDEX,
+        NAME
+    }
+
+    public record Result(WaystoneSelectionQuery query, int totalCount, List<Waystone> waystones) {
+    }
+
+    public static void write(FriendlyByteBuf buf, WaystoneSelectionQuery query) {
+        buf.writeVarInt(query.page);
+        buf.writeVarInt(query.pageSize);
+        buf.writeUtf(query.searchText, MAX_SEARCH_TEXT_LENGTH);
+        buf.writeEnum(query.sortKey);
+    }
+
+    public static WaystoneSelectionQuery read(FriendlyByteBuf buf) {
+        final var page = buf.readVarInt();
+        final var pageSize = buf.readVarInt();
+        final var searchText = buf.readUtf(MAX_SEARCH_TEXT_LENGTH);
+        final var sortKey = buf.readEnum(SortKey.class);
+        return new WaystoneSelectionQuery(page, pageSize, searchText, sortKey);
+    }
+}
@@ -11,14 +11,23 @@ public class ModNetworking {
         networking.registerServerboundPacket(InventoryButtonMessage.TYPE, InventoryButtonMessage.class, InventoryButtonMessage::encode, InventoryButtonMessage::decode, InventoryButtonMessage::handle);
         networking.registerServerboundPacket(EditWaystoneMessage.TYPE, EditWaystoneMessage.class, EditWaystoneMessage::encode, EditWaystoneMessage::decode, EditWaystoneMessage::handle);
         networking.registerServerboundPacket(SelectWaystoneMessage.TYPE, SelectWaystoneMessage.class, SelectWaystoneMessage::encode, SelectWaystoneMessage::decode, SelectWaystoneMessage::handle);
+        networking.registerServerboundPacket(QueryWaystonesMessage.TYPE, QueryWaystonesMessage.class, QueryWaystonesMessage::encode, QueryWaystonesMessage::decode, QueryWaystonesMessage::handle);
         networking.registerServerboundPacket(SortWaystoneMessage.TYPE, SortWaystoneMessage.class, SortWaystoneMessage::encode, SortWaystoneMessage::decode, SortWaystoneMessage::handle);
         networking.registerServerboundPacket(RemoveWaystoneMessage.TYPE, RemoveWaystoneMessage.class, RemoveWaystoneMessage::encode, RemoveWaystoneMessage::decode, RemoveWaystoneMessage::handle);
         networking.registerServerboundPacket(RequestEditWaystoneMessage.TYPE, RequestEditWaystoneMessage.class, RequestEditWaystoneMessage::encode, RequestEditWaystoneMessage::decode, RequestEditWaystoneMessage::handle);
+        networking.registerServerboundPacket(RequestKnownWaystonesMessage.TYPE, RequestKnownWaystonesMessage.class, RequestKnownWaystonesMessage::encode, RequestKnownWaystonesMessage::decode, RequestKnownWaystonesMessage::handle);
+        networking.registerServerboundPacket(WaystoneCatalogueCachedMessage.TYPE, WaystoneCatalogueCachedMessage.class, WaystoneCatalogueCachedMessage::encode, WaystoneCatalogueCachedMessage::decode, WaystoneCatalogueCachedMessage::handle);
         networking.registerServerboundPacket(RequestManageWaystoneModifiersMessage.TYPE, RequestManageWaystoneModifiersMessage.class, RequestManageWaystoneModifiersMessage::encode, RequestManageWaystoneModifiersMessage::decode, RequestManageWaystoneModifiersMessage::handle);
 
         networking.registerClientboundPacket(UpdateWaystoneMessage.TYPE, UpdateWaystoneMessage.class, UpdateWaystoneMessage::encode, UpdateWaystoneMessage::decode, UpdateWaystoneMessage::handle);
         networking.registerClientboundPacket(WaystoneRemovedMessage.TYPE, WaystoneRemovedMessage.class, WaystoneRemovedMessage::encode, WaystoneRemovedMessage::decode, WaystoneRemovedMessage::handle);
         networking.registerClientboundPacket(KnownWaystonesMessage.TYPE, KnownWaystonesMessage.class, KnownWaystonesMessage::encode, KnownWaystonesMessage::decode, KnownWaystonesMessage::handle);
+        networking.registerClientboundPacket(KnownWaystonesDeltaMessage.TYPE, KnownWaystonesDeltaMessage.class, KnownWaystonesDeltaMessage::encode, KnownWaystonesDeltaMessage::decode, KnownWaystonesDeltaMessage::handle);
+        networking.registerClientboundPacket(WaystoneCatalogueHashesMessage.TYPE, WaystoneCatalogueHashesMessage.class, WaystoneCatalogueHashesMessage::encode, WaystoneCatalogueHashesMessage::decode, WaystoneCatalogueHashesMessage::handle);
+        networking.registerClientboundPacket(InitialWaystoneSyncMessage.TYPE, InitialWaystoneSyncMessage.class, InitialWaystoneSyncMessage::encode, InitialWaystoneSyncMessage::decode, InitialWaystoneSyncMessage::handle);
+        networking.registerClientboundPacket(WaystoneSyncBundleMessage.TYPE, WaystoneSyncBundleMessage.class, WaystoneSyncBundleMessage::encode, WaystoneSyncBundleMessage::decode, WaystoneSyncBundleMessage::handle);
+        networking.registerClientboundPacket(WaystoneListChunkMessage.TYPE, WaystoneListChunkMessage.class, WaystoneListChunkMessage::encode, WaystoneListChunkMessage::decode, WaystoneListChunkMessage::handle);
+        networking.registerClientboundPacket(WaystoneQueryResultMessage.TYPE, WaystoneQueryResultMessage.class, WaystoneQueryResultMessage::encode, WaystoneQueryResultMessage::decode, WaystoneQueryResultMessage::handle);
         networking.registerClientboundPacket(SortingIndexMessage.TYPE, SortingIndexMessage.class, SortingIndexMessage::encode, SortingIndexMessage::decode, SortingIndexMessage::handle);
         networking.registerClientboundPacket(TeleportEffectMessage.TYPE, TeleportEffectMessage.class, TeleportEffectMessage::encode, TeleportEffectMessage::decode, TeleportEffectMessage::handle);
         networking.registerClientboundPacket(PlayerWaystoneCooldownsMessage.TYPE, PlayerWaystoneCooldownsMessage.class, PlayerWaystoneCooldownsMessage::encode, PlayerWaystoneCooldownsMessage::decode, PlayerWaystoneCooldownsMessage::handle);
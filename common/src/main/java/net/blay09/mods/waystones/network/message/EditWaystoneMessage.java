@@ -42,7 +42,7 @@ public class EditWaystoneMessage implements CustomPacketPayload {
     }
 
     public static void handle(ServerPlayer player, EditWaystoneMessage message) {
-        final var waystone = new WaystoneProxy(player.server, message.waystoneUid);
+        final var waystone = WaystoneProxyRegistry.get(player.server, message.waystoneUid);
         final var error = WaystonePermissionManager.mayEditWaystone(player, player.level(), waystone);
         if (error.isPresent()) {
             return;
@@ -69,15 +69,11 @@ public class EditWaystoneMessage implements CustomPacketPayload {
         final var legalName = makeNameLegal(player.server, message.name);
         backingWaystone.setName(legalName);
 
-        if (visibility == WaystoneVisibility.GLOBAL && (WaystonePermissionManager.isAllowedVisibility(visibility) || WaystonePermissionManager.skipsPermissions(
-                player))) {
-            if (backingWaystone.getVisibility() != WaystoneVisibility.GLOBAL) {
-                PlayerWaystoneManager.activeWaystoneForEveryone(player.server, backingWaystone);
-            }
+        if (visibility != WaystoneVisibility.GLOBAL) {
+            PlayerWaystoneManager.retainImplicitActivations(player.server, backingWaystone);
         }
         backingWaystone.setVisibility(visibility);
 
-        WaystoneManagerImpl.get(player.server).setDirty();
         WaystoneSyncManager.sendWaystoneUpdateToAll(player.server, backingWaystone);
 
         player.closeContainer();
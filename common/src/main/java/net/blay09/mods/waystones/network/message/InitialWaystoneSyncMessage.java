@@ -0,0 +1,96 @@
+package net.blay09.mods.waystones.network.message;
+
+import net.blay09.mods.balm.api.Balm;
+import net.blay09.mods.waystones.Waystones;
+import net.blay09.mods.waystones.api.WaystoneTypes;
+import net.blay09.mods.waystones.client.WaystoneCatalogueCache;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything a player needs on login, sent as one payload instead of one message per list. Lists the client still has cached are only named.
+ */
+public class InitialWaystoneSyncMessage implements CustomPacketPayload {
+
+    public static final CustomPacketPayload.Type<InitialWaystoneSyncMessage> TYPE = new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID,
+            "initial_sync"));
+
+    private final SortingIndexMessage sortingIndex;
+    private final KnownWaystonesMessage knownWaystones;
+    private final List<KnownWaystonesMessage> waystonesByType;
+    private final List<ResourceLocation> cachedTypes;
+    private final PlayerWaystoneCooldownsMessage cooldowns;
+
+    public InitialWaystoneSyncMessage(SortingIndexMessage sortingIndex, KnownWaystonesMessage knownWaystones, List<KnownWaystonesMessage> waystonesByType, List<ResourceLocation> cachedTypes, PlayerWaystoneCooldownsMessage cooldowns) {
+        this.sortingIndex = sortingIndex;
+        this.knownWaystones = knownWaystones;
+        this.waystonesByType = waystonesByType;
+        this.cachedTypes = cachedTypes;
+        this.cooldowns = cooldowns;
+    }
+
+    public static void encode(RegistryFriendlyByteBuf buf, InitialWaystoneSyncMessage message) {
+        SortingIndexMessage.encode(buf, message.sortingIndex);
+        KnownWaystonesMessage.encode(buf, message.knownWaystones);
+        buf.writeVarInt(message.waystonesByType.size());
+        for (KnownWaystonesMessage waystones : message.waystonesByType) {
+            KnownWaystonesMessage.encode(buf, waystones);
+        }
+        buf.writeVarInt(message.cachedTypes.size());
+        for (ResourceLocation type : message.cachedTypes) {
+            buf.writeResourceLocation(type);
+        }
+        PlayerWaystoneCooldownsMessage.encode(buf, message.cooldowns);
+    }
+
+    public static InitialWaystoneSyncMessage decode(RegistryFriendlyByteBuf buf) {
+        final var sortingIndex = SortingIndexMessage.decode(buf);
+        final var knownWaystones = KnownWaystonesMessage.decode(buf);
+        final var typeCount = buf.readVarInt();
+        final var waystonesByType = new ArrayList<KnownWaystonesMessage>(typeCount);
+        for (int i = 0; i < typeCount; i++) {
+            waystonesByType.add(KnownWaystonesMessage.decode(buf));
+        }
+        final var cachedTypeCount = buf.readVarInt();
+        final var cachedTypes = new ArrayList<ResourceLocation>(cachedTypeCount);
+        for (int i = 0; i < cachedTypeCount; i++) {
+            cachedTypes.add(buf.readResourceLocation());
+        }
+        final var cooldowns = PlayerWaystoneCooldownsMessage.decode(buf);
+        return new InitialWaystoneSyncMessage(sortingIndex, knownWaystones, waystonesByType, cachedTypes, cooldowns);
+    }
+
+    public static void handle(Player player, InitialWaystoneSyncMessage message) {
+        SortingIndexMessage.handle(player, message.sortingIndex);
+        if (message.cachedTypes.contains(WaystoneTypes.WAYSTONE)) {
+            final var cachedWaystones = WaystoneCatalogueCache.getCachedList(WaystoneTypes.WAYSTONE);
+            if (cachedWaystones != null) {
+                KnownWaystonesMessage.handle(player, new KnownWaystonesMessage(WaystoneTypes.WAYSTONE, message.knownWaystones.getVersion(), cachedWaystones));
+            } else {
+                Balm.getNetworking().sendToServer(new RequestKnownWaystonesMessage(RequestKnownWaystonesMessage.NO_VERSION));
+            }
+        } else {
+            KnownWaystonesMessage.handle(player, message.knownWaystones);
+        }
+        for (KnownWaystonesMessage waystones : message.waystonesByType) {
+            KnownWaystonesMessage.handle(player, waystones);
+        }
+        for (ResourceLocation type : message.cachedTypes) {
+            final var cachedWaystones = WaystoneCatalogueCache.getCachedList(type);
+            if (!type.equals(WaystoneTypes.WAYSTONE) && cachedWaystones != null) {
+                KnownWaystonesMessage.handle(player, new KnownWaystonesMessage(type, cachedWaystones));
+            }
+        }
+        PlayerWaystoneCooldownsMessage.handle(player, message.cooldowns);
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
@@ -12,6 +12,8 @@ import net.blay09.mods.waystones.core.WaystoneImpl;
 import net.blay09.mods.waystones.menu.ModMenus;
 import net.blay09.mods.waystones.menu.WaystoneSelectionMenu;
 import net.blay09.mods.waystones.core.PlayerWaystoneManager;
+import net.blay09.mods.waystones.core.WaystoneListStreamer;
+import net.blay09.mods.waystones.core.WaystoneSyncManager;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.RegistryFriendlyByteBuf;
 import net.minecraft.network.chat.Component;
@@ -51,6 +53,7 @@ public class InventoryButtonMessage implements CustomPacketPayload {
         // Reset cooldown if player is in creative mode
         if (player.getAbilities().instabuild) {
             PlayerWaystoneManager.resetCooldowns(player);
+            WaystoneSyncManager.sendWaystoneCooldowns(player);
         }
 
         final var waystone = PlayerWaystoneManager.getInventoryButtonTarget(player);
@@ -73,7 +76,7 @@ public class InventoryButtonMessage implements CustomPacketPayload {
 
                 @Override
                 public Collection<Waystone> getScreenOpeningData(ServerPlayer serverPlayer) {
-                    return waystones;
+                    return WaystoneListStreamer.beginMenuStream(serverPlayer, waystones);
                 }
 
                 @Override
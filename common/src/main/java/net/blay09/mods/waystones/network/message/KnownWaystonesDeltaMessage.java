@@ -0,0 +1,96 @@
+package net.blay09.mods.waystones.network.message;
+
+import net.blay09.mods.balm.api.Balm;
+import net.blay09.mods.balm.api.BalmEnvironment;
+import net.blay09.mods.waystones.Waystones;
+import net.blay09.mods.waystones.api.Waystone;
+import net.blay09.mods.waystones.api.WaystoneTypes;
+import net.blay09.mods.waystones.api.event.WaystoneUpdateReceivedEvent;
+import net.blay09.mods.waystones.api.event.WaystonesListReceivedEvent;
+import net.blay09.mods.waystones.client.WaystoneCatalogueCache;
+import net.blay09.mods.waystones.core.*;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class KnownWaystonesDeltaMessage implements CustomPacketPayload {
+
+    public static final CustomPacketPayload.Type<KnownWaystonesDeltaMessage> TYPE = new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID,
+            "known_waystones_delta"));
+
+    private final int baseVersion;
+    private final int version;
+    private final List<Waystone> changed;
+    private final List<UUID> removed;
+
+    public KnownWaystonesDeltaMessage(int baseVersion, int version, List<Waystone> changed, List<UUID> removed) {
+        this.baseVersion = baseVersion;
+        this.version = version;
+        this.changed = changed;
+        this.removed = removed;
+    }
+
+    public static void encode(RegistryFriendlyByteBuf buf, KnownWaystonesDeltaMessage message) {
+        buf.writeVarInt(message.baseVersion);
+        buf.writeVarInt(message.version);
+        WaystoneImpl.writeList(buf, message.changed);
+        buf.writeVarInt(message.removed.size());
+        for (UUID waystoneUid : message.removed) {
+            buf.writeUUID(waystoneUid);
+        }
+    }
+
+    public static KnownWaystonesDeltaMessage decode(RegistryFriendlyByteBuf buf) {
+        final var baseVersion = buf.readVarInt();
+        final var version = buf.readVarInt();
+        final var changed = WaystoneImpl.readList(buf);
+        final var removedCount = buf.readVarInt();
+        final var removed = new ArrayList<UUID>(removedCount);
+        for (int i = 0; i < removedCount; i++) {
+            removed.add(buf.readUUID());
+        }
+        return new KnownWaystonesDeltaMessage(baseVersion, version, changed, removed);
+    }
+
+    public static void handle(Player player, KnownWaystonesDeltaMessage message) {
+        final var playerWaystoneData = (InMemoryPlayerWaystoneData) PlayerWaystoneManager.getPlayerWaystoneData(BalmEnvironment.CLIENT);
+        if (playerWaystoneData.getKnownWaystonesVersion() != message.baseVersion) {
+            // We missed something along the way, so start over from a full list
+            if (playerWaystoneData.requestResync()) {
+                Balm.getNetworking().sendToServer(new RequestKnownWaystonesMessage(playerWaystoneData.getKnownWaystonesVersion()));
+            }
+            return;
+        }
+
+        final var updated = new ArrayList<Waystone>();
+        for (Waystone waystone : message.changed) {
+            if (playerWaystoneData.isWaystoneActivated(player, waystone)) {
+                updated.add(waystone);
+            }
+        }
+
+        playerWaystoneData.applyWaystonesDelta(message.changed, message.removed);
+        playerWaystoneData.setKnownWaystonesVersion(message.version);
+        WaystoneCatalogueCache.markDirty();
+
+        for (Waystone waystone : message.changed) {
+            WaystoneManagerImpl.get(player.getServer()).updateWaystone(waystone);
+        }
+
+        for (Waystone waystone : updated) {
+            Balm.getEvents().fireEvent(new WaystoneUpdateReceivedEvent(waystone));
+        }
+
+        Balm.getEvents().fireEvent(new WaystonesListReceivedEvent(WaystoneTypes.WAYSTONE, List.copyOf(playerWaystoneData.getWaystones(player))));
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
@@ -6,13 +6,13 @@ import net.blay09.mods.waystones.Waystones;
 import net.blay09.mods.waystones.api.Waystone;
 import net.blay09.mods.waystones.api.event.WaystonesListReceivedEvent;
 import net.blay09.mods.waystones.api.WaystoneTypes;
+import net.blay09.mods.waystones.client.WaystoneCatalogueCache;
 import net.blay09.mods.waystones.core.*;
 import net.minecraft.network.RegistryFriendlyByteBuf;
 import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.entity.player.Player;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -22,29 +22,38 @@ public class KnownWaystonesMessage implements CustomPacketPayload {
             "known_waystones"));
 
     private final ResourceLocation type;
+    private final int version;
     private final Collection<Waystone> waystones;
 
     public KnownWaystonesMessage(ResourceLocation type, Collection<Waystone> waystones) {
+        this(type, 0, waystones);
+    }
+
+    public KnownWaystonesMessage(ResourceLocation type, int version, Collection<Waystone> waystones) {
         this.type = type;
+        this.version = version;
         this.waystones = waystones;
     }
 
+    public ResourceLocation getWaystoneType() {
+        return type;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
     public static void encode(RegistryFriendlyByteBuf buf, KnownWaystonesMessage message) {
         buf.writeResourceLocation(message.type);
-        buf.writeShort(message.waystones.size());
-        for (Waystone waystone : message.waystones) {
-            WaystoneImpl.write(buf, waystone);
-        }
+        buf.writeVarInt(message.version);
+        WaystoneImpl.writeList(buf, message.waystones);
     }
 
     public static KnownWaystonesMessage decode(RegistryFriendlyByteBuf buf) {
         ResourceLocation type = buf.readResourceLocation();
-        int waystoneCount = buf.readShort();
-        List<Waystone> waystones = new ArrayList<>();
-        for (int i = 0; i < waystoneCount; i++) {
-            waystones.add(WaystoneImpl.read(buf));
-        }
-        return new KnownWaystonesMessage(type, waystones);
+        int version = buf.readVarInt();
+        List<Waystone> waystones = WaystoneImpl.readList(buf);
+        return new KnownWaystonesMessage(type, version, waystones);
     }
 
     public static void handle(Player player, KnownWaystonesMessage message) {
@@ -52,6 +61,7 @@ public class KnownWaystonesMessage implements CustomPacketPayload {
         if (message.type.equals(WaystoneTypes.WAYSTONE)) {
             InMemoryPlayerWaystoneData playerWaystoneData = (InMemoryPlayerWaystoneData) PlayerWaystoneManager.getPlayerWaystoneData(BalmEnvironment.CLIENT);
             playerWaystoneData.setWaystones(message.waystones);
+            playerWaystoneData.setKnownWaystonesVersion(message.version);
         }
 
         Balm.getEvents().fireEvent(new WaystonesListReceivedEvent(message.type, waystones));
@@ -59,6 +69,7 @@ public class KnownWaystonesMessage implements CustomPacketPayload {
         for (Waystone waystone : message.waystones) {
             WaystoneManagerImpl.get(player.getServer()).updateWaystone(waystone);
         }
+        WaystoneCatalogueCache.onListReceived(message.type, message.waystones);
     }
 
     @Override
@@ -10,36 +10,63 @@ import net.minecraft.world.entity.player.Player;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Carries cooldowns as time remaining rather than as a timestamp, so that the client does not depend on its clock matching the server's. A
+ * remaining time of zero means the cooldown ended. Unless the message replaces all cooldowns, keys it does not mention are left alone.
+ */
 public class PlayerWaystoneCooldownsMessage implements CustomPacketPayload {
 
     public static final CustomPacketPayload.Type<PlayerWaystoneCooldownsMessage> TYPE = new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID,
             "player_waystone_cooldowns"));
 
-    private final Map<ResourceLocation, Long> cooldowns;
+    private final boolean replaceAll;
+    private final Map<ResourceLocation, Long> millisLeft;
 
-    public PlayerWaystoneCooldownsMessage(Map<ResourceLocation, Long> cooldowns) {
-        this.cooldowns = cooldowns;
+    private PlayerWaystoneCooldownsMessage(boolean replaceAll, Map<ResourceLocation, Long> millisLeft) {
+        this.replaceAll = replaceAll;
+        this.millisLeft = millisLeft;
+    }
+
+    public static PlayerWaystoneCooldownsMessage full(Map<ResourceLocation, Long> cooldowns) {
+        return new PlayerWaystoneCooldownsMessage(true, toMillisLeft(cooldowns));
+    }
+
+    public static PlayerWaystoneCooldownsMessage delta(Map<ResourceLocation, Long> cooldowns) {
+        return new PlayerWaystoneCooldownsMessage(false, toMillisLeft(cooldowns));
+    }
+
+    private static Map<ResourceLocation, Long> toMillisLeft(Map<ResourceLocation, Long> cooldowns) {
+        final var now = System.currentTimeMillis();
+        final var millisLeft = new HashMap<ResourceLocation, Long>(cooldowns.size());
+        cooldowns.forEach((key, timestamp) -> millisLeft.put(key, Math.max(0, timestamp - now)));
+        return millisLeft;
     }
 
     public static void encode(FriendlyByteBuf buf, PlayerWaystoneCooldownsMessage message) {
-        buf.writeByte(message.cooldowns.size());
-        for (Map.Entry<ResourceLocation, Long> entry : message.cooldowns.entrySet()) {
+        buf.writeBoolean(message.replaceAll);
+        buf.writeVarInt(message.millisLeft.size());
+        for (Map.Entry<ResourceLocation, Long> entry : message.millisLeft.entrySet()) {
             buf.writeResourceLocation(entry.getKey());
-            buf.writeLong(entry.getValue());
+            buf.writeVarLong(entry.getValue());
         }
     }
 
     public static PlayerWaystoneCooldownsMessage decode(FriendlyByteBuf buf) {
-        final var size = buf.readByte();
-        final var cooldowns = new HashMap<ResourceLocation, Long>(size);
+        final var replaceAll = buf.readBoolean();
+        final var size = buf.readVarInt();
+        final var millisLeft = new HashMap<ResourceLocation, Long>(size);
         for (var i = 0; i < size; i++) {
-            cooldowns.put(buf.readResourceLocation(), buf.readLong());
+            millisLeft.put(buf.readResourceLocation(), buf.readVarLong());
         }
-        return new PlayerWaystoneCooldownsMessage(cooldowns);
+        return new PlayerWaystoneCooldownsMessage(replaceAll, millisLeft);
     }
 
     public static void handle(Player player, PlayerWaystoneCooldownsMessage message) {
-        message.cooldowns.forEach((key, timestamp) -> PlayerWaystoneManager.setCooldownUntil(player, key, timestamp));
+        if (message.replaceAll) {
+            PlayerWaystoneManager.resetCooldowns(player);
+        }
+        final var now = System.currentTimeMillis();
+        message.millisLeft.forEach((key, millisLeft) -> PlayerWaystoneManager.setCooldownUntil(player, key, millisLeft > 0 ? now + millisLeft : 0));
     }
 
     @Override
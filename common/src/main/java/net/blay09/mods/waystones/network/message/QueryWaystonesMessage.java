@@ -0,0 +1,42 @@
+package net.blay09.mods.waystones.network.message;
+
+import net.blay09.mods.waystones.Waystones;
+import net.blay09.mods.waystones.menu.WaystoneSelectionMenu;
+import net.blay09.mods.waystones.menu.WaystoneSelectionQuery;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+
+public class QueryWaystonesMessage implements CustomPacketPayload {
+
+    public static final CustomPacketPayload.Type<QueryWaystonesMessage> TYPE = new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID,
+            "query_waystones"));
+
+    private final WaystoneSelectionQuery query;
+
+    public QueryWaystonesMessage(WaystoneSelectionQuery query) {
+        this.query = query;
+    }
+
+    public static void encode(FriendlyByteBuf buf, QueryWaystonesMessage message) {
+        WaystoneSelectionQuery.write(buf, message.query);
+    }
+
+    public static QueryWaystonesMessage decode(FriendlyByteBuf buf) {
+        return new QueryWaystonesMessage(WaystoneSelectionQuery.read(buf));
+    }
+
+    public static void handle(ServerPlayer player, QueryWaystonesMessage message) {
+        if (!(player.containerMenu instanceof WaystoneSelectionMenu selectionMenu) || !selectionMenu.isQueryMode()) {
+            return;
+        }
+
+        selectionMenu.requestQuery(player, message.query);
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
@@ -14,36 +14,43 @@ import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.level.block.state.BlockState;
 
 import java.util.Objects;
-import java.util.UUID;
 
 public class RemoveWaystoneMessage implements CustomPacketPayload {
 
     public static final CustomPacketPayload.Type<RemoveWaystoneMessage> TYPE = new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID,
             "remove_waystone"));
 
-    private final UUID waystoneUid;
+    private final int waystoneHandle;
 
-    public RemoveWaystoneMessage(UUID waystoneUid) {
-        this.waystoneUid = waystoneUid;
+    public RemoveWaystoneMessage(int waystoneHandle) {
+        this.waystoneHandle = waystoneHandle;
     }
 
     public static void encode(FriendlyByteBuf buf, RemoveWaystoneMessage message) {
-        buf.writeUUID(message.waystoneUid);
+        buf.writeVarInt(message.waystoneHandle);
     }
 
     public static RemoveWaystoneMessage decode(FriendlyByteBuf buf) {
-        UUID waystoneUid = buf.readUUID();
-        return new RemoveWaystoneMessage(waystoneUid);
+        int waystoneHandle = buf.readVarInt();
+        return new RemoveWaystoneMessage(waystoneHandle);
     }
 
     public static void handle(ServerPlayer player, RemoveWaystoneMessage message) {
-        WaystoneProxy waystone = new WaystoneProxy(player.server, message.waystoneUid);
-        PlayerWaystoneManager.deactivateWaystone(player, waystone);
+        final var foundWaystone = WaystoneManagerImpl.get(player.server).getWaystoneByHandle(message.waystoneHandle);
+        if (foundWaystone.isEmpty()) {
+            // The client is holding on to a waystone that is gone, so drop whatever the player still has under that handle and send them the current list
+            PlayerWaystoneManager.deactivateStaleWaystone(player, message.waystoneHandle);
+            WaystoneSyncManager.requestResync(player, RequestKnownWaystonesMessage.NO_VERSION);
+            return;
+        }
+
+        Waystone backingWaystone = foundWaystone.get();
+        PlayerWaystoneManager.deactivateWaystone(player, backingWaystone);
 
         // If the waystone is global and the player is in creative mode, remove the global-ness
-        if (waystone.getVisibility() == WaystoneVisibility.GLOBAL && player.getAbilities().instabuild) {
-            Waystone backingWaystone = waystone.getBackingWaystone();
+        if (backingWaystone.getVisibility() == WaystoneVisibility.GLOBAL && player.getAbilities().instabuild) {
             if (backingWaystone instanceof WaystoneImpl) {
+                PlayerWaystoneManager.retainImplicitActivations(player.server, backingWaystone);
                 ((WaystoneImpl) backingWaystone).setVisibility(WaystoneVisibility.ACTIVATION);
 
                 // Check if the waystone block still exists - if not, completely remove the waystone from existence to remove it from all players
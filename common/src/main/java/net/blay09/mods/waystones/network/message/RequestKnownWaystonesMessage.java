@@ -0,0 +1,42 @@
+package net.blay09.mods.waystones.network.message;
+
+import net.blay09.mods.waystones.Waystones;
+import net.blay09.mods.waystones.core.WaystoneSyncManager;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+
+public class RequestKnownWaystonesMessage implements CustomPacketPayload {
+
+    /**
+     * Sent by clients that have no known waystones list at all, e.g. because their cached one could not be loaded. Never matches a server version.
+     */
+    public static final int NO_VERSION = -1;
+
+    public static final CustomPacketPayload.Type<RequestKnownWaystonesMessage> TYPE = new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID,
+            "request_known_waystones"));
+
+    private final int knownVersion;
+
+    public RequestKnownWaystonesMessage(int knownVersion) {
+        this.knownVersion = knownVersion;
+    }
+
+    public static void encode(FriendlyByteBuf buf, RequestKnownWaystonesMessage message) {
+        buf.writeVarInt(message.knownVersion);
+    }
+
+    public static RequestKnownWaystonesMessage decode(FriendlyByteBuf buf) {
+        return new RequestKnownWaystonesMessage(buf.readVarInt());
+    }
+
+    public static void handle(ServerPlayer player, RequestKnownWaystonesMessage message) {
+        WaystoneSyncManager.requestResync(player, message.knownVersion);
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
@@ -2,37 +2,36 @@ package net.blay09.mods.waystones.network.message;
 
 import net.blay09.mods.waystones.Waystones;
 import net.blay09.mods.waystones.core.PlayerWaystoneManager;
+import net.blay09.mods.waystones.core.WaystoneManagerImpl;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
 
-import java.util.UUID;
-
 public class SortWaystoneMessage implements CustomPacketPayload {
 
         public static final CustomPacketPayload.Type<SortWaystoneMessage> TYPE = new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID, "sort_waystone"));
 
-    public static final UUID SORT_FIRST = UUID.fromString("00000000-0000-0000-0000-000000000000");
-    public static final UUID SORT_LAST = UUID.fromString("ffffffff-ffff-ffff-ffff-ffffffffffff");
+    public static final int SORT_FIRST = -2;
+    public static final int SORT_LAST = -3;
 
-    private final UUID waystoneUid;
-    private final UUID otherWaystoneUid;
+    private final int waystoneHandle;
+    private final int otherWaystoneHandle;
 
-    public SortWaystoneMessage(UUID waystoneUid, UUID otherWaystoneUid) {
-        this.waystoneUid = waystoneUid;
-        this.otherWaystoneUid = otherWaystoneUid;
+    public SortWaystoneMessage(int waystoneHandle, int otherWaystoneHandle) {
+        this.waystoneHandle = waystoneHandle;
+        this.otherWaystoneHandle = otherWaystoneHandle;
     }
 
     public static void encode(FriendlyByteBuf buf, SortWaystoneMessage message) {
-        buf.writeUUID(message.waystoneUid);
-        buf.writeUUID(message.otherWaystoneUid);
+        buf.writeVarInt(message.waystoneHandle);
+        buf.writeVarInt(message.otherWaystoneHandle);
     }
 
     public static SortWaystoneMessage decode(FriendlyByteBuf buf) {
-        final var waystoneUid = buf.readUUID();
-        final var otherWaystoneUid = buf.readUUID();
-        return new SortWaystoneMessage(waystoneUid, otherWaystoneUid);
+        final var waystoneHandle = buf.readVarInt();
+        final var otherWaystoneHandle = buf.readVarInt();
+        return new SortWaystoneMessage(waystoneHandle, otherWaystoneHandle);
     }
 
     public static void handle(ServerPlayer player, SortWaystoneMessage message) {
@@ -40,12 +39,21 @@ public class SortWaystoneMessage implements CustomPacketPayload {
             return;
         }
 
-        if (message.otherWaystoneUid.equals(SORT_FIRST)) {
-            PlayerWaystoneManager.sortWaystoneAsFirst(player, message.waystoneUid);
-        } else if (message.otherWaystoneUid.equals(SORT_LAST)) {
-            PlayerWaystoneManager.sortWaystoneAsLast(player, message.waystoneUid);
+        final var waystoneManager = WaystoneManagerImpl.get(player.server);
+        final var waystoneUid = waystoneManager.getWaystoneUid(message.waystoneHandle);
+        if (waystoneUid == null) {
+            return;
+        }
+
+        if (message.otherWaystoneHandle == SORT_FIRST) {
+            PlayerWaystoneManager.sortWaystoneAsFirst(player, waystoneUid);
+        } else if (message.otherWaystoneHandle == SORT_LAST) {
+            PlayerWaystoneManager.sortWaystoneAsLast(player, waystoneUid);
         } else {
-            PlayerWaystoneManager.sortWaystoneSwap(player, message.waystoneUid, message.otherWaystoneUid);
+            final var otherWaystoneUid = waystoneManager.getWaystoneUid(message.otherWaystoneHandle);
+            if (otherWaystoneUid != null) {
+                PlayerWaystoneManager.sortWaystoneSwap(player, waystoneUid, otherWaystoneUid);
+            }
         }
     }
 
@@ -14,25 +14,35 @@ public class TeleportEffectMessage implements CustomPacketPayload {
     public static final CustomPacketPayload.Type<TeleportEffectMessage> TYPE = new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID,
             "teleport_effect"));
 
+    private static final int BASE_PARTICLES = 128;
+    private static final int PARTICLES_PER_EXTRA_ENTITY = 32;
+    private static final int MAX_PARTICLES = 384;
+
     private final BlockPos pos;
+    private final int entityCount;
 
-    public TeleportEffectMessage(BlockPos pos) {
+    public TeleportEffectMessage(BlockPos pos, int entityCount) {
         this.pos = pos;
+        this.entityCount = entityCount;
     }
 
     public static void encode(FriendlyByteBuf buf, TeleportEffectMessage message) {
         buf.writeBlockPos(message.pos);
+        buf.writeVarInt(message.entityCount);
     }
 
     public static TeleportEffectMessage decode(FriendlyByteBuf buf) {
         BlockPos pos = buf.readBlockPos();
-        return new TeleportEffectMessage(pos);
+        int entityCount = buf.readVarInt();
+        return new TeleportEffectMessage(pos, entityCount);
     }
 
     public static void handle(Player player, TeleportEffectMessage message) {
         Level level = player.level();
         if (level != null) {
-            for (int i = 0; i < 128; i++) {
+            // A group teleporting together gets a denser burst rather than one full burst per entity
+            final var particles = Math.min(BASE_PARTICLES + Math.max(message.entityCount - 1, 0) * PARTICLES_PER_EXTRA_ENTITY, MAX_PARTICLES);
+            for (int i = 0; i < particles; i++) {
                 level.addParticle(ParticleTypes.PORTAL, message.pos.getX() + (level.random.nextDouble() - 0.5) * 3, message.pos.getY() + level.random.nextDouble() * 3, message.pos.getZ() + (level.random.nextDouble() - 0.5) * 3, (level.random.nextDouble() - 0.5) * 2, -level.random.nextDouble(), (level.random.nextDouble() - 0.5) * 2);
             }
         }
@@ -4,6 +4,7 @@ import net.blay09.mods.balm.api.Balm;
 import net.blay09.mods.waystones.Waystones;
 import net.blay09.mods.waystones.api.Waystone;
 import net.blay09.mods.waystones.api.event.WaystoneUpdateReceivedEvent;
+import net.blay09.mods.waystones.client.WaystoneCatalogueCache;
 import net.blay09.mods.waystones.core.*;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.RegistryFriendlyByteBuf;
@@ -32,6 +33,7 @@ public class UpdateWaystoneMessage implements CustomPacketPayload {
 
     public static void handle(Player player, UpdateWaystoneMessage message) {
         WaystoneManagerImpl.get(player.getServer()).updateWaystone(message.waystone);
+        WaystoneCatalogueCache.onWaystoneUpdated(message.waystone);
         Balm.getEvents().fireEvent(new WaystoneUpdateReceivedEvent(message.waystone));
     }
 
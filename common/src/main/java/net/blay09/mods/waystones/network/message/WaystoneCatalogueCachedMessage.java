@@ -0,0 +1,54 @@
+package net.blay09.mods.waystones.network.message;
+
+import io.netty.handler.codec.DecoderException;
+import net.blay09.mods.waystones.Waystones;
+import net.blay09.mods.waystones.core.WaystoneSyncManager;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class WaystoneCatalogueCachedMessage implements CustomPacketPayload {
+
+    public static final CustomPacketPayload.Type<WaystoneCatalogueCachedMessage> TYPE = new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID,
+            "catalogue_cached"));
+
+    private static final int MAX_TYPES = 64;
+
+    private final Set<ResourceLocation> cachedTypes;
+
+    public WaystoneCatalogueCachedMessage(Set<ResourceLocation> cachedTypes) {
+        this.cachedTypes = cachedTypes;
+    }
+
+    public static void encode(FriendlyByteBuf buf, WaystoneCatalogueCachedMessage message) {
+        buf.writeVarInt(message.cachedTypes.size());
+        for (ResourceLocation type : message.cachedTypes) {
+            buf.writeResourceLocation(type);
+        }
+    }
+
+    public static WaystoneCatalogueCachedMessage decode(FriendlyByteBuf buf) {
+        final var count = buf.readVarInt();
+        if (count > MAX_TYPES) {
+            throw new DecoderException("Too many cached waystone list types: " + count);
+        }
+        final var cachedTypes = new HashSet<ResourceLocation>(count);
+        for (int i = 0; i < count; i++) {
+            cachedTypes.add(buf.readResourceLocation());
+        }
+        return new WaystoneCatalogueCachedMessage(cachedTypes);
+    }
+
+    public static void handle(ServerPlayer player, WaystoneCatalogueCachedMessage message) {
+        WaystoneSyncManager.sendInitialState(player, message.cachedTypes);
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
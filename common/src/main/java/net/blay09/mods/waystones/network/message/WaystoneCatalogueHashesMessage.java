@@ -0,0 +1,60 @@
+package net.blay09.mods.waystones.network.message;
+
+import net.blay09.mods.balm.api.Balm;
+import net.blay09.mods.waystones.Waystones;
+import net.blay09.mods.waystones.client.WaystoneCatalogueCache;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Sent on login with a content hash of every list the player is about to receive, so that the client can tell the server which ones it still
+ * has cached.
+ */
+public class WaystoneCatalogueHashesMessage implements CustomPacketPayload {
+
+    public static final CustomPacketPayload.Type<WaystoneCatalogueHashesMessage> TYPE = new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID,
+            "catalogue_hashes"));
+
+    private final UUID catalogueId;
+    private final Map<ResourceLocation, Long> hashes;
+
+    public WaystoneCatalogueHashesMessage(UUID catalogueId, Map<ResourceLocation, Long> hashes) {
+        this.catalogueId = catalogueId;
+        this.hashes = hashes;
+    }
+
+    public static void encode(FriendlyByteBuf buf, WaystoneCatalogueHashesMessage message) {
+        buf.writeUUID(message.catalogueId);
+        buf.writeVarInt(message.hashes.size());
+        for (final var entry : message.hashes.entrySet()) {
+            buf.writeResourceLocation(entry.getKey());
+            buf.writeLong(entry.getValue());
+        }
+    }
+
+    public static WaystoneCatalogueHashesMessage decode(FriendlyByteBuf buf) {
+        final var catalogueId = buf.readUUID();
+        final var count = buf.readVarInt();
+        final var hashes = new HashMap<ResourceLocation, Long>(count);
+        for (int i = 0; i < count; i++) {
+            hashes.put(buf.readResourceLocation(), buf.readLong());
+        }
+        return new WaystoneCatalogueHashesMessage(catalogueId, hashes);
+    }
+
+    public static void handle(Player player, WaystoneCatalogueHashesMessage message) {
+        final var cachedTypes = WaystoneCatalogueCache.loadMatching(message.catalogueId, message.hashes);
+        Balm.getNetworking().sendToServer(new WaystoneCatalogueCachedMessage(cachedTypes));
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
@@ -0,0 +1,48 @@
+package net.blay09.mods.waystones.network.message;
+
+import net.blay09.mods.waystones.Waystones;
+import net.blay09.mods.waystones.api.Waystone;
+import net.blay09.mods.waystones.core.WaystoneImpl;
+import net.blay09.mods.waystones.menu.WaystoneSelectionMenu;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.List;
+
+public class WaystoneListChunkMessage implements CustomPacketPayload {
+
+    public static final CustomPacketPayload.Type<WaystoneListChunkMessage> TYPE = new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID,
+            "waystone_list_chunk"));
+
+    private final int containerId;
+    private final List<Waystone> waystones;
+
+    public WaystoneListChunkMessage(int containerId, List<Waystone> waystones) {
+        this.containerId = containerId;
+        this.waystones = waystones;
+    }
+
+    public static void encode(RegistryFriendlyByteBuf buf, WaystoneListChunkMessage message) {
+        buf.writeVarInt(message.containerId);
+        WaystoneImpl.writeList(buf, message.waystones);
+    }
+
+    public static WaystoneListChunkMessage decode(RegistryFriendlyByteBuf buf) {
+        final var containerId = buf.readVarInt();
+        final var waystones = WaystoneImpl.readList(buf);
+        return new WaystoneListChunkMessage(containerId, waystones);
+    }
+
+    public static void handle(Player player, WaystoneListChunkMessage message) {
+        if (player.containerMenu instanceof WaystoneSelectionMenu menu && menu.containerId == message.containerId) {
+            menu.addStreamedWaystones(message.waystones);
+        }
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
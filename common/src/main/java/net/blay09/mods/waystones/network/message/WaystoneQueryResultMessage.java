@@ -0,0 +1,50 @@
+package net.blay09.mods.waystones.network.message;
+
+import net.blay09.mods.waystones.Waystones;
+import net.blay09.mods.waystones.core.WaystoneImpl;
+import net.blay09.mods.waystones.menu.WaystoneSelectionMenu;
+import net.blay09.mods.waystones.menu.WaystoneSelectionQuery;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.player.Player;
+
+public class WaystoneQueryResultMessage implements CustomPacketPayload {
+
+    public static final CustomPacketPayload.Type<WaystoneQueryResultMessage> TYPE = new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID,
+            "waystone_query_result"));
+
+    private final int containerId;
+    private final WaystoneSelectionQuery.Result result;
+
+    public WaystoneQueryResultMessage(int containerId, WaystoneSelectionQuery.Result result) {
+        this.containerId = containerId;
+        this.result = result;
+    }
+
+    public static void encode(RegistryFriendlyByteBuf buf, WaystoneQueryResultMessage message) {
+        buf.writeVarInt(message.containerId);
+        WaystoneSelectionQuery.write(buf, message.result.query());
+        buf.writeVarInt(message.result.totalCount());
+        WaystoneImpl.writeList(buf, message.result.waystones());
+    }
+
+    public static WaystoneQueryResultMessage decode(RegistryFriendlyByteBuf buf) {
+        final var containerId = buf.readVarInt();
+        final var query = WaystoneSelectionQuery.read(buf);
+        final var totalCount = buf.readVarInt();
+        final var waystones = WaystoneImpl.readList(buf);
+        return new WaystoneQueryResultMessage(containerId, new WaystoneSelectionQuery.Result(query, totalCount, waystones));
+    }
+
+    public static void handle(Player player, WaystoneQueryResultMessage message) {
+        if (player.containerMenu instanceof WaystoneSelectionMenu menu && menu.containerId == message.containerId) {
+            menu.setQueryResult(message.result);
+        }
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
@@ -3,6 +3,7 @@ package net.blay09.mods.waystones.network.message;
 import net.blay09.mods.balm.api.Balm;
 import net.blay09.mods.waystones.Waystones;
 import net.blay09.mods.waystones.api.event.WaystoneRemoveReceivedEvent;
+import net.blay09.mods.waystones.client.WaystoneCatalogueCache;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
 import net.minecraft.resources.ResourceLocation;
@@ -36,6 +37,7 @@ public class WaystoneRemovedMessage implements CustomPacketPayload {
     }
 
     public static void handle(Player player, WaystoneRemovedMessage message) {
+        WaystoneCatalogueCache.onWaystoneRemoved(message.waystoneType, message.waystoneId);
         Balm.getEvents().fireEvent(new WaystoneRemoveReceivedEvent(message.waystoneType, message.waystoneId, message.wasDestroyed));
     }
 
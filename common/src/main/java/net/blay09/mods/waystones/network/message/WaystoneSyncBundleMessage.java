@@ -0,0 +1,101 @@
+package net.blay09.mods.waystones.network.message;
+
+import net.blay09.mods.waystones.Waystones;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.player.Player;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything that changed for a player during one server tick, applied on the client in the same order the individual messages would have been.
+ */
+public class WaystoneSyncBundleMessage implements CustomPacketPayload {
+
+    public static final CustomPacketPayload.Type<WaystoneSyncBundleMessage> TYPE = new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(Waystones.MOD_ID,
+            "sync_bundle"));
+
+    private final KnownWaystonesDeltaMessage knownWaystonesDelta;
+    private final List<UpdateWaystoneMessage> updates;
+    private final List<WaystoneRemovedMessage> removals;
+    private final SortingIndexMessage sortingIndex;
+    private final PlayerWaystoneCooldownsMessage cooldowns;
+
+    public WaystoneSyncBundleMessage(@Nullable KnownWaystonesDeltaMessage knownWaystonesDelta, List<UpdateWaystoneMessage> updates, List<WaystoneRemovedMessage> removals, @Nullable SortingIndexMessage sortingIndex, @Nullable PlayerWaystoneCooldownsMessage cooldowns) {
+        this.knownWaystonesDelta = knownWaystonesDelta;
+        this.updates = updates;
+        this.removals = removals;
+        this.sortingIndex = sortingIndex;
+        this.cooldowns = cooldowns;
+    }
+
+    public boolean isEmpty() {
+        return knownWaystonesDelta == null && updates.isEmpty() && removals.isEmpty() && sortingIndex == null && cooldowns == null;
+    }
+
+    public static void encode(RegistryFriendlyByteBuf buf, WaystoneSyncBundleMessage message) {
+        buf.writeBoolean(message.knownWaystonesDelta != null);
+        if (message.knownWaystonesDelta != null) {
+            KnownWaystonesDeltaMessage.encode(buf, message.knownWaystonesDelta);
+        }
+        buf.writeVarInt(message.updates.size());
+        for (UpdateWaystoneMessage update : message.updates) {
+            UpdateWaystoneMessage.encode(buf, update);
+        }
+        buf.writeVarInt(message.removals.size());
+        for (WaystoneRemovedMessage removal : message.removals) {
+            WaystoneRemovedMessage.encode(buf, removal);
+        }
+        buf.writeBoolean(message.sortingIndex != null);
+        if (message.sortingIndex != null) {
+            SortingIndexMessage.encode(buf, message.sortingIndex);
+        }
+        buf.writeBoolean(message.cooldowns != null);
+        if (message.cooldowns != null) {
+            PlayerWaystoneCooldownsMessage.encode(buf, message.cooldowns);
+        }
+    }
+
+    public static WaystoneSyncBundleMessage decode(RegistryFriendlyByteBuf buf) {
+        final var knownWaystonesDelta = buf.readBoolean() ? KnownWaystonesDeltaMessage.decode(buf) : null;
+        final var updateCount = buf.readVarInt();
+        final var updates = new ArrayList<UpdateWaystoneMessage>(updateCount);
+        for (int i = 0; i < updateCount; i++) {
+            updates.add(UpdateWaystoneMessage.decode(buf));
+        }
+        final var removalCount = buf.readVarInt();
+        final var removals = new ArrayList<WaystoneRemovedMessage>(removalCount);
+        for (int i = 0; i < removalCount; i++) {
+            removals.add(WaystoneRemovedMessage.decode(buf));
+        }
+        final var sortingIndex = buf.readBoolean() ? SortingIndexMessage.decode(buf) : null;
+        final var cooldowns = buf.readBoolean() ? PlayerWaystoneCooldownsMessage.decode(buf) : null;
+        return new WaystoneSyncBundleMessage(knownWaystonesDelta, updates, removals, sortingIndex, cooldowns);
+    }
+
+    public static void handle(Player player, WaystoneSyncBundleMessage message) {
+        if (message.knownWaystonesDelta != null) {
+            KnownWaystonesDeltaMessage.handle(player, message.knownWaystonesDelta);
+        }
+        for (UpdateWaystoneMessage update : message.updates) {
+            UpdateWaystoneMessage.handle(player, update);
+        }
+        for (WaystoneRemovedMessage removal : message.removals) {
+            WaystoneRemovedMessage.handle(player, removal);
+        }
+        if (message.sortingIndex != null) {
+            SortingIndexMessage.handle(player, message.sortingIndex);
+        }
+        if (message.cooldowns != null) {
+            PlayerWaystoneCooldownsMessage.handle(player, message.cooldowns);
+        }
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
@@ -22,20 +22,21 @@ public class CooldownRequirement implements WarpRequirement {
 
     @Override
     public boolean canAfford(Player player) {
-        return getCooldownMillisLeft(player) <= 0;
+        return !PlayerWaystoneManager.isOnCooldown(player, key);
     }
 
     @Override
     public void consume(Player player) {
         if (seconds > 0) {
             PlayerWaystoneManager.setCooldownUntil(player, key, System.currentTimeMillis() + seconds * 1000L);
-            WaystoneSyncManager.sendWaystoneCooldowns(player);
+            WaystoneSyncManager.sendCooldownUpdate(player, key);
         }
     }
 
     @Override
     public void rollback(Player player) {
         PlayerWaystoneManager.setCooldownUntil(player, key, 0);
+        WaystoneSyncManager.sendCooldownUpdate(player, key);
     }
 
     @Override
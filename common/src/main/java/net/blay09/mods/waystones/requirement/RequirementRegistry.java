@@ -260,10 +260,10 @@ public class RequirementRegistry {
         registerConditionResolver("target_is_waystone",
                 NoParameter.class,
                 (context, parameters) -> context.getTargetWaystone().getWaystoneType().equals(WaystoneTypes.WAYSTONE));
-        registerConditionResolver("is_with_pets", NoParameter.class, (context, parameters) -> !WaystoneTeleportManager.findPets(context.getEntity()).isEmpty());
+        registerConditionResolver("is_with_pets", NoParameter.class, (context, parameters) -> !WaystoneTeleportManager.findPets(context).isEmpty());
         registerConditionResolver("is_with_leashed",
                 NoParameter.class,
-                (context, parameters) -> !WaystoneTeleportManager.findLeashedAnimals(context.getEntity()).isEmpty());
+                (context, parameters) -> !WaystoneTeleportManager.findLeashedAnimals(context).isEmpty());
         registerConditionResolver("source_is_dimension",
                 IdParameter.class,
                 (context, parameters) -> context.getFromWaystone()
@@ -281,12 +281,11 @@ public class RequirementRegistry {
                         .equals(parameters.value));
         registerConditionResolver("is_within_distance",
                 FloatParameter.class,
-                (context, parameters) -> (float) Math.sqrt(context.getEntity()
-                        .distanceToSqr(context.getTargetWaystone().getPos().getCenter())) <= parameters.value);
+                (context, parameters) -> WaystoneTeleportManager.getDistanceToTarget(context) <= parameters.value);
 
-        registerVariableResolver("distance", it -> (float) Math.sqrt(it.getEntity().distanceToSqr(it.getTargetWaystone().getPos().getCenter())));
-        registerVariableResolver("leashed", it -> (float) WaystoneTeleportManager.findLeashedAnimals(it.getEntity()).size());
-        registerVariableResolver("pets", it -> (float) WaystoneTeleportManager.findPets(it.getEntity()).size());
+        registerVariableResolver("distance", WaystoneTeleportManager::getDistanceToTarget);
+        registerVariableResolver("leashed", it -> (float) WaystoneTeleportManager.findLeashedAnimals(it).size());
+        registerVariableResolver("pets", it -> (float) WaystoneTeleportManager.findPets(it).size());
     }
 
     private static <T extends WarpRequirement> RequirementType<T> createDefaultType(String name, Class<T> requirementClass) {
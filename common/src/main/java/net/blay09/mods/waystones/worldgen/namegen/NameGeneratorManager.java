@@ -31,6 +31,7 @@ public class NameGeneratorManager extends SavedData {
     private static final NameGeneratorManager clientStorageCopy = new NameGeneratorManager();
 
     private final Set<String> usedNames = Sets.newHashSet();
+    private final ListTag encodedUsedNames = new ListTag();
 
     private NameGenerator getNameGenerator(NameGenerationMode nameGenerationMode) {
         final var randomGenerator = new TemplateNameGenerator(WaystonesConfig.getActive().worldGen.nameGenerationTemplate)
@@ -58,7 +59,9 @@ public class NameGeneratorManager extends SavedData {
         Balm.getEvents().fireEvent(event);
         name = event.getName();
 
-        usedNames.add(name.getString());
+        if (usedNames.add(name.getString())) {
+            encodedUsedNames.add(StringTag.valueOf(name.getString()));
+        }
         setDirty();
         return name;
     }
@@ -77,18 +80,17 @@ public class NameGeneratorManager extends SavedData {
         NameGeneratorManager nameGenerator = new NameGeneratorManager();
         ListTag tagList = compound.getList(USED_NAMES, Tag.TAG_STRING);
         for (Tag tag : tagList) {
-            nameGenerator.usedNames.add(tag.getAsString());
+            if (nameGenerator.usedNames.add(tag.getAsString())) {
+                nameGenerator.encodedUsedNames.add(tag);
+            }
         }
         return nameGenerator;
     }
 
     @Override
-    public CompoundTag save(CompoundTag compound, HolderLookup.Provider provider) {
-        ListTag tagList = new ListTag();
-        for (String entry : usedNames) {
-            tagList.add(StringTag.valueOf(entry));
-        }
-        compound.put(USED_NAMES, tagList);
+    public synchronized CompoundTag save(CompoundTag compound, HolderLookup.Provider provider) {
+        // Names are only ever appended, so the already encoded list is reused; the copy only duplicates references since string tags are immutable
+        compound.put(USED_NAMES, encodedUsedNames.copy());
         return compound;
     }
 
@@ -0,0 +1,126 @@
+package net.blay09.mods.waystones.core;
+
+import net.minecraft.resources.ResourceLocation;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CooldownTimerWheelTest {
+
+    private static final long TICK_MILLIS = 50;
+    private static final long START = 1_000_000L * TICK_MILLIS;
+    private static final ResourceLocation KEY = ResourceLocation.fromNamespaceAndPath("waystones", "test");
+
+    private static CooldownTimerWheel createWheel() {
+        final var wheel = new CooldownTimerWheel();
+        // Advancing an empty wheel pins its clock, so scheduling does not depend on the system time
+        wheel.advance(START, it -> fail("nothing scheduled yet"));
+        return wheel;
+    }
+
+    private static CooldownTimerWheel.Entry entry(long expiresAt) {
+        return new CooldownTimerWheel.Entry(UUID.randomUUID(), KEY, expiresAt);
+    }
+
+    @Test
+    void firesOnlyOnceDue() {
+        final var wheel = createWheel();
+        final var entry = entry(START + 10 * TICK_MILLIS);
+        wheel.schedule(entry);
+
+        final var fired = new ArrayList<CooldownTimerWheel.Entry>();
+        wheel.advance(START + 9 * TICK_MILLIS, fired::add);
+        assertTrue(fired.isEmpty());
+
+        wheel.advance(START + 10 * TICK_MILLIS, fired::add);
+        assertEquals(List.of(entry), fired);
+
+        wheel.advance(START + 100 * TICK_MILLIS, fired::add);
+        assertEquals(List.of(entry), fired);
+    }
+
+    @Test
+    void alreadyExpiredEntryFiresOnNextTick() {
+        final var wheel = createWheel();
+        final var entry = entry(START - 1000);
+        wheel.schedule(entry);
+
+        final var fired = new ArrayList<CooldownTimerWheel.Entry>();
+        wheel.advance(START + TICK_MILLIS, fired::add);
+        assertEquals(List.of(entry), fired);
+    }
+
+    @Test
+    void entriesCascadeThroughEveryLevel() {
+        // Right before and after each level boundary of a 64 slot wheel, plus one beyond the range of the top level
+        final var delays = new long[]{1, 63, 64, 65, 4095, 4096, 4097, 262143, 262144, 262145, (1L << 24) + 5, (1L << 25) + 7};
+        final var wheel = createWheel();
+        final var expected = new HashMap<CooldownTimerWheel.Entry, Long>();
+        for (final var delay : delays) {
+            final var entry = entry(START + delay * TICK_MILLIS);
+            expected.put(entry, entry.expiresAt());
+            wheel.schedule(entry);
+        }
+
+        final var firedAt = new HashMap<CooldownTimerWheel.Entry, Long>();
+        var now = START;
+        final var sortedDelays = Arrays.stream(delays).sorted().toArray();
+        for (final var delay : sortedDelays) {
+            // Land right before each expiry, then exactly on it
+            for (final var target : new long[]{START + (delay - 1) * TICK_MILLIS, START + delay * TICK_MILLIS}) {
+                if (target <= now) {
+                    continue;
+                }
+                now = target;
+                final var currentTime = now;
+                wheel.advance(now, it -> assertNull(firedAt.put(it, currentTime), "entry fired twice"));
+                for (final var entry : firedAt.keySet()) {
+                    assertTrue(entry.expiresAt() <= currentTime, "entry fired before it expired");
+                }
+            }
+        }
+
+        assertEquals(expected, firedAt);
+    }
+
+    @Test
+    void randomScheduleFiresEveryEntryExactlyOnceWhenDue() {
+        final var random = new Random(42);
+        final var wheel = createWheel();
+        final var pending = new HashSet<CooldownTimerWheel.Entry>();
+        final var fired = new HashSet<CooldownTimerWheel.Entry>();
+        var now = START;
+        for (int round = 0; round < 2000; round++) {
+            // Mix of short cooldowns and ones far enough out to sit in coarser levels
+            final var delayTicks = random.nextInt(4) == 0 ? random.nextInt(300_000) : random.nextInt(200);
+            final var entry = entry(now + delayTicks * TICK_MILLIS + random.nextInt((int) TICK_MILLIS));
+            pending.add(entry);
+            wheel.schedule(entry);
+
+            now += random.nextInt(400) * TICK_MILLIS;
+            final var currentTime = now;
+            wheel.advance(now, it -> {
+                assertTrue(it.expiresAt() <= currentTime, "entry fired before it expired");
+                assertTrue(fired.add(it), "entry fired twice");
+                assertTrue(pending.remove(it));
+            });
+            for (final var entryLeft : pending) {
+                assertTrue(entryLeft.expiresAt() > currentTime, "entry was due but did not fire");
+            }
+        }
+
+        wheel.advance(now + 300_000 * TICK_MILLIS, it -> assertTrue(pending.remove(it)));
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    void clearDropsScheduledEntries() {
+        final var wheel = createWheel();
+        wheel.schedule(entry(START + 5 * TICK_MILLIS));
+        wheel.clear();
+
+        wheel.advance(START + 10 * TICK_MILLIS, it -> fail("cleared entry fired"));
+    }
+}
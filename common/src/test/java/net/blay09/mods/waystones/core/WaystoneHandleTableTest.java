@@ -0,0 +1,132 @@
+package net.blay09.mods.waystones.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaystoneHandleTableTest {
+
+    @Test
+    void assignIsStablePerWaystone() {
+        final var table = new WaystoneHandleTable();
+        final var first = UUID.randomUUID();
+        final var second = UUID.randomUUID();
+
+        final var firstHandle = table.assign(first);
+        final var secondHandle = table.assign(second);
+
+        assertNotEquals(firstHandle, secondHandle);
+        assertEquals(firstHandle, table.assign(first));
+        assertEquals(firstHandle, table.getHandle(first));
+        assertEquals(first, table.getWaystoneUid(firstHandle));
+        assertEquals(second, table.getWaystoneUid(secondHandle));
+    }
+
+    @Test
+    void releasedHandleDoesNotResolveToSlotReuser() {
+        final var table = new WaystoneHandleTable();
+        final var removed = UUID.randomUUID();
+        final var removedHandle = table.assign(removed);
+        table.release(removed);
+
+        final var reuser = UUID.randomUUID();
+        final var reuserHandle = table.assign(reuser);
+
+        assertEquals(WaystoneHandleTable.slotOf(removedHandle), WaystoneHandleTable.slotOf(reuserHandle));
+        assertNotEquals(WaystoneHandleTable.generationOf(removedHandle), WaystoneHandleTable.generationOf(reuserHandle));
+        assertNull(table.getWaystoneUid(removedHandle));
+        assertEquals(reuser, table.getWaystoneUid(reuserHandle));
+        assertEquals(WaystoneHandleTable.NO_HANDLE, table.getHandle(removed));
+    }
+
+    @Test
+    void generationWrapsAroundWithoutGoingNegative() {
+        final var table = new WaystoneHandleTable();
+        var waystoneUid = UUID.randomUUID();
+        final var initialHandle = table.assign(waystoneUid);
+        final var slot = WaystoneHandleTable.slotOf(initialHandle);
+
+        var previousGeneration = WaystoneHandleTable.generationOf(initialHandle);
+        var wrapped = false;
+        for (int i = 0; i < 200; i++) {
+            table.release(waystoneUid);
+            waystoneUid = UUID.randomUUID();
+            final var handle = table.assign(waystoneUid);
+            final var generation = WaystoneHandleTable.generationOf(handle);
+
+            assertTrue(handle >= 0, "handle " + handle + " must stay non-negative");
+            assertEquals(slot, WaystoneHandleTable.slotOf(handle));
+            assertEquals(waystoneUid, table.getWaystoneUid(handle));
+            if (generation < previousGeneration) {
+                assertEquals(0, generation);
+                wrapped = true;
+            } else {
+                assertEquals(previousGeneration + 1, generation);
+            }
+            previousGeneration = generation;
+        }
+        assertTrue(wrapped);
+    }
+
+    @Test
+    void handleFromBeforeWraparoundResolvesAgainOnlyWhenGenerationMatches() {
+        final var table = new WaystoneHandleTable();
+        var waystoneUid = UUID.randomUUID();
+        final var initialHandle = table.assign(waystoneUid);
+
+        // 128 reassignments bring the 7 bit generation back to where it started
+        for (int i = 0; i < 128; i++) {
+            table.release(waystoneUid);
+            waystoneUid = UUID.randomUUID();
+            final var handle = table.assign(waystoneUid);
+            assertEquals(i == 127, handle == initialHandle);
+        }
+        assertEquals(waystoneUid, table.getWaystoneUid(initialHandle));
+    }
+
+    @Test
+    void claimOnlyDisplacesOccupantWhenForced() {
+        final var table = new WaystoneHandleTable();
+        final var occupant = UUID.randomUUID();
+        final var handle = table.assign(occupant);
+        final var claimer = UUID.randomUUID();
+
+        assertFalse(table.claim(claimer, handle, false));
+        assertEquals(occupant, table.getWaystoneUid(handle));
+
+        assertTrue(table.claim(claimer, handle, true));
+        assertEquals(claimer, table.getWaystoneUid(handle));
+        assertEquals(handle, table.getHandle(claimer));
+        assertEquals(WaystoneHandleTable.NO_HANDLE, table.getHandle(occupant));
+    }
+
+    @Test
+    void rebuildFreeSlotsHandsOutGapsLeftByClaims() {
+        final var table = new WaystoneHandleTable();
+        final var claimed = UUID.randomUUID();
+        assertTrue(table.claim(claimed, 3, false));
+        assertEquals(WaystoneHandleTable.NO_HANDLE, table.getHandleForSlot(1));
+
+        table.rebuildFreeSlots();
+        final var assignedSlots = new int[3];
+        for (int i = 0; i < assignedSlots.length; i++) {
+            assignedSlots[i] = WaystoneHandleTable.slotOf(table.assign(UUID.randomUUID()));
+        }
+
+        assertArrayEquals(new int[]{0, 1, 2}, assignedSlots);
+        assertEquals(4, WaystoneHandleTable.slotOf(table.assign(UUID.randomUUID())));
+        assertEquals(claimed, table.getWaystoneUid(3));
+    }
+
+    @Test
+    void negativeHandlesNeverResolve() {
+        final var table = new WaystoneHandleTable();
+        table.assign(UUID.randomUUID());
+
+        assertNull(table.getWaystoneUid(WaystoneHandleTable.NO_HANDLE));
+        assertNull(table.getWaystoneUid(Integer.MIN_VALUE));
+        assertFalse(table.claim(UUID.randomUUID(), WaystoneHandleTable.NO_HANDLE, true));
+    }
+}
@@ -0,0 +1,234 @@
+package net.blay09.mods.waystones.core;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import net.blay09.mods.waystones.api.Waystone;
+import net.blay09.mods.waystones.api.WaystoneOrigin;
+import net.blay09.mods.waystones.api.WaystoneTypes;
+import net.blay09.mods.waystones.api.WaystoneVisibility;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.RegistryAccess;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaystoneListCodecTest {
+
+    private static final ResourceLocation OVERWORLD = ResourceLocation.withDefaultNamespace("overworld");
+    private static final ResourceLocation NETHER = ResourceLocation.withDefaultNamespace("the_nether");
+    private static final ResourceLocation END = ResourceLocation.withDefaultNamespace("the_end");
+
+    private static RegistryFriendlyByteBuf createBuffer() {
+        return new RegistryFriendlyByteBuf(Unpooled.buffer(), RegistryAccess.EMPTY);
+    }
+
+    private static WaystoneImpl waystone(ResourceLocation dimension, int x, int y, int z, String name) {
+        final var waystone = new WaystoneImpl(WaystoneTypes.WAYSTONE, UUID.randomUUID(), ResourceKey.create(Registries.DIMENSION, dimension), new BlockPos(x, y, z),
+                WaystoneOrigin.PLAYER, null);
+        waystone.setName(Component.literal(name));
+        return waystone;
+    }
+
+    private static List<Waystone> roundTrip(List<Waystone> waystones) {
+        final var buf = createBuffer();
+        WaystoneListCodec.encode(buf, waystones);
+        final var decoded = WaystoneListCodec.decode(buf);
+        assertEquals(0, buf.readableBytes());
+        return decoded;
+    }
+
+    private static void assertSameWaystones(List<Waystone> expected, List<Waystone> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            final var expectedWaystone = expected.get(i);
+            final var actualWaystone = actual.get(i);
+            assertEquals(expectedWaystone.getWaystoneUid(), actualWaystone.getWaystoneUid());
+            assertEquals(expectedWaystone.getWaystoneType(), actualWaystone.getWaystoneType());
+            assertEquals(expectedWaystone.getDimension(), actualWaystone.getDimension());
+            assertEquals(expectedWaystone.getPos(), actualWaystone.getPos());
+            assertEquals(expectedWaystone.getName().getString(), actualWaystone.getName().getString());
+            assertEquals(expectedWaystone.getVisibility(), actualWaystone.getVisibility());
+            assertEquals(expectedWaystone.getOrigin(), actualWaystone.getOrigin());
+            assertEquals(WaystoneImpl.handleOf(expectedWaystone), WaystoneImpl.handleOf(actualWaystone));
+        }
+    }
+
+    @Test
+    void roundTripRestoresOriginalOrder() {
+        final var waystones = List.<Waystone>of(
+                waystone(NETHER, 12, 64, -40, "Nether Hub"),
+                waystone(OVERWORLD, 9000, 70, 9000, "Far Away"),
+                waystone(OVERWORLD, -3, -60, 7, "Spawn"),
+                waystone(END, 100, 50, 0, "End"),
+                waystone(OVERWORLD, -2048, 300, -2048, "Negative Region"));
+
+        assertSameWaystones(waystones, roundTrip(waystones));
+    }
+
+    @Test
+    void sortedListIsWrittenWithoutIndices() {
+        final var waystones = List.<Waystone>of(
+                waystone(OVERWORLD, 0, 64, 0, "First"),
+                waystone(OVERWORLD, 1, 64, 1, "Second"));
+
+        final var buf = createBuffer();
+        WaystoneListCodec.encode(buf, waystones);
+        final var copy = buf.copy();
+        assertEquals(2, copy.readByte());
+        assertFalse(copy.readBoolean());
+
+        assertSameWaystones(waystones, WaystoneListCodec.decode(buf));
+    }
+
+    @Test
+    void emptyListRoundTrips() {
+        assertTrue(roundTrip(List.of()).isEmpty());
+    }
+
+    @Test
+    void extremeCoordinateDeltasWrapAround() {
+        final var waystones = List.<Waystone>of(
+                waystone(OVERWORLD, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, "Max"),
+                waystone(OVERWORLD, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, "Min"),
+                waystone(OVERWORLD, 0, 0, 0, "Origin"),
+                waystone(OVERWORLD, -1, -1, -1, "Minus One"));
+
+        assertSameWaystones(waystones, roundTrip(waystones));
+    }
+
+    @Test
+    void everyVisibilityOriginAndHandleRoundTrips() {
+        final var waystones = new ArrayList<Waystone>();
+        for (final var origin : WaystoneOrigin.values()) {
+            for (final var visibility : WaystoneVisibility.values()) {
+                final var waystone = new WaystoneImpl(WaystoneTypes.WAYSTONE, UUID.randomUUID(), ResourceKey.create(Registries.DIMENSION, OVERWORLD),
+                        new BlockPos(waystones.size(), 64, 0), origin, null);
+                waystone.setName(Component.literal(""));
+                waystone.setVisibility(visibility);
+                // The first one has no handle, the rest spread out over slots and generations
+                waystone.setHandle(waystones.isEmpty() ? WaystoneHandleTable.NO_HANDLE : waystones.size() * 0x10101);
+                waystones.add(waystone);
+            }
+        }
+
+        assertSameWaystones(waystones, roundTrip(waystones));
+    }
+
+    @Test
+    void truncatedListIsRejected() {
+        final var buf = createBuffer();
+        WaystoneListCodec.encode(buf, List.of(waystone(OVERWORLD, 5, 64, 5, "One"), waystone(NETHER, 1, 2, 3, "Two")));
+        final var truncated = new RegistryFriendlyByteBuf(buf.copy(0, buf.readableBytes() - 5), RegistryAccess.EMPTY);
+
+        assertThrows(RuntimeException.class, () -> WaystoneListCodec.decode(truncated));
+    }
+
+    @Test
+    void sizeBeyondReadableBytesIsRejected() {
+        final var buf = createBuffer();
+        buf.writeVarInt(1000);
+        buf.writeBoolean(false);
+        buf.writeVarInt(0);
+        buf.writeZero(64);
+
+        assertThrows(DecoderException.class, () -> WaystoneListCodec.decode(buf));
+    }
+
+    @Test
+    void negativeSizeIsRejected() {
+        final var buf = createBuffer();
+        buf.writeVarInt(-1);
+        buf.writeZero(64);
+
+        assertThrows(DecoderException.class, () -> WaystoneListCodec.decode(buf));
+    }
+
+    @Test
+    void stringTableSizeBeyondReadableBytesIsRejected() {
+        final var buf = createBuffer();
+        buf.writeVarInt(1);
+        buf.writeBoolean(false);
+        buf.writeVarInt(1000);
+        buf.writeZero(32);
+
+        assertThrows(DecoderException.class, () -> WaystoneListCodec.decode(buf));
+    }
+
+    @Test
+    void stringIdOutsideTableIsRejected() {
+        final var buf = createListHeader(1, false);
+        writeEntry(buf, -1, 2, 1, 0);
+
+        assertThrows(DecoderException.class, () -> WaystoneListCodec.decode(buf));
+    }
+
+    @Test
+    void flagsOutOfRangeAreRejected() {
+        final var buf = createListHeader(1, false);
+        writeEntry(buf, -1, 0, 1, WaystoneVisibility.values().length * WaystoneOrigin.values().length * 2);
+
+        assertThrows(DecoderException.class, () -> WaystoneListCodec.decode(buf));
+    }
+
+    @Test
+    void indexOutOfRangeIsRejected() {
+        final var buf = createListHeader(1, true);
+        writeEntry(buf, 1, 0, 1, 1);
+
+        assertThrows(DecoderException.class, () -> WaystoneListCodec.decode(buf));
+    }
+
+    @Test
+    void duplicateIndexIsRejected() {
+        final var buf = createListHeader(2, true);
+        writeEntry(buf, 0, 0, 1, 1);
+        writeEntry(buf, 0, 0, 1, 1);
+
+        assertThrows(DecoderException.class, () -> WaystoneListCodec.decode(buf));
+    }
+
+    @Test
+    void wellFormedHandWrittenListDecodes() {
+        final var buf = createListHeader(2, true);
+        writeEntry(buf, 1, 0, 1, 1);
+        writeEntry(buf, 0, 0, 1, 1);
+
+        final var waystones = WaystoneListCodec.decode(buf);
+        assertEquals(2, waystones.size());
+        assertEquals(OVERWORLD, waystones.getFirst().getDimension().location());
+    }
+
+    private static RegistryFriendlyByteBuf createListHeader(int size, boolean reordered) {
+        final var buf = createBuffer();
+        buf.writeVarInt(size);
+        buf.writeBoolean(reordered);
+        buf.writeVarInt(2);
+        buf.writeResourceLocation(WaystoneTypes.WAYSTONE);
+        buf.writeResourceLocation(OVERWORLD);
+        return buf;
+    }
+
+    private static void writeEntry(RegistryFriendlyByteBuf buf, int index, int typeId, int dimensionId, int flags) {
+        if (index >= 0) {
+            buf.writeVarInt(index);
+        }
+        buf.writeUUID(UUID.randomUUID());
+        buf.writeVarInt(typeId);
+        buf.writeVarInt(dimensionId);
+        buf.writeVarInt(flags);
+        buf.writeVarInt(0);
+        buf.writeVarInt(0);
+        buf.writeVarInt(0);
+        buf.writeUtf("Name");
+        buf.writeVarInt(0);
+    }
+}
@@ -0,0 +1,168 @@
+package net.blay09.mods.waystones.core;
+
+import net.blay09.mods.waystones.Waystones;
+import net.blay09.mods.waystones.api.Waystone;
+import net.blay09.mods.waystones.api.WaystoneOrigin;
+import net.blay09.mods.waystones.api.WaystoneTypes;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.RegistryAccess;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.Bootstrap;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaystoneMutationJournalTest {
+
+    private static final String JOURNAL_FILE_NAME = Waystones.MOD_ID + "_journal.bin";
+    private static final String ROTATED_JOURNAL_FILE_NAME = Waystones.MOD_ID + "_journal.old.bin";
+
+    @TempDir
+    Path dataFolder;
+
+    private final List<Waystone> replayedPuts = new ArrayList<>();
+    private final List<UUID> replayedRemovals = new ArrayList<>();
+
+    @BeforeAll
+    static void bootstrap() {
+        // Waystone names are written through the component codec, which needs the built-in registries
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    @AfterAll
+    static void shutdownWriter() {
+        WaystoneMutationJournal.shutdownWriter();
+    }
+
+    private static WaystoneImpl waystone(String name) {
+        final var waystone = new WaystoneImpl(WaystoneTypes.WAYSTONE, UUID.randomUUID(),
+                ResourceKey.create(Registries.DIMENSION, ResourceLocation.withDefaultNamespace("overworld")), new BlockPos(1, 64, -1), WaystoneOrigin.PLAYER, null);
+        waystone.setName(Component.literal(name));
+        return waystone;
+    }
+
+    private void flushRemoval(WaystoneMutationJournal journal, UUID waystoneUid) {
+        journal.recordRemove(waystoneUid);
+        journal.flush(RegistryAccess.EMPTY);
+        journal.awaitWrites();
+    }
+
+    private void replay() {
+        replayedPuts.clear();
+        replayedRemovals.clear();
+        new WaystoneMutationJournal(dataFolder).replay(RegistryAccess.EMPTY, replayedPuts::add, replayedRemovals::add);
+    }
+
+    private static void truncate(Path path, int bytesToDrop) throws IOException {
+        final var bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - bytesToDrop));
+    }
+
+    @Test
+    void replaysPutsAndRemovalsInOrder() {
+        final var journal = new WaystoneMutationJournal(dataFolder);
+        final var waystone = waystone("Journaled");
+        final var removedUid = UUID.randomUUID();
+        journal.recordPut(waystone);
+        journal.recordRemove(removedUid);
+        journal.flush(RegistryAccess.EMPTY);
+        journal.awaitWrites();
+
+        replay();
+
+        assertEquals(1, replayedPuts.size());
+        final var replayed = replayedPuts.getFirst();
+        assertEquals(waystone.getWaystoneUid(), replayed.getWaystoneUid());
+        assertEquals(waystone.getPos(), replayed.getPos());
+        assertEquals(waystone.getDimension(), replayed.getDimension());
+        assertEquals("Journaled", replayed.getName().getString());
+        assertEquals(List.of(removedUid), replayedRemovals);
+    }
+
+    @Test
+    void laterChangeInSameTickReplacesEarlierOne() {
+        final var journal = new WaystoneMutationJournal(dataFolder);
+        final var waystone = waystone("Replaced");
+        journal.recordPut(waystone);
+        journal.recordRemove(waystone.getWaystoneUid());
+        journal.flush(RegistryAccess.EMPTY);
+        journal.awaitWrites();
+
+        replay();
+
+        assertTrue(replayedPuts.isEmpty());
+        assertEquals(List.of(waystone.getWaystoneUid()), replayedRemovals);
+    }
+
+    @Test
+    void truncatedRecordEndsReplay() throws IOException {
+        final var journal = new WaystoneMutationJournal(dataFolder);
+        final var first = UUID.randomUUID();
+        final var second = UUID.randomUUID();
+        flushRemoval(journal, first);
+        flushRemoval(journal, second);
+
+        // Cut into the body of the last record, as if the server crashed while it was being appended
+        truncate(dataFolder.resolve(JOURNAL_FILE_NAME), 3);
+        replay();
+
+        assertTrue(replayedPuts.isEmpty());
+        assertEquals(List.of(first), replayedRemovals);
+    }
+
+    @Test
+    void truncatedLengthPrefixEndsReplay() throws IOException {
+        final var journal = new WaystoneMutationJournal(dataFolder);
+        final var first = UUID.randomUUID();
+        flushRemoval(journal, first);
+
+        final var journalPath = dataFolder.resolve(JOURNAL_FILE_NAME);
+        final var bytes = Files.readAllBytes(journalPath);
+        final var withPartialPrefix = Arrays.copyOf(bytes, bytes.length + 2);
+        Files.write(journalPath, withPartialPrefix);
+        replay();
+
+        assertEquals(List.of(first), replayedRemovals);
+    }
+
+    @Test
+    void truncatedRotatedJournalStillReplaysCurrentOne() throws IOException {
+        final var journal = new WaystoneMutationJournal(dataFolder);
+        final var rotatedFirst = UUID.randomUUID();
+        final var rotatedSecond = UUID.randomUUID();
+        final var current = UUID.randomUUID();
+        flushRemoval(journal, rotatedFirst);
+        flushRemoval(journal, rotatedSecond);
+        journal.rotate();
+        flushRemoval(journal, current);
+
+        truncate(dataFolder.resolve(ROTATED_JOURNAL_FILE_NAME), 1);
+        replay();
+
+        assertEquals(List.of(rotatedFirst, current), replayedRemovals);
+    }
+
+    @Test
+    void missingJournalReplaysNothing() {
+        replay();
+
+        assertTrue(replayedPuts.isEmpty());
+        assertTrue(replayedRemovals.isEmpty());
+    }
+}